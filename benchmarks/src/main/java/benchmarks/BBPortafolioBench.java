@@ -0,0 +1,61 @@
+package benchmarks;
+
+import model.*;
+import optimizacion.BBPortafolio;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Branch & Bound completo (semilla Greedy incluida) por tipo de perfil. El
+ * contador auxiliar "nodos" sale como nodos/s. En universos grandes la búsqueda
+ * se corta en nodosMaximos, así que mide throughput del árbol, no tiempo al óptimo.
+ *
+ * Asignación de memoria: java -jar benchmarks/target/benchmarks.jar BBPortafolioBench -prof gc
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class BBPortafolioBench {
+
+    @Param({"mercado", "sintetico:120"})
+    public String universo;
+
+    @Param({"Conservador", "Moderadamente conservador", "Moderado", "Moderadamente agresivo", "Agresivo"})
+    public String tipoPerfil;
+
+    @Param({"2000000"})
+    public long nodosMaximos;
+
+    @Param({"1"})
+    public int paralelismo;
+
+    private Instancia in;
+    private BBPortafolio.Opciones op;
+
+    @AuxCounters(AuxCounters.Type.OPERATIONS)
+    @State(Scope.Thread)
+    public static class Nodos {
+        public long nodos;
+
+        @Setup(Level.Iteration)
+        public void reiniciar() { nodos = 0; }
+    }
+
+    @Setup
+    public void preparar() {
+        in = new Instancia(Universos.obtener(universo), Universos.perfil(tipoPerfil));
+        op = new BBPortafolio.Opciones(paralelismo);
+        op.nodosMaximos = nodosMaximos;
+    }
+
+    @Benchmark
+    public BBPortafolio.Resultado maximizarRetorno(Nodos contador) {
+        BBPortafolio.Resultado r = BBPortafolio.maximizarRetorno(in, op);
+        contador.nodos += r.nodosVisitados;
+        return r;
+    }
+}
@@ -0,0 +1,42 @@
+package benchmarks;
+
+import heuristicas.GreedyInicial;
+import model.*;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/** Riesgo y retorno de una cartera (la del Greedy para un perfil Moderado) */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class CalculadorasBench {
+
+    @Param({"mercado", "sintetico:200", "sintetico:1000"})
+    public String universo;
+
+    private Mercado m;
+    private Asignacion a;
+    private double presupuesto;
+
+    @Setup
+    public void preparar() {
+        m = Universos.obtener(universo);
+        Perfil p = Universos.perfil("Moderado");
+        a = GreedyInicial.construir(m, p);
+        presupuesto = p.getPresupuesto();
+    }
+
+    @Benchmark
+    public double riesgoCartera() {
+        return CalculadoraRiesgo.riesgoCartera(m, a, presupuesto);
+    }
+
+    @Benchmark
+    public double retornoCartera() {
+        return CalculadoraRetorno.retornoCartera(m, a, presupuesto);
+    }
+}
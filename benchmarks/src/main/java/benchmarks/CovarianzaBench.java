@@ -0,0 +1,62 @@
+package benchmarks;
+
+import model.*;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/** Kernels densos de riesgo sobre la covarianza por filas: una cartera densa y 8 por pasada */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "--add-modules=jdk.incubator.vector")
+@State(Scope.Benchmark)
+public class CovarianzaBench {
+
+    @Param({"sintetico:200", "sintetico:1000", "sintetico:3000"})
+    public String universo;
+
+    @Param({"escalar", "vectorial"})
+    public String kernel;
+
+    private KernelRiesgo k;
+    private double[] cov;
+    private int n;
+    private double[][] carteras;
+    private double[] w, g, varianzas;
+
+    @Setup
+    public void preparar() {
+        k = kernel.equals("escalar") ? KernelRiesgo.escalar() : KernelRiesgo.vectorial();
+        if (k == null) throw new IllegalStateException("Vector API no disponible (--add-modules jdk.incubator.vector)");
+        Mercado m = Universos.obtener(universo);
+        cov = m.covarianza();
+        n = m.activos.size();
+        Random rnd = new Random(7);
+        carteras = new double[8][n];
+        for (double[] c : carteras) for (int i = 0; i < n; i++) c[i] = rnd.nextDouble() / n;
+        w = carteras[0];
+        g = new double[n];
+        varianzas = new double[carteras.length];
+    }
+
+    @Benchmark
+    public double varianza() {
+        return k.varianza(cov, n, w);
+    }
+
+    @Benchmark
+    public double[] producto() {
+        k.producto(cov, n, w, g);
+        return g;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(8)
+    public double[] varianzasPorLote() {
+        k.varianzas(cov, n, carteras, carteras.length, varianzas);
+        return varianzas;
+    }
+}
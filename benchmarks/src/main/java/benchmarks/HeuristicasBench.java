@@ -0,0 +1,44 @@
+package benchmarks;
+
+import heuristicas.*;
+import model.*;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/** Semilla factible y Greedy por tipo de perfil */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class HeuristicasBench {
+
+    @Param({"mercado", "sintetico:200", "sintetico:1000"})
+    public String universo;
+
+    @Param({"Conservador", "Moderadamente conservador", "Moderado", "Moderadamente agresivo", "Agresivo"})
+    public String tipoPerfil;
+
+    private Instancia in;
+
+    @Setup
+    public void preparar() {
+        in = new Instancia(Universos.obtener(universo), Universos.perfil(tipoPerfil));
+    }
+
+    @Benchmark
+    public Asignacion semillaFactible() {
+        try {
+            return SemillaFactible.construir(in);
+        } catch (IllegalArgumentException sinSemilla) {
+            return null;            // perfil sin semilla en este universo: se mide igual el intento
+        }
+    }
+
+    @Benchmark
+    public Asignacion greedyInicial() {
+        return GreedyInicial.construir(in);
+    }
+}
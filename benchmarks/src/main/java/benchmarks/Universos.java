@@ -0,0 +1,39 @@
+package benchmarks;
+
+import io.CargadorDatosJson;
+import model.*;
+import tools.GeneradorMercado;
+
+import java.util.*;
+
+/**
+ * Mercados de los benchmarks:
+ * - "mercado": data/mercado.json (o el de -Dmercado=ruta), los 60 activos reales
+ * - "sintetico:N": N activos de {@link GeneradorMercado} con la configuración por
+ *   defecto (imita data/mercado.json; correlaciones de un modelo de factores,
+ *   semidefinida positiva) y semilla fija: siempre el mismo.
+ */
+final class Universos {
+    private static final Map<String, Mercado> CACHE = new HashMap<>();
+    private static final long SEMILLA = 42;
+
+    private Universos(){}
+
+    static synchronized Mercado obtener(String spec) {
+        return CACHE.computeIfAbsent(spec, Universos::crear);
+    }
+
+    /** Perfil de referencia de los benchmarks para un tipo de perfil */
+    static Perfil perfil(String tipoPerfil) {
+        return new Perfil(100_000.0, 0.40, Map.of(), Map.of(), tipoPerfil, 0.0, 1);
+    }
+
+    private static Mercado crear(String spec) {
+        if (spec.equals("mercado")) return CargadorDatosJson.cargarMercado(System.getProperty("mercado", "data/mercado.json"));
+        if (!spec.startsWith("sintetico:")) throw new IllegalArgumentException("Universo desconocido: " + spec);
+        GeneradorMercado.Config c = new GeneradorMercado.Config();
+        c.n = Integer.parseInt(spec.substring("sintetico:".length()));
+        c.semilla = SEMILLA;
+        return GeneradorMercado.generar(c);
+    }
+}
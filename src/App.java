@@ -17,7 +17,8 @@ public class App {
         ValidadorMercado.validar(m);
 
         System.out.println("Activos: " + m.activos.size());
-        System.out.println("Matriz rho: " + m.rho.length + " x " + m.rho[0].length);
+        if (m.rho != null) System.out.println("Matriz rho: " + m.rho.length + " x " + m.rho[0].length);
+        else System.out.println("Modelo factorial: " + m.factores.k + " factores");
         for (int i = 0; i < Math.min(5, m.activos.size()); i++) {
             System.out.println(" - " + m.activos.get(i));
         }
@@ -6,82 +6,90 @@ import java.util.*;
 public final class GreedyInicial {
     private GreedyInicial(){}
 
+    public static Asignacion construir(Mercado m, Perfil p){
+        return construir(new Instancia(m, p));
+    }
+
     /**
      * Construye una cartera inicial greedy:
      * - Prioriza activos con mejor retorno/sigma
      * - Penaliza correlación con los ya elegidos
      * - Respeta 3..6 activos distintos
      */
-    public static Asignacion construir(Mercado m, Perfil p){
+    public static Asignacion construir(Instancia in){
         // Semilla inicial válida
-        Asignacion base = SemillaFactible.construir(m, p);
+        Asignacion base = SemillaFactible.construir(in);
+        final int n = in.n;
 
         // Estado mutable
-        LinkedHashMap<String,Double> asig = new LinkedHashMap<>(base.getMontos());
-        Map<String,Double> usoTipo   = new HashMap<>();
-        Map<String,Double> usoSector = new HashMap<>();
+        double[] montos    = in.montos(base);
+        double[] usoTipo   = new double[in.cantidadTipos()];
+        double[] usoSector = new double[in.cantidadSectores()];
+        int[] orden = new int[n];                     // índices con monto > 0, en orden de inserción
+        int cant = 0;
         int distintos = 0;
-        for (Map.Entry<String,Double> e : asig.entrySet()) {
-            if (e.getValue() > 0) {
+        for (String t : base.tickers()) {
+            int i = in.indexOf(t);
+            if (montos[i] > 0) {
                 distintos++;
-                int idx = m.indexOf(e.getKey());
-                Activo a = m.activos.get(idx);
-                usoTipo.put(a.tipo, usoTipo.getOrDefault(a.tipo,0.0) + e.getValue());
-                usoSector.put(a.sector, usoSector.getOrDefault(a.sector,0.0) + e.getValue());
+                orden[cant++] = i;
+                usoTipo[in.tipo[i]]     += montos[i];
+                usoSector[in.sector[i]] += montos[i];
             }
         }
 
         double invertido = 0.0;
-        for (double v : asig.values()) invertido += v;
-        double presupuestoRest = p.presupuesto - invertido;
+        for (double v : montos) invertido += v;
+        double presupuestoRest = in.presupuesto - invertido;
 
-        double topePorActivoAbs = p.maxPorActivo * p.presupuesto;
+        double[] score = new double[n];
+        List<Integer> candidatos = new ArrayList<>(n);
 
         boolean progreso = true;
         while (progreso) {
             progreso = false;
 
             // Orden dinámico: score = retorno/sigma penalizado por correlación
-            List<Activo> candidatos = new ArrayList<>(m.activos);
-            candidatos.sort((a1, a2) -> {
-                double s1 = scoreConPenalizacion(m, asig, a1);
-                double s2 = scoreConPenalizacion(m, asig, a2);
-                return Double.compare(s2, s1); // descendente
-            });
+            for (int i = 0; i < n; i++) score[i] = scoreConPenalizacion(in, orden, cant, i);
+            candidatos.clear();
+            for (int i = 0; i < n; i++) candidatos.add(i);
+            candidatos.sort((i1, i2) -> Double.compare(score[i2], score[i1])); // descendente
 
-            for (Activo a : candidatos) {
-                boolean yaEsta = asig.containsKey(a.ticker) && asig.get(a.ticker) > 0.0;
+            for (int i : candidatos) {
+                int t = in.tipo[i], s = in.sector[i];
+                boolean yaEsta = montos[i] > 0.0;
 
                 if (!yaEsta && distintos >= 6) continue;
 
-                double delta = a.montoMin;
+                double delta = in.montoMin[i];
                 if (delta > presupuestoRest + 1e-9) continue;
 
-                double actual = asig.getOrDefault(a.ticker, 0.0);
-                if (actual + delta - topePorActivoAbs > 1e-9) continue;
+                double actual = montos[i];
+                if (actual + delta - in.topePorActivoAbs > 1e-9) continue;
 
-                double nuevoTipo   = usoTipo.getOrDefault(a.tipo,0.0) + delta;
-                double nuevoSector = usoSector.getOrDefault(a.sector,0.0) + delta;
-                double limTipo     = p.maxPorTipo.getOrDefault(a.tipo,1.0)*p.presupuesto;
-                double limSector   = p.maxPorSector.getOrDefault(a.sector,1.0)*p.presupuesto;
-                if (nuevoTipo - limTipo > 1e-9 || nuevoSector - limSector > 1e-9) continue;
+                double nuevoTipo   = usoTipo[t] + delta;
+                double nuevoSector = usoSector[s] + delta;
+                if (nuevoTipo - in.limTipo[t] > 1e-9 || nuevoSector - in.limSector[s] > 1e-9) continue;
 
-                asig.put(a.ticker, actual + delta);
-                usoTipo.put(a.tipo, nuevoTipo);
-                usoSector.put(a.sector, nuevoSector);
+                montos[i] = actual + delta;
+                usoTipo[t] = nuevoTipo;
+                usoSector[s] = nuevoSector;
 
-                Asignacion parcial = new Asignacion(asig);
-                double sigma = CalculadoraRiesgo.riesgoCartera(m, parcial, p.presupuesto);
-                if (sigma - p.riesgoMax > 1e-9) {
+                if (!yaEsta) orden[cant] = i;         // solo cuenta si queda (ver abajo)
+                double sigma = in.riesgo(montos, orden, yaEsta ? cant : cant + 1);
+                if (sigma - in.riesgoMax > 1e-9) {
                     // deshacer
-                    asig.put(a.ticker, actual);
-                    usoTipo.put(a.tipo, nuevoTipo - delta);
-                    usoSector.put(a.sector, nuevoSector - delta);
+                    montos[i] = actual;
+                    usoTipo[t] = nuevoTipo - delta;
+                    usoSector[s] = nuevoSector - delta;
                     continue;
                 }
 
                 presupuestoRest -= delta;
-                if (!yaEsta) distintos++;
+                if (!yaEsta) {
+                    distintos++;
+                    orden[cant++] = i;
+                }
                 progreso = true;
 
                 if (presupuestoRest < 1e-6) break;
@@ -90,31 +98,32 @@ public final class GreedyInicial {
 
         // Intento final de relleno
         if (presupuestoRest > 1e-6) {
-            for (Activo a : m.activos) {
-                double delta = Math.min(presupuestoRest, a.montoMin);
-                if (delta < a.montoMin - 1e-9) continue;
+            for (int i = 0; i < n; i++) {
+                int t = in.tipo[i], s = in.sector[i];
+                double delta = Math.min(presupuestoRest, in.montoMin[i]);
+                if (delta < in.montoMin[i] - 1e-9) continue;
 
-                double actual = asig.getOrDefault(a.ticker, 0.0);
-                double nuevoTipo   = usoTipo.getOrDefault(a.tipo,0.0) + delta;
-                double nuevoSector = usoSector.getOrDefault(a.sector,0.0) + delta;
-                double limTipo     = p.maxPorTipo.getOrDefault(a.tipo,1.0)*p.presupuesto;
-                double limSector   = p.maxPorSector.getOrDefault(a.sector,1.0)*p.presupuesto;
+                double actual = montos[i];
+                double nuevoTipo   = usoTipo[t] + delta;
+                double nuevoSector = usoSector[s] + delta;
 
-                if (nuevoTipo > limTipo + 1e-9 || nuevoSector > limSector + 1e-9) continue;
+                if (nuevoTipo > in.limTipo[t] + 1e-9 || nuevoSector > in.limSector[s] + 1e-9) continue;
 
-                asig.put(a.ticker, actual + delta);
-                usoTipo.put(a.tipo, nuevoTipo);
-                usoSector.put(a.sector, nuevoSector);
+                montos[i] = actual + delta;
+                usoTipo[t] = nuevoTipo;
+                usoSector[s] = nuevoSector;
 
-                Asignacion parcial = new Asignacion(asig);
-                double sigma = CalculadoraRiesgo.riesgoCartera(m, parcial, p.presupuesto);
-                if (sigma <= p.riesgoMax + 1e-9) {
+                boolean nuevo = actual <= 0.0;
+                if (nuevo) orden[cant] = i;
+                double sigma = in.riesgo(montos, orden, nuevo ? cant + 1 : cant);
+                if (sigma <= in.riesgoMax + 1e-9) {
                     presupuestoRest -= delta;
+                    if (nuevo) cant++;
                     break;
                 } else {
-                    asig.put(a.ticker, actual);
-                    usoTipo.put(a.tipo, nuevoTipo - delta);
-                    usoSector.put(a.sector, nuevoSector - delta);
+                    montos[i] = actual;
+                    usoTipo[t] = nuevoTipo - delta;
+                    usoSector[s] = nuevoSector - delta;
                 }
             }
         }
@@ -123,31 +132,21 @@ public final class GreedyInicial {
             return base;
         }
 
-        return new Asignacion(asig);
+        return in.asignacion(montos, Arrays.copyOf(orden, cant));
     }
 
-    // --- Nuevo: score con penalización por correlación ---
-    private static double scoreConPenalizacion(Mercado m, Map<String,Double> asig, Activo candidato) {
-        double base = candidato.sigma > 1e-12 ? candidato.retorno / candidato.sigma : candidato.retorno;
+    // --- Score con penalización por correlación ---
+    private static double scoreConPenalizacion(Instancia in, int[] elegidos, int cant, int candidato) {
+        double base = in.sigma[candidato] > 1e-12 ? in.retorno[candidato] / in.sigma[candidato] : in.retorno[candidato];
+        if (cant == 0) return base;
 
-        // calcular correlación promedio con los ya elegidos
-        List<Integer> idx = new ArrayList<>();
-        for (String t : asig.keySet()) {
-            if (asig.get(t) > 0.0) idx.add(m.indexOf(t));
-        }
-        if (idx.isEmpty()) return base;
-
-        int idxCand = m.indexOf(candidato.ticker);
-        double sum = 0.0; int cnt = 0;
-        for (int i : idx) {
-            sum += m.rho[i][idxCand];
-            cnt++;
-        }
-        double corrProm = cnt==0?0.0:sum/cnt;
+        // correlación promedio con los ya elegidos
+        double sum = 0.0;
+        for (int k = 0; k < cant; k++) sum += in.correlacion(elegidos[k], candidato);
+        double corrProm = sum / cant;
 
         // penalización: cuanto mayor correlación, menor score
         double alpha = 0.5; // factor de penalización
         return base / (1.0 + alpha * corrProm);
     }
 }
-
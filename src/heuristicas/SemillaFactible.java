@@ -6,52 +6,54 @@ import java.util.*;
 public final class SemillaFactible {
     private SemillaFactible(){}
 
+    public static Asignacion construir(Mercado m, Perfil p){
+        return construir(new Instancia(m, p));
+    }
+
     /**
      * Construye una semilla factible con 3..6 activos, 1× montoMin cada uno,
      * eligiendo por score (retorno/sigma) descendente y respetando
      * presupuesto, tope por activo, y topes por tipo/sector.
      */
-    public static Asignacion construir(Mercado m, Perfil p){
-        int n = m.activos.size();
+    public static Asignacion construir(Instancia in){
+        int n = in.n;
 
         // orden por score retorno/sigma (si sigma=0, usa retorno)
         List<Integer> ord = new ArrayList<>();
         for (int i=0;i<n;i++) ord.add(i);
         ord.sort((i,j)->{
-            Activo ai=m.activos.get(i), aj=m.activos.get(j);
-            double si = ai.sigma>1e-12? ai.retorno/ai.sigma : ai.retorno;
-            double sj = aj.sigma>1e-12? aj.retorno/aj.sigma : aj.retorno;
+            double si = in.sigma[i]>1e-12? in.retorno[i]/in.sigma[i] : in.retorno[i];
+            double sj = in.sigma[j]>1e-12? in.retorno[j]/in.sigma[j] : in.retorno[j];
             return Double.compare(sj, si);
         });
 
-        LinkedHashMap<String,Double> asig = new LinkedHashMap<>();
-        Map<String,Double> usoTipo   = new HashMap<>();
-        Map<String,Double> usoSector = new HashMap<>();
+        double[] montos    = new double[n];
+        double[] usoTipo   = new double[in.cantidadTipos()];
+        double[] usoSector = new double[in.cantidadSectores()];
+        int[] elegidos = new int[6];                  // en orden de inserción
 
-        double presupuestoRest = p.presupuesto;
+        double presupuestoRest = in.presupuesto;
         int distintos = 0;
-        double topePorActivoAbs = p.maxPorActivo * p.presupuesto;
 
         // 1) Agregar hasta 6 distintos (1× montoMin)
         for (int k=0; k<ord.size() && distintos < 6; k++){
-            Activo a = m.activos.get(ord.get(k));
-            double unit = a.montoMin;
+            int i = ord.get(k);
+            int t = in.tipo[i], s = in.sector[i];
+            double unit = in.montoMin[i];
 
             if (unit > presupuestoRest + 1e-9) continue;
-            if (unit > topePorActivoAbs + 1e-9) continue;
+            if (unit > in.topePorActivoAbs + 1e-9) continue;
 
-            double nuevoTipo   = usoTipo.getOrDefault(a.tipo,0.0) + unit;
-            double nuevoSector = usoSector.getOrDefault(a.sector,0.0) + unit;
-            double limTipo     = p.maxPorTipo.getOrDefault(a.tipo,1.0)*p.presupuesto;
-            double limSector   = p.maxPorSector.getOrDefault(a.sector,1.0)*p.presupuesto;
-            if (nuevoTipo - limTipo > 1e-9 || nuevoSector - limSector > 1e-9) continue;
+            double nuevoTipo   = usoTipo[t] + unit;
+            double nuevoSector = usoSector[s] + unit;
+            if (nuevoTipo - in.limTipo[t] > 1e-9 || nuevoSector - in.limSector[s] > 1e-9) continue;
 
             // aplicar
-            asig.put(a.ticker, unit);
-            usoTipo.put(a.tipo, nuevoTipo);
-            usoSector.put(a.sector, nuevoSector);
+            montos[i] = unit;
+            usoTipo[t] = nuevoTipo;
+            usoSector[s] = nuevoSector;
             presupuestoRest -= unit;
-            distintos++;
+            elegidos[distintos++] = i;
         }
 
         // asegurar mínimo 3
@@ -60,29 +62,23 @@ public final class SemillaFactible {
         }
 
         // validar riesgo (si se pasa, intentá quitar el último agregado hasta quedar factible)
-        Asignacion seed = new Asignacion(asig);
-        double sigma = CalculadoraRiesgo.riesgoCartera(m, seed, p.presupuesto);
-        while (sigma - p.riesgoMax > 1e-9 && distintos > 3) {
+        double sigma = in.riesgo(montos, elegidos, distintos);
+        while (sigma - in.riesgoMax > 1e-9 && distintos > 3) {
             // quitar el último
-            String lastTicker = null;
-            for (String t : asig.keySet()) lastTicker = t; // último por orden de inserción
-            if (lastTicker == null) break;
-            int idx = m.indexOf(lastTicker);
-            Activo a = m.activos.get(idx);
-            double unit = asig.remove(lastTicker);
+            int i = elegidos[--distintos];
+            double unit = montos[i];
+            montos[i] = 0.0;
             presupuestoRest += unit;
-            usoTipo.put(a.tipo, usoTipo.get(a.tipo) - unit);
-            usoSector.put(a.sector, usoSector.get(a.sector) - unit);
-            distintos--;
-            seed = new Asignacion(asig);
-            sigma = CalculadoraRiesgo.riesgoCartera(m, seed, p.presupuesto);
+            usoTipo[in.tipo[i]] -= unit;
+            usoSector[in.sector[i]] -= unit;
+            sigma = in.riesgo(montos, elegidos, distintos);
         }
 
         // revalida: si aún excede riesgo, no hay semilla factible que cumpla 3 mínimos
-        if (sigma - p.riesgoMax > 1e-9) {
+        if (sigma - in.riesgoMax > 1e-9) {
             throw new IllegalArgumentException("No se pudo construir semilla factible dentro del riesgo máximo.");
         }
 
-        return seed;
+        return in.asignacion(montos, Arrays.copyOf(elegidos, distintos));
     }
 }
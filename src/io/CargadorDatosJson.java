@@ -1,55 +1,175 @@
 package io;
 
-import com.google.gson.*;
-import io.dto.*;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.MalformedJsonException;
 import model.*;
 
+import java.io.EOFException;
 import java.io.IOException;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.*;
 import java.util.*;
 
+/**
+ * Carga el mercado.json (formato de {@link io.dto.MercadoJson}) en streaming con
+ * JsonReader: cada fila de correlaciones se lee directo a un double[] y se valida
+ * contra las filas anteriores al llegar (diagonal, simetría, rango), sin pasar por
+ * List&lt;List&lt;Double&gt;&gt; ni por el archivo entero en memoria. El pico de
+ * memoria es el de la matriz final (8·n² bytes) más una fila.
+ */
 public final class CargadorDatosJson {
     private CargadorDatosJson(){}
 
     public static Mercado cargarMercado(String rutaJson){
+        try (Reader r = Files.newBufferedReader(Path.of(rutaJson), StandardCharsets.UTF_8)) {
+            return cargarMercado(r);
+        } catch (IOException e){
+            throw new RuntimeException("No pude leer " + rutaJson, e);
+        }
+    }
+
+    /** Igual que {@link #cargarMercado(String)} desde un Reader (no lo cierra) */
+    public static Mercado cargarMercado(Reader fuente) throws IOException {
+        List<Activo> lista = null;
+        double[][] rho = null;
+        ModeloFactorial factores = null;
         try {
-            String json = Files.readString(Path.of(rutaJson));
-            MercadoJson mj = new Gson().fromJson(json, MercadoJson.class);
-
-            if (mj.activos == null || mj.activos.isEmpty())
-                throw new IllegalArgumentException("'activos' vacío");
-            if (mj.correlaciones == null || mj.correlaciones.isEmpty())
-                throw new IllegalArgumentException("'correlaciones' vacía");
-
-            int n = mj.activos.size();
-            if (mj.correlaciones.size() != n) throw new IllegalArgumentException("ρ no es n x n");
-            for (var fila : mj.correlaciones) if (fila.size() != n) throw new IllegalArgumentException("ρ no es n x n");
-
-            var lista = new ArrayList<Activo>(n);
-            var tickers = new HashSet<String>();
-            for (var a : mj.activos){
-                if (a.ticker == null || a.ticker.isBlank()) throw new IllegalArgumentException("ticker vacío");
-                if (!tickers.add(a.ticker)) throw new IllegalArgumentException("ticker duplicado: "+a.ticker);
-                lista.add(new Activo(a.ticker, a.tipo, a.sector, a.retorno, a.sigma, a.montoMin));
+            JsonReader r = new JsonReader(fuente);
+            r.beginObject();
+            while (r.hasNext()) {
+                switch (r.nextName()) {
+                    case "activos" -> lista = leerActivos(r);
+                    // si los activos vinieron antes se conoce n y cada fila se reserva justa
+                    case "correlaciones" -> rho = leerCorrelaciones(r, lista == null || lista.isEmpty() ? -1 : lista.size());
+                    case "factores" -> factores = leerFactores(r);
+                    default -> r.skipValue();
+                }
             }
+            r.endObject();
+        } catch (MalformedJsonException | EOFException | IllegalStateException | NumberFormatException e){
+            throw new RuntimeException("JSON inválido: " + e.getMessage(), e);
+        }
 
-            double[][] rho = new double[n][n];
-            for (int i=0;i<n;i++) for (int j=0;j<n;j++) rho[i][j] = mj.correlaciones.get(i).get(j);
+        if (lista == null || lista.isEmpty())
+            throw new IllegalArgumentException("'activos' vacío");
+        if (rho == null && factores != null) return new Mercado(lista, factores);
+        if (rho == null || rho.length == 0)
+            throw new IllegalArgumentException("'correlaciones' vacía");
+        if (rho.length != lista.size()) throw new IllegalArgumentException("ρ no es n x n");
+        return new Mercado(lista, rho);
+    }
 
-            // chequeos básicos
-            for (int i=0;i<n;i++){
-                if (Math.abs(rho[i][i]-1.0) > 1e-9) throw new IllegalArgumentException("ρ[i][i]!=1 en i="+i);
-                for (int j=i+1;j<n;j++){
-                    if (Math.abs(rho[i][j]-rho[j][i]) > 1e-9) throw new IllegalArgumentException("ρ no simétrica ("+i+","+j+")");
-                    if (rho[i][j] < -1.0 || rho[i][j] > 1.0) throw new IllegalArgumentException("ρ fuera de [-1,1] ("+i+","+j+")");
+    private static List<Activo> leerActivos(JsonReader r) throws IOException {
+        if (nulo(r)) return null;
+        var lista = new ArrayList<Activo>();
+        var tickers = new HashSet<String>();
+        r.beginArray();
+        while (r.hasNext()){
+            String ticker = null, tipo = null, sector = null;
+            double retorno = 0.0, sigma = 0.0, montoMin = 0.0;
+            r.beginObject();
+            while (r.hasNext()){
+                switch (r.nextName()) {
+                    case "ticker" -> ticker = texto(r);
+                    case "tipo" -> tipo = texto(r);
+                    case "sector" -> sector = texto(r);
+                    case "retorno" -> retorno = numero(r);
+                    case "sigma" -> sigma = numero(r);
+                    case "montoMin" -> montoMin = numero(r);
+                    default -> r.skipValue();
                 }
             }
+            r.endObject();
+            if (ticker == null || ticker.isBlank()) throw new IllegalArgumentException("ticker vacío");
+            if (!tickers.add(ticker)) throw new IllegalArgumentException("ticker duplicado: "+ticker);
+            lista.add(new Activo(ticker, tipo, sector, retorno, sigma, montoMin));
+        }
+        r.endArray();
+        return lista;
+    }
 
-            return new Mercado(lista, rho);
-        } catch (IOException e){
-            throw new RuntimeException("No pude leer " + rutaJson, e);
-        } catch (JsonSyntaxException e){
-            throw new RuntimeException("JSON inválido: " + e.getMessage(), e);
+    // n < 0: todavía no se conoce y lo fija la primera fila
+    private static double[][] leerCorrelaciones(JsonReader r, int n) throws IOException {
+        if (nulo(r)) return null;
+        double[][] rho = new double[Math.max(n, 0)][];
+        int i = 0;
+        r.beginArray();
+        while (r.hasNext()){
+            if (n >= 0 && i == n) throw new IllegalArgumentException("ρ no es n x n");
+            double[] fila = leerFila(r, n);
+            if (n < 0){
+                n = fila.length;
+                rho = new double[n][];
+            }
+            if (fila.length != n || n == 0) throw new IllegalArgumentException("ρ no es n x n");
+
+            // chequeos básicos, contra las filas ya leídas
+            if (Math.abs(fila[i]-1.0) > 1e-9) throw new IllegalArgumentException("ρ[i][i]!=1 en i="+i);
+            for (int j=0;j<i;j++)
+                if (Math.abs(fila[j]-rho[j][i]) > 1e-9) throw new IllegalArgumentException("ρ no simétrica ("+j+","+i+")");
+            for (int j=i+1;j<n;j++)
+                if (fila[j] < -1.0 || fila[j] > 1.0) throw new IllegalArgumentException("ρ fuera de [-1,1] ("+i+","+j+")");
+            rho[i++] = fila;
         }
+        r.endArray();
+        if (i == 0) return new double[0][];
+        if (i != n) throw new IllegalArgumentException("ρ no es n x n");
+        return rho;
+    }
+
+    private static ModeloFactorial leerFactores(JsonReader r) throws IOException {
+        if (nulo(r)) return null;
+        double[][] cargas = null;
+        double[] especifica = null;
+        r.beginObject();
+        while (r.hasNext()){
+            switch (r.nextName()) {
+                case "cargas" -> {
+                    if (nulo(r)) break;
+                    var filas = new ArrayList<double[]>();
+                    r.beginArray();
+                    while (r.hasNext()) filas.add(leerFila(r, -1));
+                    r.endArray();
+                    cargas = filas.toArray(new double[0][]);
+                }
+                case "especifica" -> especifica = nulo(r) ? null : leerFila(r, -1);
+                default -> r.skipValue();
+            }
+        }
+        r.endObject();
+        if (cargas == null) throw new IllegalArgumentException("'factores.cargas' no es n x k");
+        return new ModeloFactorial(cargas, especifica);
+    }
+
+    // Arreglo de números a double[]: de largo n exacto, o creciendo si n < 0
+    private static double[] leerFila(JsonReader r, int n) throws IOException {
+        double[] fila = new double[n >= 0 ? n : 16];
+        int c = 0;
+        r.beginArray();
+        while (r.hasNext()){
+            if (c == fila.length){
+                if (n >= 0) throw new IllegalArgumentException("ρ no es n x n");
+                fila = Arrays.copyOf(fila, 2 * c);
+            }
+            fila[c++] = r.nextDouble();
+        }
+        r.endArray();
+        return c == fila.length ? fila : Arrays.copyOf(fila, c);
+    }
+
+    private static boolean nulo(JsonReader r) throws IOException {
+        if (r.peek() != JsonToken.NULL) return false;
+        r.nextNull();
+        return true;
+    }
+
+    private static String texto(JsonReader r) throws IOException {
+        return nulo(r) ? null : r.nextString();
+    }
+
+    private static double numero(JsonReader r) throws IOException {
+        return nulo(r) ? 0.0 : r.nextDouble();
     }
 }
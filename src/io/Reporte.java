@@ -16,7 +16,7 @@ public final class Reporte {
         int cnt = 0;
         for (int i = 0; i < idx.size(); i++) {
             for (int j = i + 1; j < idx.size(); j++) {
-                sum += m.rho[idx.get(i)][idx.get(j)];
+                sum += m.correlacion(idx.get(i), idx.get(j));
                 cnt++;
             }
         }
@@ -0,0 +1,306 @@
+package io;
+
+import model.*;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.DoubleBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.util.*;
+import java.util.zip.CRC32;
+
+/**
+ * Snapshot binario de un Mercado ya validado, para arrancar sin parsear JSON ni
+ * revalidar los n² pares. Little-endian, en este orden:
+ * <pre>
+ *   cabecera (64 bytes)  magia "TPOM", versión, flags, n, k, cantidad de strings,
+ *                        offset del pool, offset del bloque, largo total, CRC32
+ *   activos (n x 40)     ids de ticker/tipo/sector en el pool (-1 = null), retorno, sigma, montoMin
+ *   pool de strings      por string: largo (int) y bytes UTF-8; tipos y sectores sin repetir
+ *   bloque (alineado a 8)
+ *       completo:        ρ por filas, n² doubles
+ *       triangular:      ρ_ij con i < j por filas, n(n-1)/2 doubles (diagonal 1)
+ *       factorial:       cargas n x k por filas y después d, n·(k+1) doubles
+ * </pre>
+ * El CRC32 cubre todo lo que sigue a la cabecera. {@link #leer} es un cargador
+ * rápido, no una vista: recorre el archivo una sola vez, mapeado con
+ * FileChannel.map por ventanas de hasta 1 GB (sin límite de tamaño), calcula el
+ * CRC de cada ventana al mapearla y copia el bloque a la matriz del Mercado en el
+ * heap, que ocupa lo mismo que cargada desde JSON. Cada JVM tiene su copia: los
+ * solvers densos trabajan sobre double[] del heap (rho y {@link Mercado#covarianza()}),
+ * así que compartir el page cache entre procesos no es un objetivo de este formato.
+ * El contenido no se revalida al leer: el snapshot se escribe desde un mercado
+ * validado y el CRC detecta cualquier alteración posterior; si no coincide no se
+ * devuelve nada.
+ */
+public final class SnapshotBinario {
+    private SnapshotBinario(){}
+
+    public static final int VERSION = 1;
+    public static final int TRIANGULAR = 1, FACTORIAL = 2;      // flags
+
+    private static final int MAGIA = 0x4D4F5054;                // "TPOM" en little-endian
+    private static final int CABECERA = 64, ACTIVO = 40;
+    private static final long VENTANA = 1L << 30;               // bytes mapeados a la vez al leer
+
+    /** Escribe m (que debe estar validado); triangular guarda solo ρ_ij con i < j */
+    public static void escribir(Mercado m, Path destino, boolean triangular) throws IOException {
+        try (Escritor w = new Escritor(destino, m.activos, triangular)) {
+            if (m.rho == null) w.factores(m.factores);
+            else for (double[] fila : m.rho) w.fila(fila);
+        }
+    }
+
+    /**
+     * Escritura fila por fila, para volcar un mercado sin tenerlo entero en memoria
+     * (generador, conversión de CSV). La cabecera se completa al cerrar, que falla si
+     * no llegaron las n filas (o los factores).
+     */
+    public static final class Escritor implements Closeable {
+        private final FileChannel canal;
+        private final ByteBuffer buf = ByteBuffer.allocateDirect(1 << 20).order(ByteOrder.LITTLE_ENDIAN);
+        private final CRC32 crc = new CRC32();
+        private final int n, cantidadStrings;
+        private final long offsetPool, offsetBloque;
+        private final boolean triangular;
+        private int filas, k;
+        private boolean factorial, cerrado;
+
+        public Escritor(Path destino, List<Activo> activos, boolean triangular) throws IOException {
+            this.n = activos.size();
+            this.triangular = triangular;
+            if (n == 0) throw new IllegalArgumentException("No hay activos");
+
+            // pool: cada string distinto una vez, en orden de aparición
+            Map<String, Integer> ids = new LinkedHashMap<>();
+            int[] tabla = new int[3 * n];
+            for (int i = 0; i < n; i++) {
+                Activo a = activos.get(i);
+                String[] s = {a.ticker, a.tipo, a.sector};
+                for (int c = 0; c < 3; c++) tabla[3 * i + c] = s[c] == null ? -1 : ids.computeIfAbsent(s[c], x -> ids.size());
+            }
+            this.cantidadStrings = ids.size();
+
+            canal = FileChannel.open(destino, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                    StandardOpenOption.TRUNCATE_EXISTING);
+            try {
+                canal.position(CABECERA);
+                for (int i = 0; i < n; i++) {
+                    Activo a = activos.get(i);
+                    espacio(ACTIVO);
+                    buf.putInt(tabla[3 * i]).putInt(tabla[3 * i + 1]).putInt(tabla[3 * i + 2]).putInt(0);
+                    buf.putDouble(a.retorno).putDouble(a.sigma).putDouble(a.montoMin);
+                }
+                offsetPool = CABECERA + (long) n * ACTIVO;
+                long pos = offsetPool;
+                for (String s : ids.keySet()) {
+                    byte[] b = s.getBytes(StandardCharsets.UTF_8);
+                    espacio(4);
+                    buf.putInt(b.length);
+                    for (int h = 0; h < b.length; ) {
+                        espacio(1);
+                        int c = Math.min(buf.remaining(), b.length - h);
+                        buf.put(b, h, c);
+                        h += c;
+                    }
+                    pos += 4 + b.length;
+                }
+                int relleno = (int) (-pos & 7);
+                espacio(relleno);
+                for (int h = 0; h < relleno; h++) buf.put((byte) 0);
+                offsetBloque = pos + relleno;
+            } catch (IOException | RuntimeException e) {
+                canal.close();
+                throw e;
+            }
+        }
+
+        /** La fila i de ρ (en orden, de largo n) */
+        public void fila(double[] fila) throws IOException {
+            if (factorial) throw new IllegalStateException("Ya se escribieron los factores");
+            if (filas == n) throw new IllegalStateException("Ya se escribieron las " + n + " filas");
+            if (fila.length != n) throw new IllegalArgumentException("ρ no es n x n (fila " + filas + ")");
+            for (int j = triangular ? filas + 1 : 0; j < n; j++) {
+                espacio(8);
+                buf.putDouble(fila[j]);
+            }
+            filas++;
+        }
+
+        /** El modelo factorial en lugar de las filas */
+        public void factores(ModeloFactorial f) throws IOException {
+            if (filas > 0 || factorial) throw new IllegalStateException("Ya se escribieron las correlaciones");
+            if (f.n != n) throw new IllegalArgumentException("El modelo factorial es de " + f.n + " activos, no " + n);
+            factorial = true;
+            k = f.k;
+            for (int i = 0; i < n; i++)
+                for (int c = 0; c < k; c++) {
+                    espacio(8);
+                    buf.putDouble(f.carga(i, c));
+                }
+            for (int i = 0; i < n; i++) {
+                espacio(8);
+                buf.putDouble(f.especifica(i));
+            }
+        }
+
+        @Override
+        public void close() throws IOException {
+            if (cerrado) return;
+            cerrado = true;
+            try (canal) {
+                if (!factorial && filas != n)
+                    throw new IllegalStateException("Faltan filas de ρ: " + filas + " de " + n);
+                vaciar();
+                long largo = canal.position();
+                ByteBuffer cab = ByteBuffer.allocate(CABECERA).order(ByteOrder.LITTLE_ENDIAN);
+                cab.putInt(MAGIA).putInt(VERSION).putInt(factorial ? FACTORIAL : triangular ? TRIANGULAR : 0)
+                   .putInt(n).putInt(k).putInt(cantidadStrings)
+                   .putLong(offsetPool).putLong(offsetBloque).putLong(largo)
+                   .putInt((int) crc.getValue());
+                cab.clear();
+                while (cab.hasRemaining()) canal.write(cab, cab.position());
+                canal.force(false);
+            }
+        }
+
+        private void espacio(int bytes) throws IOException {
+            if (buf.remaining() < bytes) vaciar();
+        }
+
+        private void vaciar() throws IOException {
+            buf.flip();
+            crc.update(buf.duplicate());
+            while (buf.hasRemaining()) canal.write(buf);
+            buf.clear();
+        }
+    }
+
+    /** true si el archivo empieza con la magia de un snapshot */
+    public static boolean es(Path origen) throws IOException {
+        try (FileChannel ch = FileChannel.open(origen, StandardOpenOption.READ)) {
+            ByteBuffer b = ByteBuffer.allocate(4).order(ByteOrder.LITTLE_ENDIAN);
+            while (b.hasRemaining() && ch.read(b) >= 0) { }
+            return !b.hasRemaining() && b.getInt(0) == MAGIA;
+        }
+    }
+
+    /** Lee un snapshot (verificando versión, tamaños y CRC) */
+    public static Mercado leer(Path origen) throws IOException {
+        return leer(origen, VENTANA);
+    }
+
+    // ventana: bytes mapeados a la vez del bloque (múltiplo de 8)
+    static Mercado leer(Path origen, long ventana) throws IOException {
+        try (FileChannel ch = FileChannel.open(origen, StandardOpenOption.READ)) {
+            long largo = ch.size();
+            if (largo < CABECERA) throw new IllegalArgumentException("Snapshot truncado: " + origen);
+            ByteBuffer b = ch.map(FileChannel.MapMode.READ_ONLY, 0, CABECERA).order(ByteOrder.LITTLE_ENDIAN);
+
+            if (b.getInt(0) != MAGIA) throw new IllegalArgumentException("No es un snapshot de mercado: " + origen);
+            int version = b.getInt(4);
+            if (version != VERSION) throw new IllegalArgumentException("Versión de snapshot no soportada: " + version);
+            int flags = b.getInt(8), n = b.getInt(12), k = b.getInt(16), cantidadStrings = b.getInt(20);
+            long offsetPool = b.getLong(24), offsetBloque = b.getLong(32), declarado = b.getLong(40);
+            int crcDeclarado = b.getInt(48);
+            if (declarado != largo) throw new IllegalArgumentException("Snapshot truncado: " + largo + " de " + declarado + " bytes");
+
+            boolean factorial = (flags & FACTORIAL) != 0, triangular = (flags & TRIANGULAR) != 0;
+            long doubles = factorial ? (long) n * (k + 1) : triangular ? (long) n * (n - 1) / 2 : (long) n * n;
+            if (n < 1 || k < 0 || cantidadStrings < 0 || offsetPool != CABECERA + (long) n * ACTIVO
+                    || offsetBloque < offsetPool || offsetBloque > Integer.MAX_VALUE || (offsetBloque & 7) != 0
+                    || offsetBloque + 8 * doubles != largo)
+                throw new IllegalArgumentException("Cabecera de snapshot inconsistente: " + origen);
+
+            // activos y pool (antes del bloque, menos de 2 GB por la cabecera); el CRC se
+            // acumula aquí y en el bloque, y se verifica antes de devolver el mercado
+            CRC32 crc = new CRC32();
+            b = ch.map(FileChannel.MapMode.READ_ONLY, 0, offsetBloque).order(ByteOrder.LITTLE_ENDIAN);
+            crc.update(b.slice(CABECERA, (int) offsetBloque - CABECERA));
+            String[] pool = new String[cantidadStrings];
+            int pos = (int) offsetPool;
+            for (int s = 0; s < cantidadStrings; s++) {
+                int len = pos + 4 <= offsetBloque ? b.getInt(pos) : -1;
+                if (len < 0 || len > offsetBloque - pos - 4) throw new IllegalArgumentException("Snapshot dañado (pool de strings): " + origen);
+                byte[] bytes = new byte[len];
+                b.get(pos + 4, bytes);
+                pool[s] = new String(bytes, StandardCharsets.UTF_8);
+                pos += 4 + len;
+            }
+
+            List<Activo> activos = new ArrayList<>(n);
+            for (int i = 0; i < n; i++) {
+                int p = CABECERA + i * ACTIVO;
+                activos.add(new Activo(string(pool, b.getInt(p)), string(pool, b.getInt(p + 4)), string(pool, b.getInt(p + 8)),
+                        b.getDouble(p + 16), b.getDouble(p + 24), b.getDouble(p + 32)));
+            }
+
+            Bloque d = new Bloque(ch, offsetBloque, largo, ventana, crc);
+            double[][] cargas = null, rho = null;
+            double[] especifica = null;
+            if (factorial) {
+                cargas = new double[n][k];
+                for (double[] fila : cargas) d.get(fila, 0, k);
+                especifica = new double[n];
+                d.get(especifica, 0, n);
+            } else {
+                rho = new double[n][n];
+                for (int i = 0; i < n; i++) {
+                    double[] fila = rho[i];
+                    if (!triangular) { d.get(fila, 0, n); continue; }
+                    for (int j = 0; j < i; j++) fila[j] = rho[j][i];
+                    fila[i] = 1.0;
+                    d.get(fila, i + 1, n - 1 - i);
+                }
+            }
+            // el bloque se leyó entero, así que el CRC ya cubre todo el archivo
+            if ((int) crc.getValue() != crcDeclarado) throw new IllegalArgumentException("CRC inválido en " + origen);
+            return factorial ? new Mercado(activos, new ModeloFactorial(cargas, especifica)) : new Mercado(activos, rho);
+        }
+    }
+
+    /**
+     * Doubles del bloque [desde, hasta) del archivo, mapeado por ventanas a medida
+     * que se leen; cada ventana se suma al CRC al mapearla
+     */
+    private static final class Bloque {
+        private final FileChannel canal;
+        private final long hasta, ventana;
+        private final CRC32 crc;
+        private long pos;
+        private DoubleBuffer d;
+
+        Bloque(FileChannel canal, long desde, long hasta, long ventana, CRC32 crc) {
+            this.canal = canal;
+            this.pos = desde;
+            this.hasta = hasta;
+            this.ventana = ventana;
+            this.crc = crc;
+        }
+
+        void get(double[] destino, int desde, int cantidad) throws IOException {
+            while (cantidad > 0) {
+                if (d == null || !d.hasRemaining()) {
+                    long t = Math.min(ventana, hasta - pos);
+                    ByteBuffer v = canal.map(FileChannel.MapMode.READ_ONLY, pos, t);
+                    crc.update(v.duplicate());
+                    d = v.order(ByteOrder.LITTLE_ENDIAN).asDoubleBuffer();
+                    pos += t;
+                }
+                int c = Math.min(cantidad, d.remaining());
+                d.get(destino, desde, c);
+                desde += c;
+                cantidad -= c;
+            }
+        }
+    }
+
+    private static String string(String[] pool, int id) {
+        if (id < -1 || id >= pool.length) throw new IllegalArgumentException("Id de string fuera del pool: " + id);
+        return id < 0 ? null : pool[id];
+    }
+}
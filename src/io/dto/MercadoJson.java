@@ -4,5 +4,11 @@ import java.util.List;
 
 public class MercadoJson {
     public List<ActivoJson> activos;          // mismo orden que la matriz
-    public List<List<Double>> correlaciones;  // n x n, diagonal 1.0, simétrica
+    public List<List<Double>> correlaciones;  // n x n, diagonal 1.0, simétrica (o null si hay factores)
+    public FactoresJson factores;             // opcional: correlaciones de bajo rango en lugar de la matriz
+
+    public static class FactoresJson {
+        public List<List<Double>> cargas;     // n x k, mismo orden que activos
+        public List<Double> especifica;       // opcional: n valores (si falta, 1 - |b_i|²)
+    }
 }
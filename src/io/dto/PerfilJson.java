@@ -0,0 +1,16 @@
+package io.dto;
+
+import java.util.Map;
+
+/** Una línea del JSONL de entrada del batch: un cliente y su perfil */
+public class PerfilJson {
+    public String id;                          // opcional; si falta se usa el número de línea
+    public double presupuesto;
+    public double maxPorActivo;
+    public Map<String, Double> maxPorTipo;     // opcional (fracciones 0..1)
+    public Map<String, Double> maxPorSector;   // opcional (fracciones 0..1)
+    public String tipoPerfil;
+    public double retornoDeseado;
+    public int plazoAnios;
+    public Double riesgoMax;                   // opcional: reemplaza el del tipo de perfil
+}
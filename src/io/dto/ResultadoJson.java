@@ -0,0 +1,18 @@
+package io.dto;
+
+import java.util.Map;
+
+/** Una línea del JSONL de salida del batch: la cartera óptima de un cliente o su error */
+public class ResultadoJson {
+    public String id;
+    public Long linea;                         // línea de entrada (solo en batch)
+    public boolean ok;
+    public String error;                       // solo si ok=false
+    public Double retorno, riesgo;
+    public Map<String, Double> montos;
+    public Boolean completo;
+    public Double cotaSuperior;
+    public Long nodos;
+    public Long esperaMs;                      // espera de admisión (solo en el servicio)
+    public long ms;
+}
@@ -0,0 +1,102 @@
+package model;
+
+import java.util.*;
+
+/**
+ * Asignación sobre un Mercado guardada en arreglos paralelos: índice de activo
+ * (del mercado) y monto, en orden de inserción, sin montos nulos ni índices
+ * repetidos. Es inmutable.
+ *
+ * Es la forma que usan los solvers internamente; {@link Asignacion} (mapa por
+ * ticker) queda para la entrada/salida: {@link #de} y {@link #aAsignacion}.
+ */
+public final class AsignacionCompacta {
+    public final Mercado mercado;
+    private final int[] indices;
+    private final double[] montos;
+    private volatile Asignacion asignacion;       // se arma en el primer aAsignacion()
+
+    /** Copia los primeros k pares (índice del mercado, monto); los montos nulos se descartan */
+    public AsignacionCompacta(Mercado m, int[] indices, double[] montos, int k) {
+        this.mercado = Objects.requireNonNull(m);
+        int[] idx = new int[k];
+        double[] mon = new double[k];
+        int c = 0;
+        for (int h = 0; h < k; h++) {
+            int i = indices[h];
+            double v = montos[h];
+            if (i < 0 || i >= m.activos.size()) throw new IllegalArgumentException("Índice de activo inválido: " + i);
+            if (!(v >= 0)) throw new IllegalArgumentException("Monto negativo en " + m.activos.get(i).ticker);
+            if (v == 0.0) continue;
+            for (int g = 0; g < c; g++)
+                if (idx[g] == i) throw new IllegalArgumentException("Activo repetido: " + m.activos.get(i).ticker);
+            idx[c] = i;
+            mon[c++] = v;
+        }
+        this.indices = c == k ? idx : Arrays.copyOf(idx, c);
+        this.montos = c == k ? mon : Arrays.copyOf(mon, c);
+    }
+
+    // Sin validar ni copiar: para Instancia, que ya parte de arreglos válidos
+    AsignacionCompacta(Mercado m, int[] indices, double[] montos) {
+        this.mercado = m;
+        this.indices = indices;
+        this.montos = montos;
+    }
+
+    /** Desde una asignación por ticker (todos deben existir en el mercado), en el mismo orden */
+    public static AsignacionCompacta de(Mercado m, Asignacion a) {
+        Map<String, Double> mapa = a.getMontos();
+        int[] idx = new int[mapa.size()];
+        double[] mon = new double[mapa.size()];
+        int k = 0;
+        for (Map.Entry<String, Double> e : mapa.entrySet()) {
+            int i = m.indexOf(e.getKey());
+            if (i < 0) throw new IllegalArgumentException("Ticker inexistente: " + e.getKey());
+            idx[k] = i;
+            mon[k++] = e.getValue();
+        }
+        AsignacionCompacta c = new AsignacionCompacta(m, idx, mon, k);
+        if (c.cantidad() == mapa.size()) c.asignacion = a;      // misma información: se reusa
+        return c;
+    }
+
+    /** Asignación por ticker equivalente (se arma una sola vez) */
+    public Asignacion aAsignacion() {
+        Asignacion a = asignacion;
+        if (a == null) {
+            LinkedHashMap<String, Double> mapa = new LinkedHashMap<>();
+            for (int h = 0; h < indices.length; h++) mapa.put(mercado.activos.get(indices[h]).ticker, montos[h]);
+            asignacion = a = new Asignacion(mapa);
+        }
+        return a;
+    }
+
+    /** Cantidad de activos con monto */
+    public int cantidad() { return indices.length; }
+
+    /** Índice en el mercado del h-ésimo activo */
+    public int indice(int h) { return indices[h]; }
+
+    /** Monto del h-ésimo activo */
+    public double monto(int h) { return montos[h]; }
+
+    public double totalInvertido() {
+        double s = 0.0;
+        for (double v : montos) s += v;
+        return s;
+    }
+
+    public double retorno(double presupuesto) {
+        return CalculadoraRetorno.retornoCartera(mercado, indices, montos, indices.length, presupuesto);
+    }
+
+    public double riesgo(double presupuesto) {
+        return CalculadoraRiesgo.riesgoCartera(mercado, indices, montos, indices.length, presupuesto);
+    }
+
+    @Override
+    public String toString() {
+        return aAsignacion().getMontos().toString();
+    }
+}
@@ -1,18 +1,27 @@
 package model;
 
+import java.util.Map;
+
 public final class CalculadoraRetorno {
     private CalculadoraRetorno(){}
 
     // Retorno esperado de la cartera en decimales (ej: 0.12 = 12%)
     // w_i = monto_i / presupuesto
+    // Recorre solo los tickers de la asignación (O(k)); los que el mercado no tiene no aportan.
     public static double retornoCartera(Mercado m, Asignacion a, double presupuesto){
-        int n = m.activos.size();
         double suma = 0.0;
-        for (int i = 0; i < n; i++){
-            var act = m.activos.get(i);
-            double w = a.monto(act.ticker) / presupuesto; // peso del activo
-            suma += w * act.retorno;
+        for (Map.Entry<String, Double> e : a.getMontos().entrySet()){
+            int i = m.indexOf(e.getKey());
+            if (i < 0) continue;
+            suma += (e.getValue() / presupuesto) * m.activos.get(i).retorno;
         }
         return suma;
     }
+
+    /** Mismo cálculo sobre los activos idx[0..k) (índices del mercado) con montos monto[0..k); O(k) */
+    public static double retornoCartera(Mercado m, int[] idx, double[] monto, int k, double presupuesto){
+        double suma = 0.0;
+        for (int a = 0; a < k; a++) suma += (monto[a] / presupuesto) * m.activos.get(idx[a]).retorno;
+        return suma;
+    }
 }
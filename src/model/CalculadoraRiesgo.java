@@ -1,33 +1,67 @@
 package model;
 
+import java.util.Map;
+
 public final class CalculadoraRiesgo {
     private CalculadoraRiesgo(){}
 
+    // Desvío estándar de la cartera: sqrt(w^T * (Dσ * ρ * Dσ) * w), w_i = monto_i / presupuesto.
+    // Recorre solo los tickers de la asignación (O(k²) con k activos en cartera, no O(n²));
+    // los tickers que el mercado no tiene no aportan, igual que un monto 0.
     public static double riesgoCartera(Mercado m, Asignacion a, double presupuesto) {
-        int n = m.activos.size();
-        double[] w = new double[n];
-        for (int i = 0; i < n; i++) {
-            var t = m.activos.get(i).ticker;
-            w[i] = a.monto(t) / presupuesto;
-        }
-        // w^T * (Dσ * ρ * Dσ) * w
-        // Primero v = (Dσ * w)
-        double[] v = new double[n];
-        for (int i = 0; i < n; i++) {
-            v[i] = m.activos.get(i).sigma * w[i];
+        Map<String, Double> montos = a.getMontos();
+        int[] idx = new int[montos.size()];
+        double[] monto = new double[montos.size()];
+        int k = 0;
+        for (Map.Entry<String, Double> e : montos.entrySet()) {
+            int i = m.indexOf(e.getKey());
+            if (i < 0 || e.getValue() == 0.0) continue;
+            idx[k] = i;
+            monto[k++] = e.getValue();
         }
-        // Luego u = ρ * v
-        double[] u = new double[n];
-        for (int i = 0; i < n; i++) {
+        return riesgoCartera(m, idx, monto, k, presupuesto);
+    }
+
+    /**
+     * Mismo cálculo sobre los activos idx[0..k) (índices del mercado, sin repetir)
+     * con montos monto[0..k). O(k²) y sin asignar memoria; O(k·factores) si el
+     * mercado es factorial.
+     */
+    public static double riesgoCartera(Mercado m, int[] idx, double[] monto, int k, double presupuesto) {
+        if (m.rho == null) return riesgoFactorial(m, idx, monto, k, presupuesto);
+        // v = Dσ * w sobre los elegidos; quad = v^T * ρ * v
+        double quad = 0.0;
+        for (int a = 0; a < k; a++) {
+            int i = idx[a];
+            double vi = m.activos.get(i).sigma * (monto[a] / presupuesto);
+            double[] fila = m.rho[i];
             double acc = 0.0;
-            for (int j = 0; j < n; j++) {
-                acc += m.rho[i][j] * v[j];
+            for (int b = 0; b < k; b++) {
+                acc += fila[idx[b]] * (m.activos.get(idx[b]).sigma * (monto[b] / presupuesto));
             }
-            u[i] = acc;
+            quad += vi * acc;
         }
-        // Finalmente v^T * u
+        return Math.sqrt(Math.max(0.0, quad));
+    }
+
+    // v'ρ̂v = sum_f (sum_a b_if·v_a)² + sum_a d_i·v_a², con ρ̂ = B·B' + diag(d)
+    private static double riesgoFactorial(Mercado m, int[] idx, double[] monto, int k, double presupuesto) {
+        ModeloFactorial F = m.factores;
+        int K = F.k;
         double quad = 0.0;
-        for (int i = 0; i < n; i++) quad += v[i] * u[i];
+        for (int f = 0; f < K; f++) {
+            double s = 0.0;
+            for (int a = 0; a < k; a++) {
+                int i = idx[a];
+                s += F.cargas[i * K + f] * (m.activos.get(i).sigma * (monto[a] / presupuesto));
+            }
+            quad += s * s;
+        }
+        for (int a = 0; a < k; a++) {
+            int i = idx[a];
+            double v = m.activos.get(i).sigma * (monto[a] / presupuesto);
+            quad += F.especifica[i] * v * v;
+        }
         return Math.sqrt(Math.max(0.0, quad));
     }
 }
@@ -0,0 +1,295 @@
+package model;
+
+import java.util.*;
+
+/**
+ * Representación compilada de un problema (Mercado + Perfil) para los algoritmos.
+ * Se construye una sola vez: los atributos de cada activo quedan en arreglos
+ * primitivos, tipo y sector pasan a ids enteros y los topes quedan indexados por
+ * esos ids, de modo que los bucles de búsqueda no hacen ninguna búsqueda por String.
+ *
+ * Una instancia puede cubrir solo parte del mercado ({@link #restringir(int[])});
+ * los índices de activo son siempre los propios de la instancia.
+ *
+ * Sobre un mercado factorial rho es null y las correlaciones salen de
+ * {@link #factores} ({@link #correlacion(int, int)} sirve para ambos casos).
+ */
+public final class Instancia {
+    public final Mercado mercado;
+    public final Perfil perfil;
+
+    public final int n;
+    public final String[] ticker;
+    public final double[] retorno, sigma, montoMin;
+    public final int[] tipo, sector;              // id de tipo / sector de cada activo
+    public final double[][] rho;                  // la del mercado (sin copiar) o la submatriz; null si es factorial
+    public final ModeloFactorial factores;        // el del mercado o el restringido; null si hay rho
+    public final int[] lotesMax;                  // lotes de montoMin que admiten los topes del activo
+    public final int[] indiceMercado;             // índice de cada activo en el mercado
+    private final Map<String,Integer> indice;
+    private volatile double[] covarianza;         // la del mercado o, si está restringida, la propia (a demanda)
+
+    public final String[] nombreTipo, nombreSector;
+    public final double[] limTipo, limSector;     // topes absolutos (moneda) por id
+
+    public final double presupuesto;
+    public final double riesgoMax;
+    public final double retornoRequerido;
+    public final double topePorActivoAbs;
+
+    public Instancia(Mercado m, Perfil p) {
+        this.mercado = Objects.requireNonNull(m);
+        this.perfil = Objects.requireNonNull(p);
+        this.n = m.activos.size();
+        this.rho = m.rho;
+        this.factores = m.factores;
+        this.indice = m.idxPorTicker;
+
+        this.presupuesto = p.getPresupuesto();
+        this.riesgoMax = p.getRiesgoMax();
+        this.retornoRequerido = Math.max(p.getRetornoMin(), p.getRetornoMinDeseado());
+        this.topePorActivoAbs = p.getMaxPorActivo() * presupuesto;
+
+        ticker = new String[n];
+        retorno = new double[n];
+        sigma = new double[n];
+        montoMin = new double[n];
+        tipo = new int[n];
+        sector = new int[n];
+
+        // ids en orden de primera aparición
+        Map<String,Integer> idTipo = new LinkedHashMap<>();
+        Map<String,Integer> idSector = new LinkedHashMap<>();
+        for (int i = 0; i < n; i++) {
+            Activo a = m.activos.get(i);
+            ticker[i] = a.ticker;
+            retorno[i] = a.retorno;
+            sigma[i] = a.sigma;
+            montoMin[i] = a.montoMin;
+            tipo[i] = idTipo.computeIfAbsent(a.tipo, k -> idTipo.size());
+            sector[i] = idSector.computeIfAbsent(a.sector, k -> idSector.size());
+        }
+
+        nombreTipo = idTipo.keySet().toArray(new String[0]);
+        nombreSector = idSector.keySet().toArray(new String[0]);
+
+        // sin tope explícito => 100% del presupuesto (igual que getOrDefault(..., 1.0))
+        limTipo = new double[nombreTipo.length];
+        for (int t = 0; t < limTipo.length; t++)
+            limTipo[t] = p.getMaxPorTipo().getOrDefault(nombreTipo[t], 1.0) * presupuesto;
+        limSector = new double[nombreSector.length];
+        for (int s = 0; s < limSector.length; s++)
+            limSector[s] = p.getMaxPorSector().getOrDefault(nombreSector[s], 1.0) * presupuesto;
+
+        indiceMercado = new int[n];
+        for (int i = 0; i < n; i++) indiceMercado[i] = i;
+        lotesMax = calcularLotesMax();
+    }
+
+    /** Subinstancia con los activos dados (índices de esta instancia), en ese orden */
+    private Instancia(Instancia base, int[] activos) {
+        this.mercado = base.mercado;
+        this.perfil = base.perfil;
+        this.n = activos.length;
+        this.presupuesto = base.presupuesto;
+        this.riesgoMax = base.riesgoMax;
+        this.retornoRequerido = base.retornoRequerido;
+        this.topePorActivoAbs = base.topePorActivoAbs;
+
+        // tipos y sectores conservan sus ids y topes
+        this.nombreTipo = base.nombreTipo;
+        this.nombreSector = base.nombreSector;
+        this.limTipo = base.limTipo;
+        this.limSector = base.limSector;
+
+        ticker = new String[n];
+        retorno = new double[n];
+        sigma = new double[n];
+        montoMin = new double[n];
+        tipo = new int[n];
+        sector = new int[n];
+        indiceMercado = new int[n];
+        rho = base.rho == null ? null : new double[n][n];
+        factores = base.factores == null ? null : base.factores.restringir(activos);
+        Map<String,Integer> idx = new HashMap<>();
+        for (int a = 0; a < n; a++) {
+            int i = activos[a];
+            ticker[a] = base.ticker[i];
+            retorno[a] = base.retorno[i];
+            sigma[a] = base.sigma[i];
+            montoMin[a] = base.montoMin[i];
+            tipo[a] = base.tipo[i];
+            sector[a] = base.sector[i];
+            indiceMercado[a] = base.indiceMercado[i];
+            if (rho != null) for (int b = 0; b < n; b++) rho[a][b] = base.rho[i][activos[b]];
+            if (idx.put(ticker[a], a) != null) throw new IllegalArgumentException("Activo repetido: " + ticker[a]);
+        }
+        this.indice = Collections.unmodifiableMap(idx);
+        lotesMax = calcularLotesMax();
+    }
+
+    /** Misma instancia limitada a los activos dados (índices de esta instancia) */
+    public Instancia restringir(int[] activos) {
+        return new Instancia(this, activos);
+    }
+
+    // Lotes enteros que entran en min(tope por activo, presupuesto, tope de su tipo, tope de su sector)
+    private int[] calcularLotesMax() {
+        int[] lm = new int[n];
+        for (int i = 0; i < n; i++) {
+            double cap = Math.min(Math.min(topePorActivoAbs, presupuesto), Math.min(limTipo[tipo[i]], limSector[sector[i]]));
+            lm[i] = cap < 0 ? 0 : (int) Math.floor(cap / montoMin[i] + 1e-9);
+        }
+        return lm;
+    }
+
+    /** Covarianza por filas (cov[i·n + j], índices de la instancia); ver {@link Mercado#covarianza()} */
+    public double[] covarianza() {
+        double[] c = covarianza;
+        if (c == null) {
+            if (rho == null) throw new IllegalStateException("Instancia factorial: sin matriz de covarianza densa");
+            if (rho == mercado.rho) {
+                c = mercado.covarianza();
+            } else {
+                c = new double[n * n];
+                for (int i = 0; i < n; i++)
+                    for (int j = 0; j < n; j++) c[i * n + j] = sigma[i] * sigma[j] * rho[i][j];
+            }
+            covarianza = c;
+        }
+        return c;
+    }
+
+    /**
+     * μ >= 0 con covarianza() + μI semidefinida. Es la del mercado (cacheada ahí),
+     * que también vale restringida: el menor autovalor de una submatriz principal
+     * no es menor que el de la matriz.
+     */
+    public double corrimiento() {
+        return mercado.corrimiento();
+    }
+
+    /** ρ_ij (de la matriz o del modelo factorial) */
+    public double correlacion(int i, int j) {
+        return rho != null ? rho[i][j] : factores.correlacion(i, j);
+    }
+
+    public int cantidadTipos()   { return nombreTipo.length; }
+    public int cantidadSectores() { return nombreSector.length; }
+
+    /** Índice del ticker en la instancia (-1 si no está) */
+    public int indexOf(String t) { return indice.getOrDefault(t, -1); }
+
+    /** Montos por índice de activo a partir de una asignación por ticker */
+    public double[] montos(Asignacion a) {
+        double[] montos = new double[n];
+        for (Map.Entry<String,Double> e : a.getMontos().entrySet()) {
+            int idx = indexOf(e.getKey());
+            if (idx < 0) throw new IllegalArgumentException("Ticker inexistente: " + e.getKey());
+            montos[idx] += e.getValue();
+        }
+        return montos;
+    }
+
+    /** Asignación por ticker con los montos positivos, en el orden de índices dado */
+    public Asignacion asignacion(double[] montos, int[] orden) {
+        LinkedHashMap<String,Double> map = new LinkedHashMap<>();
+        for (int i : orden) if (montos[i] > 0.0) map.put(ticker[i], montos[i]);
+        return new Asignacion(map);
+    }
+
+    /**
+     * Asignación compacta (índices del mercado) con los montos positivos de los
+     * activos sel[0..k), en ese orden (sel sin repetidos). O(k).
+     */
+    public AsignacionCompacta compacta(double[] montos, int[] sel, int k) {
+        int c = 0;
+        for (int h = 0; h < k; h++) if (montos[sel[h]] > 0.0) c++;
+        int[] idx = new int[c];
+        double[] mon = new double[c];
+        c = 0;
+        for (int h = 0; h < k; h++) {
+            int i = sel[h];
+            if (montos[i] <= 0.0) continue;
+            idx[c] = indiceMercado[i];
+            mon[c++] = montos[i];
+        }
+        return new AsignacionCompacta(mercado, idx, mon);
+    }
+
+    /** Retorno esperado (decimal) de los montos dados */
+    public double retorno(double[] montos) {
+        double suma = 0.0;
+        for (int i = 0; i < n; i++) {
+            if (montos[i] != 0.0) suma += (montos[i] / presupuesto) * retorno[i];
+        }
+        return suma;
+    }
+
+    /** Desvío estándar de la cartera (w^T Dσ ρ Dσ w)^(1/2), salteando montos nulos */
+    public double riesgo(double[] montos) {
+        if (rho == null) return riesgoFactorial(montos, null, n);
+        double quad = 0.0;
+        for (int i = 0; i < n; i++) {
+            if (montos[i] == 0.0) continue;
+            double vi = sigma[i] * (montos[i] / presupuesto);
+            double acc = 0.0;
+            double[] fila = rho[i];
+            for (int j = 0; j < n; j++) {
+                if (montos[j] == 0.0) continue;
+                acc += fila[j] * (sigma[j] * (montos[j] / presupuesto));
+            }
+            quad += vi * acc;
+        }
+        return Math.sqrt(Math.max(0.0, quad));
+    }
+
+    /** Retorno de los montos dados recorriendo solo los activos sel[0..k) (O(k)) */
+    public double retorno(double[] montos, int[] sel, int k) {
+        double suma = 0.0;
+        for (int h = 0; h < k; h++) suma += (montos[sel[h]] / presupuesto) * retorno[sel[h]];
+        return suma;
+    }
+
+    /**
+     * Riesgo de los montos dados recorriendo solo los activos sel[0..k), que deben
+     * ser distintos y cubrir todos los montos no nulos. O(k²) y sin asignar memoria.
+     */
+    public double riesgo(double[] montos, int[] sel, int k) {
+        if (rho == null) return riesgoFactorial(montos, sel, k);
+        double quad = 0.0;
+        for (int a = 0; a < k; a++) {
+            int i = sel[a];
+            double vi = sigma[i] * (montos[i] / presupuesto);
+            double acc = 0.0;
+            double[] fila = rho[i];
+            for (int b = 0; b < k; b++) {
+                int j = sel[b];
+                acc += fila[j] * (sigma[j] * (montos[j] / presupuesto));
+            }
+            quad += vi * acc;
+        }
+        return Math.sqrt(Math.max(0.0, quad));
+    }
+
+    // Con factores: v'ρ̂v = sum_f (sum_i b_if·v_i)² + sum_i d_i·v_i², O(k·elegidos) (sel null = todos)
+    private double riesgoFactorial(double[] montos, int[] sel, int cant) {
+        int K = factores.k;
+        double[] B = factores.cargas, d = factores.especifica;
+        double quad = 0.0;
+        for (int f = 0; f < K; f++) {
+            double s = 0.0;
+            for (int h = 0; h < cant; h++) {
+                int i = sel == null ? h : sel[h];
+                if (montos[i] != 0.0) s += B[i * K + f] * (sigma[i] * (montos[i] / presupuesto));
+            }
+            quad += s * s;
+        }
+        for (int h = 0; h < cant; h++) {
+            int i = sel == null ? h : sel[h];
+            double v = sigma[i] * (montos[i] / presupuesto);
+            quad += d[i] * v * v;
+        }
+        return Math.sqrt(Math.max(0.0, quad));
+    }
+}
@@ -0,0 +1,156 @@
+package model;
+
+/**
+ * Operaciones densas sobre una covarianza guardada por filas en un solo arreglo
+ * (cov[i·n + j] = σ_i·σ_j·ρ_ij, ver {@link Mercado#covarianza()}).
+ *
+ * Hay dos implementaciones: la escalar y una con la Vector API
+ * (jdk.incubator.vector). {@link #actual()} elige la vectorial si el módulo está
+ * cargado (java --add-modules jdk.incubator.vector) y el procesador tiene al menos
+ * 2 lanes de double; si no, o con -Dtpo.vectorial=false, la escalar. Ambas dan
+ * lo mismo salvo el orden de las sumas (diferencias de redondeo).
+ */
+public abstract class KernelRiesgo {
+
+    private static final KernelRiesgo ESCALAR = new KernelRiesgo() {
+        @Override public String nombre() { return "escalar"; }
+
+        @Override
+        public double punto(double[] a, int desdeA, double[] b, int desdeB, int largo) {
+            double s = 0.0;
+            for (int h = 0; h < largo; h++) s += a[desdeA + h] * b[desdeB + h];
+            return s;
+        }
+
+        @Override
+        void varianzas4(double[] cov, int n, double[] w0, double[] w1, double[] w2, double[] w3, double[] out, int desde) {
+            double v0 = 0.0, v1 = 0.0, v2 = 0.0, v3 = 0.0;
+            for (int i = 0; i < n; i++) {
+                int f = i * n;
+                double a0 = 0.0, a1 = 0.0, a2 = 0.0, a3 = 0.0;
+                for (int j = 0; j < n; j++) {
+                    double c = cov[f + j];
+                    a0 += c * w0[j];
+                    a1 += c * w1[j];
+                    a2 += c * w2[j];
+                    a3 += c * w3[j];
+                }
+                v0 += w0[i] * a0;
+                v1 += w1[i] * a1;
+                v2 += w2[i] * a2;
+                v3 += w3[i] * a3;
+            }
+            out[desde] = v0;
+            out[desde + 1] = v1;
+            out[desde + 2] = v2;
+            out[desde + 3] = v3;
+        }
+    };
+
+    private static final KernelRiesgo VECTORIAL = cargarVectorial();
+    private static final KernelRiesgo ACTUAL =
+            VECTORIAL != null && Boolean.parseBoolean(System.getProperty("tpo.vectorial", "true")) ? VECTORIAL : ESCALAR;
+
+    KernelRiesgo(){}
+
+    /** La implementación elegida al arrancar */
+    public static KernelRiesgo actual() { return ACTUAL; }
+
+    public static KernelRiesgo escalar() { return ESCALAR; }
+
+    /** La implementación con Vector API, o null si no está disponible en esta JVM */
+    public static KernelRiesgo vectorial() { return VECTORIAL; }
+
+    // La clase vectorial solo se carga si el módulo está presente: sin él, referenciarla fallaría
+    private static KernelRiesgo cargarVectorial() {
+        if (ModuleLayer.boot().findModule("jdk.incubator.vector").isEmpty()) return null;
+        try {
+            KernelRiesgo k = new KernelRiesgoVectorial();
+            return KernelRiesgoVectorial.lanes() >= 2 ? k : null;
+        } catch (LinkageError e) {
+            return null;
+        }
+    }
+
+    public abstract String nombre();
+
+    /** sum_h a[desdeA + h]·b[desdeB + h] para h en [0, largo) */
+    public abstract double punto(double[] a, int desdeA, double[] b, int desdeB, int largo);
+
+    /** out = cov·w */
+    public void producto(double[] cov, int n, double[] w, double[] out) {
+        for (int i = 0; i < n; i++) out[i] = punto(cov, i * n, w, 0, n);
+    }
+
+    /** w'·cov·w, salteando las filas con w_i = 0 */
+    public double varianza(double[] cov, int n, double[] w) {
+        double v = 0.0;
+        for (int i = 0; i < n; i++) {
+            if (w[i] == 0.0) continue;
+            v += w[i] * punto(cov, i * n, w, 0, n);
+        }
+        return v;
+    }
+
+    /**
+     * out[q] = ws[q]'·cov·ws[q] para q en [0, k). Recorre la matriz una vez por
+     * cada 4 carteras (cada fila se lee de memoria una vez para las 4), que es lo
+     * que limita con miles de activos.
+     */
+    public void varianzas(double[] cov, int n, double[][] ws, int k, double[] out) {
+        int q = 0;
+        for (; q + 4 <= k; q += 4) varianzas4(cov, n, ws[q], ws[q + 1], ws[q + 2], ws[q + 3], out, q);
+        for (; q < k; q++) out[q] = varianza(cov, n, ws[q]);
+    }
+
+    /** Las varianzas de 4 carteras en una pasada; deja los resultados en out[desde..desde+4) */
+    abstract void varianzas4(double[] cov, int n, double[] w0, double[] w1, double[] w2, double[] w3,
+                             double[] out, int desde);
+
+    /**
+     * μ >= 0 con cov + μI semidefinida, certificado por Cholesky. Si cov ya es
+     * definida positiva alcanza una factorización (μ = 0); si no, se biseca la
+     * mayor μ' con cov - μ'I definida positiva (cota inferior de λmin) hasta el 1%
+     * de |λmin| y se devuelve -μ' con un margen por redondeo. O(n³) por factorización.
+     */
+    public double corrimiento(double[] cov, int n) {
+        if (n == 0) return 0.0;
+        double lo = Double.POSITIVE_INFINITY, hi = Double.POSITIVE_INFINITY, escala = 0.0;
+        for (int i = 0; i < n; i++) {
+            double fuera = 0.0, d = cov[i * n + i];
+            for (int j = 0; j < n; j++) if (j != i) fuera += Math.abs(cov[i * n + j]);
+            lo = Math.min(lo, d - fuera);             // Gershgorin: λmin >= lo
+            hi = Math.min(hi, d);                     // λmin <= min diagonal
+            escala = Math.max(escala, d + fuera);
+        }
+        double margen = 1e-10 * Math.max(1.0, escala);
+        double[] L = new double[n * n];
+        if (definidaPositiva(cov, n, margen, L)) return 0.0;
+        hi = Math.min(hi, margen);
+        for (int it = 0; it < 60 && hi - lo > 0.01 * Math.abs(lo) + margen; it++) {
+            double mid = 0.5 * (lo + hi);
+            if (definidaPositiva(cov, n, mid, L)) lo = mid; else hi = mid;
+        }
+        return Math.max(0.0, margen - lo);
+    }
+
+    // Cholesky de cov - μI por filas: L[i][j] = (S[i][j] - <L_i, L_j>_{k<j}) / L[j][j]; false si un pivote no es positivo
+    private boolean definidaPositiva(double[] cov, int n, double mu, double[] L) {
+        for (int i = 0; i < n; i++) {
+            int fi = i * n;
+            for (int j = 0; j <= i; j++) {
+                double s = cov[fi + j] - (i == j ? mu : 0.0) - punto(L, fi, L, j * n, j);
+                if (i == j) {
+                    if (s <= 0.0) return false;
+                    L[fi + i] = Math.sqrt(s);
+                } else {
+                    L[fi + j] = s / L[j * n + j];
+                }
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public String toString() { return nombre(); }
+}
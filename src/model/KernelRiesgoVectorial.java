@@ -0,0 +1,63 @@
+package model;
+
+import jdk.incubator.vector.DoubleVector;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorSpecies;
+
+/** {@link KernelRiesgo} con la Vector API; solo se instancia si jdk.incubator.vector está cargado */
+final class KernelRiesgoVectorial extends KernelRiesgo {
+    private static final VectorSpecies<Double> E = DoubleVector.SPECIES_PREFERRED;
+
+    static int lanes() { return E.length(); }
+
+    @Override
+    public String nombre() { return "vectorial(" + E.length() + ")"; }
+
+    @Override
+    public double punto(double[] a, int desdeA, double[] b, int desdeB, int largo) {
+        DoubleVector acc = DoubleVector.zero(E);
+        int h = 0, tope = E.loopBound(largo);
+        for (; h < tope; h += E.length()) {
+            DoubleVector x = DoubleVector.fromArray(E, a, desdeA + h);
+            acc = x.fma(DoubleVector.fromArray(E, b, desdeB + h), acc);
+        }
+        double s = acc.reduceLanes(VectorOperators.ADD);
+        for (; h < largo; h++) s += a[desdeA + h] * b[desdeB + h];
+        return s;
+    }
+
+    @Override
+    void varianzas4(double[] cov, int n, double[] w0, double[] w1, double[] w2, double[] w3, double[] out, int desde) {
+        double v0 = 0.0, v1 = 0.0, v2 = 0.0, v3 = 0.0;
+        int tope = E.loopBound(n);
+        for (int i = 0; i < n; i++) {
+            int f = i * n;
+            DoubleVector a0 = DoubleVector.zero(E), a1 = a0, a2 = a0, a3 = a0;
+            int j = 0;
+            for (; j < tope; j += E.length()) {
+                DoubleVector c = DoubleVector.fromArray(E, cov, f + j);
+                a0 = c.fma(DoubleVector.fromArray(E, w0, j), a0);
+                a1 = c.fma(DoubleVector.fromArray(E, w1, j), a1);
+                a2 = c.fma(DoubleVector.fromArray(E, w2, j), a2);
+                a3 = c.fma(DoubleVector.fromArray(E, w3, j), a3);
+            }
+            double s0 = a0.reduceLanes(VectorOperators.ADD), s1 = a1.reduceLanes(VectorOperators.ADD);
+            double s2 = a2.reduceLanes(VectorOperators.ADD), s3 = a3.reduceLanes(VectorOperators.ADD);
+            for (; j < n; j++) {
+                double c = cov[f + j];
+                s0 += c * w0[j];
+                s1 += c * w1[j];
+                s2 += c * w2[j];
+                s3 += c * w3[j];
+            }
+            v0 += w0[i] * s0;
+            v1 += w1[i] * s1;
+            v2 += w2[i] * s2;
+            v3 += w3[i] * s3;
+        }
+        out[desde] = v0;
+        out[desde + 1] = v1;
+        out[desde + 2] = v2;
+        out[desde + 3] = v3;
+    }
+}
@@ -1,20 +1,156 @@
 package model;
 
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.util.*;
 
 public final class Mercado {
     public final List<Activo> activos;
-    public final double[][] rho;                  // matriz de correlaciones n x n
+    public final double[][] rho;                  // matriz de correlaciones n x n (null si es factorial)
+    public final ModeloFactorial factores;        // correlaciones de bajo rango (null si rho es exacta)
     public final Map<String,Integer> idxPorTicker;
+    private volatile String huella;               // se calcula en el primer uso
+    private volatile double[] covarianza;         // ídem
+    private volatile double correlacionMinima = Double.NaN;    // ídem
+    private volatile double corrimiento = Double.NaN;          // ídem
 
     public Mercado(List<Activo> activos, double[][] rho) {
+        this(activos, rho, null);
+    }
+
+    /**
+     * Mercado factorial: las correlaciones salen del modelo (O(n·k) en memoria,
+     * sin matriz n x n) y el riesgo se evalúa en O(n·k), u O(k·elegidos).
+     */
+    public Mercado(List<Activo> activos, ModeloFactorial factores) {
+        this(activos, null, Objects.requireNonNull(factores));
+        if (factores.n != this.activos.size())
+            throw new IllegalArgumentException("El modelo factorial es de " + factores.n + " activos, no " + this.activos.size());
+    }
+
+    private Mercado(List<Activo> activos, double[][] rho, ModeloFactorial factores) {
         this.activos = List.copyOf(activos);
         this.rho = rho;
+        this.factores = factores;
         var map = new HashMap<String,Integer>();
         for (int i = 0; i < activos.size(); i++) map.put(activos.get(i).ticker, i);
         this.idxPorTicker = Collections.unmodifiableMap(map);
     }
 
+    /** El mismo mercado con las correlaciones de k factores en lugar de rho (que debe estar) */
+    public Mercado factorial(int k) {
+        return new Mercado(activos, ModeloFactorial.desde(this, k));
+    }
+
+    /** ρ_ij exacta, o la del modelo factorial */
+    public double correlacion(int i, int j) {
+        return rho != null ? rho[i][j] : factores.correlacion(i, j);
+    }
+
+    /**
+     * SHA-256 (hex) del contenido: activos en orden con todos sus atributos y la
+     * matriz rho (o las cargas y la parte específica del modelo factorial). Se
+     * calcula una vez, así que rho no debe modificarse después.
+     */
+    public String huella() {
+        String h = huella;
+        if (h == null) huella = h = calcularHuella();
+        return h;
+    }
+
+    /**
+     * Covarianza σ_i·σ_j·ρ_ij por filas en un solo arreglo (cov[i·n + j]), para los
+     * recorridos densos ({@link KernelRiesgo}). Se arma una vez (8·n² bytes) y se
+     * comparte: no debe modificarse, igual que rho. Un mercado factorial no la tiene.
+     */
+    public double[] covarianza() {
+        double[] c = covarianza;
+        if (c == null) {
+            if (rho == null) throw new IllegalStateException("Mercado factorial: sin matriz de covarianza densa");
+            int n = activos.size();
+            c = new double[n * n];
+            for (int i = 0; i < n; i++) {
+                double si = activos.get(i).sigma;
+                double[] fila = rho[i];
+                for (int j = 0; j < n; j++) c[i * n + j] = si * activos.get(j).sigma * fila[j];
+            }
+            covarianza = c;
+        }
+        return c;
+    }
+
+    /**
+     * μ >= 0 con covarianza() + μI semidefinida ({@link KernelRiesgo#corrimiento});
+     * 0 si el mercado es factorial (ρ̂ es semidefinida por construcción). Se calcula
+     * una vez, con una sola factorización si la covarianza es definida positiva.
+     */
+    public double corrimiento() {
+        double c = corrimiento;
+        if (Double.isNaN(c)) {
+            c = rho == null ? 0.0 : KernelRiesgo.actual().corrimiento(covarianza(), activos.size());
+            corrimiento = c;
+        }
+        return c;
+    }
+
+    /**
+     * Menor ρ_ij entre activos distintos (0 con un solo activo). Se calcula una vez:
+     * O(n²) sobre la matriz u O(n²·k) sobre el modelo factorial.
+     */
+    public double correlacionMinima() {
+        double c = correlacionMinima;
+        if (Double.isNaN(c)) {
+            if (rho == null) {
+                c = factores.correlacionMinima();
+            } else {
+                int n = rho.length;
+                c = n < 2 ? 0.0 : Double.POSITIVE_INFINITY;
+                for (int i = 0; i < n; i++)
+                    for (int j = i + 1; j < n; j++) c = Math.min(c, rho[i][j]);
+            }
+            correlacionMinima = c;
+        }
+        return c;
+    }
+
+    private String calcularHuella() {
+        try {
+            MessageDigest md = MessageDigest.getInstance("SHA-256");
+            int n = activos.size();
+            ByteBuffer buf = ByteBuffer.allocate(8 * Math.max(3, rho != null ? n : factores.k + 1));
+            for (Activo a : activos) {
+                for (String s : new String[]{a.ticker, a.tipo, a.sector}) {
+                    byte[] b = String.valueOf(s).getBytes(StandardCharsets.UTF_8);
+                    md.update(ByteBuffer.allocate(4).putInt(b.length).array());
+                    md.update(b);
+                }
+                buf.clear();
+                buf.putDouble(a.retorno).putDouble(a.sigma).putDouble(a.montoMin);
+                md.update(buf.array(), 0, buf.position());
+            }
+            if (rho != null) {
+                for (double[] fila : rho) {
+                    buf.clear();
+                    for (double v : fila) buf.putDouble(v);
+                    md.update(buf.array(), 0, buf.position());
+                }
+            } else {
+                md.update("factores".getBytes(StandardCharsets.UTF_8));
+                for (int i = 0; i < n; i++) {
+                    buf.clear();
+                    for (int f = 0; f < factores.k; f++) buf.putDouble(factores.carga(i, f));
+                    buf.putDouble(factores.especifica(i));
+                    md.update(buf.array(), 0, buf.position());
+                }
+            }
+            return HexFormat.of().formatHex(md.digest());
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 no disponible", e);
+        }
+    }
+
     public int indexOf(String ticker){ return idxPorTicker.getOrDefault(ticker, -1); }
     /** Busca un activo por su ticker (retorna null si no existe) */
 public Activo buscarPorTicker(String ticker) {
@@ -0,0 +1,361 @@
+package model;
+
+import java.util.*;
+
+/**
+ * Correlaciones de bajo rango: ρ ≈ B·Bᵀ + diag(d), con B de n x k (cargas de
+ * cada activo sobre k factores) y d >= 0 la parte específica de cada activo.
+ * Ocupa O(n·k) en lugar de O(n²), cada ρ_ij cuesta O(k) y la forma cuadrática
+ * v'ρv de una cartera cuesta O(n·k), o O(k·elegidos) si es rala.
+ *
+ * Se arma desde una matriz exacta ({@link #desde(double[][], int)}: los k
+ * autovectores de mayor autovalor, con d_i = 1 - |b_i|² para que la diagonal
+ * siga siendo 1) o se carga directamente con {@link #ModeloFactorial(double[][], double[])}.
+ * Como d >= 0, B·Bᵀ + diag(d) es siempre semidefinida positiva.
+ */
+public final class ModeloFactorial {
+
+    /** Cuánto se aleja el modelo de la matriz exacta, para elegir k */
+    public static final class Error {
+        public final int k;
+        public final double maxAbs;           // max |ρ_ij - ρ̂_ij| fuera de la diagonal
+        public final double rms;              // raíz del error cuadrático medio fuera de la diagonal
+        public final double relativoFrobenius;   // ‖ρ - ρ̂‖_F / ‖ρ‖_F (diagonal incluida)
+        public final double explicada;        // sum |b_i|² / n: fracción de la varianza que explican los factores
+
+        Error(int k, double maxAbs, double rms, double relativoFrobenius, double explicada) {
+            this.k = k;
+            this.maxAbs = maxAbs;
+            this.rms = rms;
+            this.relativoFrobenius = relativoFrobenius;
+            this.explicada = explicada;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("k=%d maxAbs=%.4f rms=%.5f relFrobenius=%.4f explicada=%.1f%%",
+                    k, maxAbs, rms, relativoFrobenius, 100.0 * explicada);
+        }
+    }
+
+    private static final int MAX_ITER = 500;
+    private static final int SOBREMUESTREO = 8;      // columnas extra de la iteración de subespacio
+
+    public final int n, k;
+    final double[] cargas;          // n x k por filas: b_i = cargas[i·k .. i·k + k)
+    final double[] especifica;      // d_i
+
+    /** Cargas n x k y parte específica de cada activo (null = 1 - |b_i|², para que ρ_ii = 1) */
+    public ModeloFactorial(double[][] cargas, double[] especifica) {
+        this.n = cargas.length;
+        this.k = n == 0 ? 0 : cargas[0].length;
+        if (especifica != null && especifica.length != n)
+            throw new IllegalArgumentException("especifica debe tener " + n + " valores");
+        this.cargas = new double[n * k];
+        this.especifica = new double[n];
+        for (int i = 0; i < n; i++) {
+            if (cargas[i] == null || cargas[i].length != k)
+                throw new IllegalArgumentException("cargas no es n x k (fila " + i + ")");
+            double norma = 0.0;
+            for (int f = 0; f < k; f++) {
+                double b = cargas[i][f];
+                if (!Double.isFinite(b)) throw new IllegalArgumentException("carga no finita en (" + i + "," + f + ")");
+                this.cargas[i * k + f] = b;
+                norma += b * b;
+            }
+            double d = especifica == null ? Math.max(0.0, 1.0 - norma) : especifica[i];
+            if (!(d >= 0.0) || !Double.isFinite(d)) throw new IllegalArgumentException("especifica inválida en " + i + ": " + d);
+            this.especifica[i] = d;
+        }
+    }
+
+    private ModeloFactorial(int n, int k, double[] cargas, double[] especifica) {
+        this.n = n;
+        this.k = k;
+        this.cargas = cargas;
+        this.especifica = especifica;
+    }
+
+    /** El modelo de k factores de la matriz del mercado (que debe tenerla) */
+    public static ModeloFactorial desde(Mercado m, int k) {
+        if (m.rho == null) throw new IllegalArgumentException("El mercado no tiene la matriz de correlaciones exacta");
+        return desde(m.rho, k);
+    }
+
+    /**
+     * Los k pares (autovalor, autovector) dominantes de rho por iteración de
+     * subespacio (k + 8 columnas, Rayleigh-Ritz en cada paso) y b_i = u_i·sqrt(λ).
+     * Autovalores negativos (rho no semidefinida) no aportan carga. O(n²·k) por iteración.
+     */
+    public static ModeloFactorial desde(double[][] rho, int k) {
+        int n = rho.length;
+        if (k < 0 || k > n) throw new IllegalArgumentException("k fuera de [0, " + n + "]: " + k);
+        double[] cargas = new double[n * k];
+        if (k > 0) {
+            double[][] par = autovectores(rho, k);           // par[0] = autovalores, par[1 + f] = autovector f
+            for (int f = 0; f < k; f++) {
+                double s = Math.sqrt(Math.max(0.0, par[0][f]));
+                double[] u = par[1 + f];
+                for (int i = 0; i < n; i++) cargas[i * k + f] = u[i] * s;
+            }
+        }
+        double[] especifica = new double[n];
+        for (int i = 0; i < n; i++) especifica[i] = Math.max(0.0, 1.0 - normaCuadrado(cargas, i, k));
+        return new ModeloFactorial(n, k, cargas, especifica);
+    }
+
+    /**
+     * Errores de aproximación contra rho para cada k de la lista (los autovectores
+     * se calculan una sola vez, con el mayor k).
+     */
+    public static List<Error> errores(double[][] rho, int... ks) {
+        int kmax = 0;
+        for (int k : ks) kmax = Math.max(kmax, k);
+        ModeloFactorial completo = desde(rho, kmax);
+        List<Error> lista = new ArrayList<>(ks.length);
+        for (int k : ks) lista.add(completo.primeros(k).error(rho));
+        return lista;
+    }
+
+    /** Los primeros k factores de este modelo (d se recalcula como 1 - |b_i|²) */
+    public ModeloFactorial primeros(int k) {
+        if (k < 0 || k > this.k) throw new IllegalArgumentException("k fuera de [0, " + this.k + "]: " + k);
+        double[] c = new double[n * k];
+        double[] d = new double[n];
+        for (int i = 0; i < n; i++) {
+            System.arraycopy(cargas, i * this.k, c, i * k, k);
+            d[i] = Math.max(0.0, 1.0 - normaCuadrado(c, i, k));
+        }
+        return new ModeloFactorial(n, k, c, d);
+    }
+
+    /** Mismo modelo para los activos dados (índices de este modelo), en ese orden */
+    public ModeloFactorial restringir(int[] activos) {
+        double[] c = new double[activos.length * k];
+        double[] d = new double[activos.length];
+        for (int a = 0; a < activos.length; a++) {
+            System.arraycopy(cargas, activos[a] * k, c, a * k, k);
+            d[a] = especifica[activos[a]];
+        }
+        return new ModeloFactorial(activos.length, k, c, d);
+    }
+
+    public double carga(int i, int f) { return cargas[i * k + f]; }
+
+    public double especifica(int i) { return especifica[i]; }
+
+    /** ρ̂_ij = b_i·b_j (+ d_i si i = j) */
+    public double correlacion(int i, int j) {
+        double s = i == j ? especifica[i] : 0.0;
+        int fi = i * k, fj = j * k;
+        for (int f = 0; f < k; f++) s += cargas[fi + f] * cargas[fj + f];
+        return s;
+    }
+
+    /** |b_i|, para acotar ρ̂_ij >= -|b_i|·|b_j| (i != j) sin calcularla */
+    public double norma(int i) { return Math.sqrt(normaCuadrado(cargas, i, k)); }
+
+    /** min b_i·b_j sobre los pares i != j (0 si n < 2), en O(n²·k) */
+    public double correlacionMinima() {
+        double min = n < 2 ? 0.0 : Double.POSITIVE_INFINITY;
+        for (int i = 0; i < n; i++) {
+            int fi = i * k;
+            for (int j = i + 1; j < n; j++) {
+                int fj = j * k;
+                double s = 0.0;
+                for (int f = 0; f < k; f++) s += cargas[fi + f] * cargas[fj + f];
+                if (s < min) min = s;
+            }
+        }
+        return min;
+    }
+
+    /** v'ρ̂v = |Bᵀv|² + sum d_i·v_i², en O(n·k) */
+    public double formaCuadratica(double[] v) {
+        double q = 0.0;
+        for (int f = 0; f < k; f++) {
+            double s = 0.0;
+            for (int i = 0; i < n; i++) s += cargas[i * k + f] * v[i];
+            q += s * s;
+        }
+        for (int i = 0; i < n; i++) q += especifica[i] * v[i] * v[i];
+        return q;
+    }
+
+    /** out = ρ̂·v = B(Bᵀv) + d·v, en O(n·k); tmp es de largo >= k */
+    public void producto(double[] v, double[] out, double[] tmp) {
+        Arrays.fill(tmp, 0, k, 0.0);
+        for (int i = 0; i < n; i++) {
+            int fi = i * k;
+            for (int f = 0; f < k; f++) tmp[f] += cargas[fi + f] * v[i];
+        }
+        for (int i = 0; i < n; i++) {
+            int fi = i * k;
+            double s = especifica[i] * v[i];
+            for (int f = 0; f < k; f++) s += cargas[fi + f] * tmp[f];
+            out[i] = s;
+        }
+    }
+
+    /** Errores de este modelo contra la matriz exacta */
+    public Error error(double[][] rho) {
+        if (rho.length != n) throw new IllegalArgumentException("rho no es " + n + " x " + n);
+        double max = 0.0, suma2 = 0.0, frob2 = 0.0, dif2 = 0.0, explicada = 0.0;
+        for (int i = 0; i < n; i++) {
+            explicada += normaCuadrado(cargas, i, k);
+            for (int j = 0; j < n; j++) {
+                double e = rho[i][j] - correlacion(i, j);
+                frob2 += rho[i][j] * rho[i][j];
+                dif2 += e * e;
+                if (i != j) {
+                    max = Math.max(max, Math.abs(e));
+                    suma2 += e * e;
+                }
+            }
+        }
+        long fuera = (long) n * (n - 1);
+        return new Error(k, max, fuera == 0 ? 0.0 : Math.sqrt(suma2 / fuera),
+                frob2 == 0.0 ? 0.0 : Math.sqrt(dif2 / frob2), n == 0 ? 0.0 : Math.min(1.0, explicada / n));
+    }
+
+    private static double normaCuadrado(double[] cargas, int i, int k) {
+        double s = 0.0;
+        for (int f = 0; f < k; f++) s += cargas[i * k + f] * cargas[i * k + f];
+        return s;
+    }
+
+    /**
+     * Iteración de subespacio con p = min(n, k + SOBREMUESTREO) columnas: Z = ρQ,
+     * Rayleigh-Ritz sobre Z y se sigue con los vectores de Ritz. Para cuando los k
+     * primeros valores de Ritz se estabilizan. Devuelve los k mayores autovalores
+     * (en orden decreciente) y sus autovectores.
+     */
+    private static double[][] autovectores(double[][] rho, int k) {
+        int n = rho.length, p = Math.min(n, k + SOBREMUESTREO);
+        KernelRiesgo K = KernelRiesgo.actual();
+        Random rnd = new Random(1);
+        double[][] Q = new double[p][n];              // columnas del subespacio
+        for (double[] q : Q) for (int i = 0; i < n; i++) q[i] = rnd.nextGaussian();
+        ortonormalizar(Q, K);
+
+        double[][] Z = new double[p][n];
+        double[] ritz = new double[p], previo = new double[p];
+        Arrays.fill(previo, Double.NaN);
+        for (int it = 0; it < MAX_ITER; it++) {
+            for (int c = 0; c < p; c++)
+                for (int i = 0; i < n; i++) Z[c][i] = K.punto(rho[i], 0, Q[c], 0, n);
+            // Rayleigh-Ritz: T = QᵀρQ = QᵀZ (p x p), T = VΛVᵀ, Q <- ZV ortonormalizado
+            double[][] T = new double[p][p];
+            for (int a = 0; a < p; a++)
+                for (int b = 0; b <= a; b++) T[a][b] = T[b][a] = 0.5 * (K.punto(Q[a], 0, Z[b], 0, n) + K.punto(Q[b], 0, Z[a], 0, n));
+            double[][] V = jacobi(T, ritz);
+            double[][] nuevo = new double[p][n];
+            for (int c = 0; c < p; c++)
+                for (int a = 0; a < p; a++) {
+                    double v = V[a][c];
+                    if (v == 0.0) continue;
+                    double[] z = Z[a], q = nuevo[c];
+                    for (int i = 0; i < n; i++) q[i] += v * z[i];
+                }
+            ortonormalizar(nuevo, K);
+            Q = nuevo;
+
+            boolean estable = true;
+            for (int f = 0; f < k && estable; f++)
+                estable = Math.abs(ritz[f] - previo[f]) <= 1e-10 * Math.max(1.0, Math.abs(ritz[0]));
+            if (estable) break;
+            System.arraycopy(ritz, 0, previo, 0, p);
+        }
+        // Con Q ya convergido, los vectores de Ritz de la última pasada son los autovectores
+        for (int c = 0; c < p; c++)
+            for (int i = 0; i < n; i++) Z[c][i] = K.punto(rho[i], 0, Q[c], 0, n);
+        double[][] T = new double[p][p];
+        for (int a = 0; a < p; a++)
+            for (int b = 0; b <= a; b++) T[a][b] = T[b][a] = 0.5 * (K.punto(Q[a], 0, Z[b], 0, n) + K.punto(Q[b], 0, Z[a], 0, n));
+        double[][] V = jacobi(T, ritz);
+        double[][] res = new double[1 + k][];
+        res[0] = Arrays.copyOf(ritz, k);
+        for (int f = 0; f < k; f++) {
+            double[] u = new double[n];
+            for (int a = 0; a < p; a++) {
+                double v = V[a][f];
+                for (int i = 0; i < n; i++) u[i] += v * Q[a][i];
+            }
+            res[1 + f] = u;
+        }
+        return res;
+    }
+
+    /** Gram-Schmidt modificado (dos pasadas) sobre las filas de Q; una fila dependiente se reemplaza */
+    private static void ortonormalizar(double[][] Q, KernelRiesgo K) {
+        int n = Q[0].length;
+        for (int c = 0; c < Q.length; c++) {
+            double[] q = Q[c];
+            for (int intento = 0; ; intento++) {
+                for (int pasada = 0; pasada < 2; pasada++)
+                    for (int a = 0; a < c; a++) {
+                        double r = K.punto(Q[a], 0, q, 0, n);
+                        for (int i = 0; i < n; i++) q[i] -= r * Q[a][i];
+                    }
+                double norma = Math.sqrt(K.punto(q, 0, q, 0, n));
+                if (norma >= 1e-12 || intento == n) {
+                    for (int i = 0; i < n; i++) q[i] /= norma;
+                    break;
+                }
+                // ρQ perdió rango: cualquier dirección ortogonal a las anteriores sirve
+                Arrays.fill(q, 0.0);
+                q[(c + intento) % n] = 1.0;
+            }
+        }
+    }
+
+    /**
+     * Autovalores (en lambda, decrecientes) y autovectores (columnas de V) de una
+     * matriz simétrica chica por Jacobi cíclico. No modifica T.
+     */
+    private static double[][] jacobi(double[][] T, double[] lambda) {
+        int p = T.length;
+        double[][] A = new double[p][];
+        for (int a = 0; a < p; a++) A[a] = T[a].clone();
+        double[][] V = new double[p][p];
+        for (int a = 0; a < p; a++) V[a][a] = 1.0;
+        for (int barrido = 0; barrido < 100; barrido++) {
+            double fuera = 0.0;
+            for (int a = 0; a < p; a++) for (int b = a + 1; b < p; b++) fuera += A[a][b] * A[a][b];
+            if (fuera < 1e-30) break;
+            for (int a = 0; a < p; a++)
+                for (int b = a + 1; b < p; b++) {
+                    if (Math.abs(A[a][b]) < 1e-300) continue;
+                    double theta = (A[b][b] - A[a][a]) / (2.0 * A[a][b]);
+                    double t = Math.signum(theta) / (Math.abs(theta) + Math.sqrt(theta * theta + 1.0));
+                    if (theta == 0.0) t = 1.0;
+                    double c = 1.0 / Math.sqrt(t * t + 1.0), s = t * c;
+                    for (int r = 0; r < p; r++) {
+                        double ra = A[r][a], rb = A[r][b];
+                        A[r][a] = c * ra - s * rb;
+                        A[r][b] = s * ra + c * rb;
+                    }
+                    for (int r = 0; r < p; r++) {
+                        double ar = A[a][r], br = A[b][r];
+                        A[a][r] = c * ar - s * br;
+                        A[b][r] = s * ar + c * br;
+                    }
+                    for (int r = 0; r < p; r++) {
+                        double va = V[r][a], vb = V[r][b];
+                        V[r][a] = c * va - s * vb;
+                        V[r][b] = s * va + c * vb;
+                    }
+                }
+        }
+        // ordenar por autovalor decreciente
+        Integer[] orden = new Integer[p];
+        for (int a = 0; a < p; a++) orden[a] = a;
+        Arrays.sort(orden, (x, y) -> Double.compare(A[y][y], A[x][x]));
+        double[][] W = new double[p][p];
+        for (int c = 0; c < p; c++) {
+            lambda[c] = A[orden[c]][orden[c]];
+            for (int r = 0; r < p; r++) W[r][c] = V[r][orden[c]];
+        }
+        return W;
+    }
+}
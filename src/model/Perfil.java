@@ -1,5 +1,6 @@
 package model;
 
+import java.util.List;
 import java.util.Map;
 
 /**
@@ -8,6 +9,10 @@ import java.util.Map;
  */
 public final class Perfil {
 
+    /** Tipos de perfil reconocidos, de menor a mayor riesgo */
+    public static final List<String> TIPOS = List.of(
+            "Conservador", "Moderadamente conservador", "Moderado", "Moderadamente agresivo", "Agresivo");
+
     private final double presupuesto;
     private final double riesgoMax;               // sigma máximo permitido (decimal: 0.20 = 20%)
     private final double maxPorActivo;
@@ -46,27 +51,57 @@ public final class Perfil {
         this.tipoPerfil = tipoPerfil;
         this.plazoAnios = plazoAnios;
 
-        String t = tipoPerfil.trim().toLowerCase();
-        if (t.equals("conservador")) {
-            this.riesgoMax = 0.20;
-            this.retornoMin = 0.10;
-        } else if (t.equals("moderadamente conservador")) {
-            this.riesgoMax = 0.30;
-            this.retornoMin = 0.12;
-        } else if (t.equals("moderado")) {
-            this.riesgoMax = 0.40;
-            this.retornoMin = 0.14;
-        } else if (t.equals("moderadamente agresivo")) {
-            this.riesgoMax = 0.50;
-            this.retornoMin = 0.16;
-        } else if (t.equals("agresivo")) {
-            this.riesgoMax = 0.60;
-            this.retornoMin = 0.18;
-        } else {
-            throw new IllegalArgumentException("Tipo de perfil no reconocido: " + tipoPerfil);
+        this.riesgoMax = riesgoMaxDe(tipoPerfil);
+        this.retornoMin = retornoMinDe(tipoPerfil);
+        this.retornoMinDeseado = Math.max(retornoDeseado, this.retornoMin);
+    }
+
+    /** Copia del perfil con otro riesgo máximo (el resto, incluido el retorno mínimo, se conserva) */
+    private Perfil(Perfil base, double riesgoMax) {
+        this.presupuesto = base.presupuesto;
+        this.riesgoMax = riesgoMax;
+        this.maxPorActivo = base.maxPorActivo;
+        this.maxPorTipo = base.maxPorTipo;
+        this.maxPorSector = base.maxPorSector;
+        this.tipoPerfil = base.tipoPerfil;
+        this.retornoMin = base.retornoMin;
+        this.retornoMinDeseado = base.retornoMinDeseado;
+        this.plazoAnios = base.plazoAnios;
+    }
+
+    /** Mismo perfil con un riesgo máximo explícito (decimal), p. ej. para barrer la frontera eficiente */
+    public Perfil conRiesgoMax(double riesgoMax) {
+        if (!(riesgoMax > 0) || Double.isInfinite(riesgoMax))
+            throw new IllegalArgumentException("riesgoMax debe ser > 0: " + riesgoMax);
+        return new Perfil(this, riesgoMax);
+    }
+
+    /** Riesgo máximo (sigma) de un tipo de perfil */
+    public static double riesgoMaxDe(String tipoPerfil) {
+        switch (normalizar(tipoPerfil)) {
+            case "conservador":               return 0.20;
+            case "moderadamente conservador": return 0.30;
+            case "moderado":                  return 0.40;
+            case "moderadamente agresivo":    return 0.50;
+            case "agresivo":                  return 0.60;
+            default: throw new IllegalArgumentException("Tipo de perfil no reconocido: " + tipoPerfil);
         }
+    }
 
-        this.retornoMinDeseado = Math.max(retornoDeseado, this.retornoMin);
+    /** Retorno mínimo de un tipo de perfil */
+    public static double retornoMinDe(String tipoPerfil) {
+        switch (normalizar(tipoPerfil)) {
+            case "conservador":               return 0.10;
+            case "moderadamente conservador": return 0.12;
+            case "moderado":                  return 0.14;
+            case "moderadamente agresivo":    return 0.16;
+            case "agresivo":                  return 0.18;
+            default: throw new IllegalArgumentException("Tipo de perfil no reconocido: " + tipoPerfil);
+        }
+    }
+
+    private static String normalizar(String tipoPerfil) {
+        return tipoPerfil.trim().toLowerCase();
     }
 
     // --- Getters públicos para usar en App.java y otros módulos ---
@@ -1,8 +1,9 @@
 package optimizacion;
 
 import model.*;
-import validacion.ValidadorAsignacion;
 import java.util.*;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.Consumer;
 
 public final class BBPortafolio {
 
@@ -10,137 +11,217 @@ public final class BBPortafolio {
         public final Asignacion mejor;
         public final double retorno;
         public final double riesgo;
-        public final int nodosVisitados;
-        public Resultado(Asignacion a, double r, double s, int nv){
-            this.mejor=a; this.retorno=r; this.riesgo=s; this.nodosVisitados=nv;
+        public final long nodosVisitados;
+        public final long[] nodosPorWorker;   // nodos de cada worker del pool (uno solo si es secuencial)
+        public final boolean completo;        // false si se cortó por tiempo o nodos
+        public final double cotaSuperior;     // ningún portafolio factible supera este retorno
+        public final TablaTransposicion.Estadisticas tabla;   // null si no se usó tabla de transposición
+        public final MetricasBusqueda metricas;   // contadores de la búsqueda (null en los avisos de alMejorar)
+        public Resultado(Asignacion a, double r, double s, long nv){
+            this(a, r, s, nv, new long[]{nv});
+        }
+        public Resultado(Asignacion a, double r, double s, long nv, long[] porWorker){
+            this(a, r, s, nv, porWorker, true, r);
+        }
+        public Resultado(Asignacion a, double r, double s, long nv, long[] porWorker, boolean completo, double cotaSuperior){
+            this(a, r, s, nv, porWorker, completo, cotaSuperior, null);
+        }
+        public Resultado(Asignacion a, double r, double s, long nv, long[] porWorker, boolean completo, double cotaSuperior,
+                         TablaTransposicion.Estadisticas tabla){
+            this(a, r, s, nv, porWorker, completo, cotaSuperior, tabla, null);
+        }
+        public Resultado(Asignacion a, double r, double s, long nv, long[] porWorker, boolean completo, double cotaSuperior,
+                         TablaTransposicion.Estadisticas tabla, MetricasBusqueda metricas){
+            this.mejor=a; this.retorno=r; this.riesgo=s; this.nodosVisitados=nv; this.nodosPorWorker=porWorker;
+            this.completo=completo; this.cotaSuperior=cotaSuperior; this.tabla=tabla; this.metricas=metricas;
+        }
+
+        /** Brecha de optimalidad probada: cotaSuperior - retorno (0 si la búsqueda terminó) */
+        public double gap(){ return Math.max(0.0, cotaSuperior - retorno); }
+    }
+
+    /**
+     * Recorrido del árbol:
+     * - PROFUNDIDAD: DFS (iterativo si es secuencial, en tareas ForkJoin si es paralelo)
+     * - MEJOR_PRIMERO: expande el nodo abierto de mayor cota; al llegar a
+     *   memoriaMaxNodos nodos abiertos sigue con DFS. Exacta, como PROFUNDIDAD.
+     * - HAZ: conserva anchoHaz nodos por profundidad. Aproximada (completo=false
+     *   si descartó algo), con cotaSuperior válida.
+     */
+    public enum Estrategia { PROFUNDIDAD, MEJOR_PRIMERO, HAZ }
+
+    /**
+     * Opciones de la búsqueda.
+     * - paralelismo: cantidad de workers del ForkJoinPool (1 = secuencial, en el hilo que llama)
+     * - determinista: con varios workers devuelve el mismo óptimo y el mismo desempate
+     *   que la corrida secuencial (entre carteras de igual retorno gana la primera del DFS)
+     * - tiempoMaximoMs / nodosMaximos: al alcanzarse se devuelve el incumbente con
+     *   completo=false y la cota de lo que quedó sin explorar (0 = sin límite).
+     *   Una búsqueda cortada depende del momento del corte, aun en modo determinista.
+     * - alMejorar: recibe cada nueva mejor cartera (desde el worker que la encontró);
+     *   su cotaSuperior es la de la raíz y nodosVisitados lo descontado hasta ese momento
+     *   (las mejoras quedan además en Resultado.metricas y como eventos JFR)
+     * - estrategia, memoriaMaxNodos, anchoHaz: ver {@link Estrategia}; las
+     *   alternativas a PROFUNDIDAD son secuenciales
+     * - tablaTransposicion: capacidad (en estados) de la tabla que corta ramas
+     *   dominadas, con desalojo LRU (0 = sin tabla). Sus contadores van en Resultado.tabla
+     * - cotaContinua: si la búsqueda queda incompleta, la cotaSuperior se ajusta
+     *   además con la relajación continua ({@link MarkowitzContinuo}). Con plazo se
+     *   calcula antes de buscar, con a lo sumo una décima del plazo, que se descuenta
+     *   del de la búsqueda
+     * - presolve: busca sobre el universo de {@link Presolve} (sin activos inusables
+     *   ni dominados); con empates el óptimo puede ser otra cartera de igual retorno
+     */
+    public static final class Opciones {
+        public int paralelismo = 1;
+        public boolean determinista = true;
+        public long tiempoMaximoMs = 0;
+        public long nodosMaximos = 0;
+        public Consumer<Resultado> alMejorar = null;
+        public Estrategia estrategia = Estrategia.PROFUNDIDAD;
+        public int memoriaMaxNodos = 1_000_000;
+        public int anchoHaz = 64;
+        public int tablaTransposicion = 0;
+        public boolean cotaContinua = false;
+        public boolean presolve = true;
+
+        public Opciones(){}
+        public Opciones(int paralelismo){ this.paralelismo = paralelismo; }
+        public Opciones(Opciones o){
+            this.paralelismo = o.paralelismo; this.determinista = o.determinista;
+            this.tiempoMaximoMs = o.tiempoMaximoMs; this.nodosMaximos = o.nodosMaximos;
+            this.alMejorar = o.alMejorar; this.estrategia = o.estrategia;
+            this.memoriaMaxNodos = o.memoriaMaxNodos; this.anchoHaz = o.anchoHaz;
+            this.tablaTransposicion = o.tablaTransposicion; this.cotaContinua = o.cotaContinua;
+            this.presolve = o.presolve;
         }
     }
 
     private BBPortafolio(){}
 
     public static Resultado maximizarRetorno(Mercado m, Perfil p){
-        final int n = m.activos.size();
-
-        // Semilla inicial con Greedy
-        Asignacion best = heuristicas.GreedyInicial.construir(m, p);
-        double bestRet  = CalculadoraRetorno.retornoCartera(m, best, p.presupuesto);
-        double bestRisk = CalculadoraRiesgo.riesgoCartera(m, best, p.presupuesto);
-
-        // Orden de exploración: retorno puro (más agresivo imposible)
-        List<Activo> orden = new ArrayList<>(m.activos);
-        orden.sort((a1, a2) -> Double.compare(a2.retorno, a1.retorno));
-
-        // Estado mutable
-        LinkedHashMap<String,Double> asig = new LinkedHashMap<>();
-        Map<String,Double> usoTipo   = new HashMap<>();
-        Map<String,Double> usoSector = new HashMap<>();
-
-        int[] nodos = new int[]{0};
-        backtrack(0, m, p, orden, asig, p.presupuesto, usoTipo, usoSector,
-                  new double[]{bestRet}, new Asignacion[]{best}, new double[]{bestRisk}, nodos);
-
-        return new Resultado(best, bestRet, bestRisk, nodos[0]);
+        return maximizarRetorno(new Instancia(m, p));
     }
 
-    private static void backtrack(int k, Mercado m, Perfil p, List<Activo> ord,
-                                  LinkedHashMap<String,Double> asig, double presupuestoRest,
-                                  Map<String,Double> usoTipo, Map<String,Double> usoSector,
-                                  double[] bestRet, Asignacion[] best, double[] bestRisk, int[] nodos) {
-        nodos[0]++;
-
-        if (k == ord.size() || presupuestoRest < 1e-6) {
-            evaluarYActualizar(m, p, asig, bestRet, best, bestRisk);
-            return;
-        }
+    public static Resultado maximizarRetorno(Mercado m, Perfil p, Opciones op){
+        return maximizarRetorno(new Instancia(m, p), op);
+    }
 
-        // Bound optimista: retorno parcial + fraccional puro
-        double ub = boundOptimista(m, p, ord, k, asig, usoTipo, usoSector, presupuestoRest);
-        if (ub <= bestRet[0] + 1e-12) return;
+    public static Resultado maximizarRetorno(Instancia in){
+        return maximizarRetorno(in, new Opciones());
+    }
 
-        Activo act = ord.get(k);
-        double topeActivoAbs = p.maxPorActivo * p.presupuesto;
-        double unit = act.montoMin;
+    public static Resultado maximizarRetorno(Instancia in, Opciones op){
+        return maximizarRetorno(in, op, null);
+    }
 
-        int qmax = (int)Math.floor(Math.min(presupuestoRest, topeActivoAbs) / unit);
+    /** alIniciar recibe el incumbente antes de empezar la búsqueda, para ofrecerle soluciones de afuera */
+    static Resultado maximizarRetorno(Instancia completa, Opciones op, Consumer<Incumbente> alIniciar){
+        if (op.paralelismo < 1) throw new IllegalArgumentException("paralelismo debe ser >= 1");
+        if (op.paralelismo > 1 && op.estrategia != Estrategia.PROFUNDIDAD)
+            throw new IllegalArgumentException("La búsqueda paralela solo admite la estrategia PROFUNDIDAD");
+        if (op.memoriaMaxNodos < 1 || op.anchoHaz < 1)
+            throw new IllegalArgumentException("memoriaMaxNodos y anchoHaz deben ser >= 1");
+        if (op.tablaTransposicion < 0) throw new IllegalArgumentException("tablaTransposicion debe ser >= 0");
+        // sin los activos inusables o dominados; las soluciones salen con índices del mercado
+        final Instancia in = op.presolve ? Presolve.reducir(completa).instancia : completa;
+        final int n = in.n;
 
-        for (int q = qmax; q >= 0; q--) {
-            double delta = q * unit;
+        // Semilla inicial con Greedy
+        Asignacion best = heuristicas.GreedyInicial.construir(in);
+        double[] montosBest = in.montos(best);
+        double bestRet  = in.retorno(montosBest);
+        double bestRisk = in.riesgo(montosBest);
 
-            if (delta < 1e-9) {
-                backtrack(k+1, m, p, ord, asig, presupuestoRest, usoTipo, usoSector, bestRet, best, bestRisk, nodos);
-                continue;
+        // Orden de exploración: retorno puro (más agresivo imposible)
+        Integer[] tmp = new Integer[n];
+        for (int i = 0; i < n; i++) tmp[i] = i;
+        Arrays.sort(tmp, (i1, i2) -> Double.compare(in.retorno[i2], in.retorno[i1]));
+        int[] orden = new int[n];
+        for (int i = 0; i < n; i++) orden[i] = tmp[i];
+
+        long inicio = System.nanoTime();
+        EventosJfr.EventoBusqueda evento = new EventosJfr.EventoBusqueda();
+        evento.begin();
+
+        ControlBusqueda control = new ControlBusqueda(op.tiempoMaximoMs, op.nodosMaximos);
+        // con plazo la cota continua no puede esperar al final: corre ya, dentro del plazo
+        double cotaContinua = op.cotaContinua && op.tiempoMaximoMs > 0
+                ? MarkowitzContinuo.cotaSuperior(in, Math.max(1, op.tiempoMaximoMs / 10)) : Double.POSITIVE_INFINITY;
+        double[] cotaRaiz = {Double.POSITIVE_INFINITY};
+        List<MetricasBusqueda.Mejora> mejoras = Collections.synchronizedList(new ArrayList<>());
+        Consumer<Incumbente.Solucion> alMejorar = sol -> {
+            long t = System.nanoTime() - inicio, nv = control.nodos();
+            mejoras.add(new MetricasBusqueda.Mejora(t, sol.retorno, nv));
+            EventosJfr.mejora(sol.retorno, sol.riesgo, nv, t);
+            if (op.alMejorar != null)
+                op.alMejorar.accept(new Resultado(sol.asignacion.aAsignacion(), sol.retorno, sol.riesgo, nv, new long[0], false, cotaRaiz[0]));
+        };
+        Incumbente inc = new Incumbente(new Incumbente.Solucion(AsignacionCompacta.de(in.mercado, best), bestRet, bestRisk, null), op.determinista, alMejorar);
+        TablaTransposicion tabla = op.tablaTransposicion > 0 ? new TablaTransposicion(op.tablaTransposicion) : null;
+        Busqueda b = new Busqueda(in, orden, inc, control, tabla);
+        cotaRaiz[0] = Math.max(bestRet, b.cotaSufijoAjustada(0, in.presupuesto));
+        if (alIniciar != null) alIniciar.accept(inc);
+
+        long[] porWorker;
+        if (op.paralelismo == 1) {
+            switch (op.estrategia) {
+                case MEJOR_PRIMERO: Recorridos.mejorPrimero(b, op.memoriaMaxNodos); break;
+                case HAZ:           Recorridos.haz(b, op.anchoHaz); break;
+                default:            b.profundidadIterativa(0, in.presupuesto);
             }
-
-            double nuevoTipo   = usoTipo.getOrDefault(act.tipo, 0.0) + delta;
-            double nuevoSector = usoSector.getOrDefault(act.sector, 0.0) + delta;
-            double limTipo     = p.maxPorTipo.getOrDefault(act.tipo, 1.0)*p.presupuesto;
-            double limSector   = p.maxPorSector.getOrDefault(act.sector,1.0)*p.presupuesto;
-            if (nuevoTipo > limTipo + 1e-9 || nuevoSector > limSector + 1e-9) continue;
-
-            double prevActual = asig.getOrDefault(act.ticker, 0.0);
-            asig.put(act.ticker, prevActual + delta);
-            usoTipo.put(act.tipo, nuevoTipo);
-            usoSector.put(act.sector, nuevoSector);
-
-            // 🚨 Sin poda por riesgo aquí → explora igual
-            backtrack(k+1, m, p, ord, asig, presupuestoRest - delta,
-                      usoTipo, usoSector, bestRet, best, bestRisk, nodos);
-
-            // Deshacer
-            if (prevActual <= 1e-12 && delta > 0) {
-                asig.remove(act.ticker);
-            } else {
-                asig.put(act.ticker, prevActual);
+            porWorker = new long[]{b.nodos};
+        } else {
+            ForkJoinPool pool = new ForkJoinPool(op.paralelismo);
+            try {
+                porWorker = b.backtrackParalelo(pool);
+            } finally {
+                pool.shutdown();
             }
-            usoTipo.put(act.tipo, nuevoTipo - delta);
-            usoSector.put(act.sector, nuevoSector - delta);
         }
-    }
-
-    private static double boundOptimista(Mercado m, Perfil p, List<Activo> ord, int k,
-                                         Map<String,Double> asig,
-                                         Map<String,Double> usoTipo, Map<String,Double> usoSector,
-                                         double presupuestoRest) {
-        double retParcial = 0.0;
-        for (Map.Entry<String,Double> e : asig.entrySet()) {
-            int idx = m.indexOf(e.getKey());
-            double w = e.getValue() / p.presupuesto;
-            retParcial += w * m.activos.get(idx).retorno;
+        long total = 0;
+        for (long c : porWorker) total += c;
+
+        Incumbente.Solucion sol = inc.actual();
+        // Cortada o no, si ningún subárbol quedó pendiente el árbol se recorrió entero
+        double pendiente = control.cotaPendiente();
+        boolean completo = pendiente == Double.NEGATIVE_INFINITY;
+        if (!completo && op.cotaContinua)
+            pendiente = Math.min(pendiente, op.tiempoMaximoMs > 0 ? cotaContinua : MarkowitzContinuo.cotaSuperior(in));
+        double cota = Math.max(sol.retorno, pendiente);
+
+        MetricasBusqueda metricas;
+        synchronized (mejoras) {
+            metricas = new MetricasBusqueda(b.contadores(), System.nanoTime() - inicio, mejoras);
         }
-
-        double retExtra = 0.0;
-        double resto = presupuestoRest;
-
-        for (int i=k;i<ord.size() && resto>1e-9;i++){
-            Activo a = ord.get(i);
-            double limTipoRest   = p.maxPorTipo.getOrDefault(a.tipo, 1.0)*p.presupuesto - usoTipo.getOrDefault(a.tipo, 0.0);
-            double limSectorRest = p.maxPorSector.getOrDefault(a.sector,1.0)*p.presupuesto - usoSector.getOrDefault(a.sector,0.0);
-            double topeActivo    = p.maxPorActivo * p.presupuesto;
-
-            double cap = Math.max(0.0, Math.min(Math.min(resto, topeActivo), Math.min(limTipoRest, limSectorRest)));
-            if (cap <= 1e-12) continue;
-
-            double w = cap / p.presupuesto;
-            retExtra += w * a.retorno;
-            resto -= cap;
-        }
-        return retParcial + retExtra;
+        registrar(evento, in, op, metricas, sol.retorno, cota, completo);
+        return new Resultado(sol.asignacion.aAsignacion(), sol.retorno, sol.riesgo, total,
+                porWorker, completo, cota, tabla == null ? null : tabla.estadisticas(), metricas);
     }
 
-    private static void evaluarYActualizar(Mercado m, Perfil p,
-                                           Map<String,Double> asig,
-                                           double[] bestRet, Asignacion[] best, double[] bestRisk){
-        Asignacion a = new Asignacion(asig);
-        try {
-            ValidadorAsignacion.validar(m, p, a);
-            double r = CalculadoraRetorno.retornoCartera(m, a, p.presupuesto);
-            double risk = CalculadoraRiesgo.riesgoCartera(m, a, p.presupuesto);
-
-            if (risk <= p.riesgoMax + 1e-9 && r > bestRet[0] + 1e-12) {
-                bestRet[0]  = r;
-                best[0]     = a;
-                bestRisk[0] = risk;
-            }
-        } catch (IllegalArgumentException ignore) {}
+    private static void registrar(EventosJfr.EventoBusqueda e, Instancia in, Opciones op, MetricasBusqueda m,
+                                  double retorno, double cota, boolean completo) {
+        e.end();
+        if (!e.shouldCommit()) return;
+        e.activos = in.n;
+        e.estrategia = op.estrategia.name();
+        e.paralelismo = op.paralelismo;
+        e.nodos = m.nodos;
+        e.nodosPorProfundidad = m.perfilProfundidad();
+        e.podasCota = m.podasCota;
+        e.podasPresupuesto = m.podasPresupuesto;
+        e.podasRiesgo = m.podasRiesgo;
+        e.podasTransposicion = m.podasTransposicion;
+        e.podasTopeTipo = m.podasTopeTipo;
+        e.podasTopeSector = m.podasTopeSector;
+        e.hojas = m.hojas;
+        e.hojasRechazadas = m.hojasRechazadas;
+        e.nanosCota = m.nanosCota;
+        e.nanosHojas = m.nanosHojas;
+        e.mejoras = m.mejoras.size();
+        e.retorno = retorno;
+        e.cotaSuperior = cota;
+        e.completo = completo;
+        e.commit();
     }
 }
@@ -0,0 +1,609 @@
+package optimizacion;
+
+import model.*;
+import validacion.ValidadorAsignacion;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.concurrent.RecursiveAction;
+
+import static validacion.ValidadorAsignacion.MAX_ACTIVOS;
+import static validacion.ValidadorAsignacion.MIN_ACTIVOS;
+
+/**
+ * Estado mutable de una búsqueda Branch & Bound sobre una {@link Instancia}.
+ * Lleva el retorno parcial acumulado a lo largo de la recursión y resuelve la
+ * cota fraccional del sufijo con tablas precalculadas, así el costo por nodo
+ * no depende ni de la profundidad ni del tamaño del universo.
+ *
+ * También mantiene la forma cuadrática del riesgo de forma incremental
+ * (v = σ·w sobre los activos elegidos; u = ρ·v se obtiene de ellos) para podar
+ * ramas cuya varianza mínima alcanzable ya supera riesgoMax².
+ *
+ * La cantidad de activos (3..6) se usa durante la búsqueda: con 6 elegidos la
+ * rama pasa directo a la hoja, se poda si ya no se pueden alcanzar 3 y la cota
+ * del sufijo respeta los lugares libres, los lotes de montoMin y los topes
+ * restantes por tipo/sector.
+ *
+ * Para la búsqueda paralela cada worker usa su propia copia del estado de la
+ * rama ({@link #Busqueda(Busqueda)} comparte las tablas, que son inmutables) y
+ * todas podan contra el mismo {@link Incumbente}.
+ *
+ * Si el {@link ControlBusqueda} se detiene (tiempo o nodos), cada nodo que
+ * llega a ramificar deja registrada su cota en vez de expandirse.
+ *
+ * Con una {@link TablaTransposicion} se cortan también las ramas dominadas por
+ * otra que llegó al mismo estado con más retorno.
+ *
+ * Cada copia cuenta nodos por profundidad, podas por motivo y hojas en sus
+ * propios {@link ContadoresBusqueda}; {@link #contadores()} da el total.
+ */
+final class Busqueda {
+    final Instancia in;
+    final int[] ord;                 // orden de exploración (índices de activo)
+    final Incumbente incumbente;     // compartido entre workers
+    final ControlBusqueda control;   // límites compartidos entre workers
+    final TablaTransposicion tabla;  // null = sin tabla de transposición
+
+    // Tablas del sufijo: activos de ord ordenados por retorno descendente
+    private final double[] prefRet;  // prefRet[j] = sum_{h<j} retorno[ord[h]]
+    private final int finPositivos;  // ord[finPositivos..] tienen retorno <= 0
+    private final double[][] sumaMinMonto; // [f][j] = suma de los f montoMin más chicos en ord[j..]
+    private final double[] sigmaMaxSuf;   // max sigma en ord[j..]
+    private final double[] rhoMinSuf;     // min(0, min rho entre pares de ord[j..]); con factores, una cota inferior
+    private final double varianzaMax;
+    private final double varianzaCertificada;  // riesgoMax² sin tolerancia
+
+    // Estado de la rama actual
+    final double[] montos;
+    final double[] usoTipo, usoSector;
+    double retParcial;
+    double varianza;                 // v'ρv de la rama actual
+    final int[] sel;                 // activos con monto > 0, en orden de elección
+    final double[] vSel;             // v = σ·w de cada elegido
+    private final int[] posSel;      // profundidad en la que se eligió
+    private final double[] minSel;   // min σ_j·ρ_j,sel en el sufijo posterior (NaN = sin calcular)
+    int cantSel;
+    final int[] lotes;               // lotes elegidos en cada profundidad (camino DFS)
+
+    long nodos;                      // nodos visitados por esta copia
+    private long controlados;        // nodos ya descontados del control
+    final ContadoresBusqueda cont;   // contadores de esta copia
+
+    // Reparto en tareas ForkJoin (null = búsqueda secuencial)
+    private ConcurrentHashMap<Integer, Long> nodosPorWorker;
+    private ContadoresBusqueda total;     // suma de los contadores de todas las tareas
+
+    Busqueda(Instancia in, int[] ord, Incumbente incumbente, ControlBusqueda control, TablaTransposicion tabla) {
+        this.in = in;
+        this.ord = ord;
+        this.incumbente = incumbente;
+        this.control = control;
+        this.tabla = tabla;
+        int n = ord.length;
+
+        prefRet = new double[n + 1];
+        int fin = n;
+        for (int j = 0; j < n; j++) {
+            double r = in.retorno[ord[j]];
+            prefRet[j + 1] = prefRet[j] + r;
+            if (r <= 0.0 && fin == n) fin = j;
+        }
+        finPositivos = fin;
+
+        // Menores montoMin del sufijo para saber si todavía se llega al mínimo de activos
+        sumaMinMonto = new double[MIN_ACTIVOS + 1][n + 1];
+        double[] menores = new double[MIN_ACTIVOS];
+        java.util.Arrays.fill(menores, Double.POSITIVE_INFINITY);
+        for (int f = 1; f <= MIN_ACTIVOS; f++) sumaMinMonto[f][n] = Double.POSITIVE_INFINITY;
+        for (int j = n - 1; j >= 0; j--) {
+            double mm = in.montoMin[ord[j]];
+            for (int f = 0; f < MIN_ACTIVOS; f++) {
+                if (mm < menores[f]) { double tmp = menores[f]; menores[f] = mm; mm = tmp; }
+            }
+            double acc = 0.0;
+            for (int f = 1; f <= MIN_ACTIVOS; f++) {
+                acc += menores[f - 1];
+                sumaMinMonto[f][j] = acc;
+            }
+        }
+
+        // Para acotar d'Σd en el sufijo sin suponer ρ semidefinida. Con factores no se
+        // recorren los pares (O(n²·k)): b_i·b_h >= -|b_i|·max|b_h|, y nunca menos que
+        // el mínimo del mercado, que se calcula una vez por Mercado
+        sigmaMaxSuf = new double[n + 1];
+        rhoMinSuf = new double[n + 1];
+        double rhoMinMercado = in.rho == null ? in.mercado.correlacionMinima() : 0.0, normaMaxSuf = 0.0;
+        for (int j = n - 1; j >= 0; j--) {
+            int i = ord[j];
+            sigmaMaxSuf[j] = Math.max(sigmaMaxSuf[j + 1], in.sigma[i]);
+            double minFila = 0.0;
+            if (in.rho != null) {
+                double[] fila = in.rho[i];
+                for (int h = j + 1; h < n; h++) minFila = Math.min(minFila, fila[ord[h]]);
+            } else {
+                double norma = in.factores.norma(i);
+                minFila = Math.min(0.0, Math.max(-norma * normaMaxSuf, rhoMinMercado));
+                normaMaxSuf = Math.max(normaMaxSuf, norma);
+            }
+            rhoMinSuf[j] = Math.min(rhoMinSuf[j + 1], minFila);
+        }
+        double tol = in.riesgoMax + 1e-9;
+        varianzaMax = tol * tol;
+        varianzaCertificada = in.riesgoMax * in.riesgoMax;
+        sel = new int[n];
+        vSel = new double[n];
+        posSel = new int[n];
+        minSel = new double[n];
+        lotes = new int[n];
+
+        montos = new double[in.n];
+        usoTipo = new double[in.cantidadTipos()];
+        usoSector = new double[in.cantidadSectores()];
+        cont = new ContadoresBusqueda(n + 1);
+    }
+
+    /** Copia del estado de la rama para otro worker; las tablas del sufijo se comparten */
+    Busqueda(Busqueda b) {
+        in = b.in;
+        ord = b.ord;
+        incumbente = b.incumbente;
+        control = b.control;
+        tabla = b.tabla;
+        prefRet = b.prefRet;
+        finPositivos = b.finPositivos;
+        sumaMinMonto = b.sumaMinMonto;
+        sigmaMaxSuf = b.sigmaMaxSuf;
+        rhoMinSuf = b.rhoMinSuf;
+        varianzaMax = b.varianzaMax;
+        varianzaCertificada = b.varianzaCertificada;
+        nodosPorWorker = b.nodosPorWorker;
+        total = b.total;
+        cont = new ContadoresBusqueda(ord.length + 1);
+
+        montos = b.montos.clone();
+        usoTipo = b.usoTipo.clone();
+        usoSector = b.usoSector.clone();
+        retParcial = b.retParcial;
+        varianza = b.varianza;
+        sel = b.sel.clone();
+        vSel = b.vSel.clone();
+        posSel = b.posSel.clone();
+        minSel = b.minSel.clone();
+        cantSel = b.cantSel;
+        lotes = b.lotes.clone();
+    }
+
+    /**
+     * Recorre el árbol repartiendo subárboles en tareas de un ForkJoinPool.
+     * Devuelve los nodos visitados por cada worker (índice del pool).
+     */
+    long[] backtrackParalelo(java.util.concurrent.ForkJoinPool pool) {
+        nodosPorWorker = new ConcurrentHashMap<>();
+        total = new ContadoresBusqueda(ord.length + 1);
+        pool.invoke(new Tarea(this, 0, in.presupuesto));
+        int max = -1;
+        for (int w : nodosPorWorker.keySet()) max = Math.max(max, w);
+        long[] porWorker = new long[max + 1];
+        nodosPorWorker.forEach((w, c) -> porWorker[w] = c);
+        return porWorker;
+    }
+
+    /** Subárbol de la búsqueda paralela: corre backtrack sobre su propia copia del estado */
+    @SuppressWarnings("serial")     // RecursiveAction es Serializable, pero una Tarea nunca se serializa
+    private static final class Tarea extends RecursiveAction {
+        private final Busqueda b;
+        private final int k;
+        private final double presupuestoRest;
+
+        Tarea(Busqueda b, int k, double presupuestoRest) {
+            this.b = b;
+            this.k = k;
+            this.presupuestoRest = presupuestoRest;
+        }
+
+        @Override
+        protected void compute() {
+            b.backtrack(k, presupuestoRest);
+            int w = ((ForkJoinWorkerThread) Thread.currentThread()).getPoolIndex();
+            b.nodosPorWorker.merge(w, b.nodos, Long::sum);
+            b.total.sumar(b.cont);
+        }
+    }
+
+    void backtrack(int k, double presupuestoRest) {
+        double ub = visitar(k, presupuestoRest);
+        if (Double.isNaN(ub)) return;
+
+        // Búsqueda detenida por tiempo o nodos: el subárbol queda pendiente con su cota
+        if (detener()) {
+            control.registrarPendiente(ub);
+            return;
+        }
+
+        double unit = in.montoMin[ord[k]];
+        int qmax = lotesMaximos(k, presupuestoRest);
+
+        if (convieneDividir(k)) {
+            dividir(k, presupuestoRest, qmax);
+            return;
+        }
+
+        double retPrevio = retParcial;
+        double varPrevia = varianza;
+        for (int q = qmax; q >= 0; q--) {
+            if (!aplicar(k, q)) continue;
+            backtrack(k+1, presupuestoRest - q * unit);
+            deshacer(k, retPrevio, varPrevia);
+        }
+    }
+
+    /**
+     * Mismo recorrido que backtrack(k, presupuestoRest) pero con una pila explícita
+     * por profundidad, así la profundidad del árbol no depende del stack del hilo.
+     */
+    void profundidadIterativa(int k0, double presupuesto0) {
+        double ub = visitar(k0, presupuesto0);
+        if (Double.isNaN(ub)) return;
+        if (detener()) {
+            control.registrarPendiente(ub);
+            return;
+        }
+        expandirIterativo(k0, presupuesto0);
+    }
+
+    /** Recorre los hijos de un nodo ya visitado (y sus subárboles) sin recursión */
+    void expandirIterativo(int k0, double presupuesto0) {
+        int n = ord.length;
+        int[] qSig = new int[n];            // próximo q a probar en cada profundidad (+1)
+        double[] rest = new double[n];
+        double[] retPrevio = new double[n];
+        double[] varPrevia = new double[n];
+
+        int k = k0;
+        rest[k] = presupuesto0;
+        retPrevio[k] = retParcial;
+        varPrevia[k] = varianza;
+        qSig[k] = lotesMaximos(k, presupuesto0) + 1;
+
+        while (k >= k0) {
+            deshacer(k, retPrevio[k], varPrevia[k]);     // hijo anterior (no-op si fue q = 0)
+            int q = --qSig[k];
+            if (q < 0) { k--; continue; }
+            if (!aplicar(k, q)) continue;
+
+            double r = rest[k] - q * in.montoMin[ord[k]];
+            double cub = visitar(k + 1, r);
+            if (Double.isNaN(cub)) continue;
+            if (detener()) {
+                control.registrarPendiente(cub);
+                continue;
+            }
+            k++;
+            rest[k] = r;
+            retPrevio[k] = retParcial;
+            varPrevia[k] = varianza;
+            qSig[k] = lotesMaximos(k, r) + 1;
+        }
+    }
+
+    /**
+     * Visita un nodo: lo cuenta, evalúa las hojas y aplica las podas. Devuelve la
+     * cota del subárbol si hay que ramificarlo, o NaN si ya quedó resuelto.
+     */
+    double visitar(int k, double presupuestoRest) {
+        boolean muestra = (++nodos & ContadoresBusqueda.MUESTREO) == 0;
+        cont.nodosPorProfundidad[k]++;
+
+        // Con MAX_ACTIVOS elegidos el resto del sufijo solo puede ir en 0
+        if (k == ord.length || presupuestoRest < 1e-6 || cantSel == MAX_ACTIVOS) {
+            long t0 = muestra ? System.nanoTime() : 0L;
+            evaluarYActualizar();
+            if (muestra) cont.nanosHojasMuestra += System.nanoTime() - t0;
+            return Double.NaN;
+        }
+
+        // Poda por cardinalidad mínima: faltan activos y no alcanzan el sufijo o el presupuesto
+        int faltan = MIN_ACTIVOS - cantSel;
+        if (faltan > 0 && sumaMinMonto[faltan][k] > presupuestoRest + 1e-9) {
+            cont.podasPresupuesto++;
+            return Double.NaN;
+        }
+
+        // Bound optimista: retorno parcial + fraccional puro (O(1)), y si no alcanza
+        // para podar, la cota con lugares libres, lotes y topes por tipo/sector.
+        // Tampoco sirve una rama que no llega al retorno mínimo exigido.
+        long t0 = muestra ? System.nanoTime() : 0L;
+        double ub = retParcial + cotaSufijo(k, presupuestoRest);
+        boolean poda = podar(ub, k);
+        if (!poda) {
+            ub = Math.min(ub, retParcial + cotaSufijoAjustada(k, presupuestoRest));
+            poda = podar(ub, k);
+        }
+        if (muestra) cont.nanosCotaMuestra += System.nanoTime() - t0;
+        if (poda) {
+            cont.podasCota++;
+            return Double.NaN;
+        }
+
+        // Poda por riesgo (solo si la varianza parcial ya excede el máximo)
+        if (varianza > varianzaMax && varianzaMinima(k, presupuestoRest) > varianzaMax) {
+            cont.podasRiesgo++;
+            return Double.NaN;
+        }
+
+        if (tabla != null && dominada(k, presupuestoRest)) {
+            cont.podasTransposicion++;
+            return Double.NaN;
+        }
+        return ub;
+    }
+
+    /** Contadores de toda la búsqueda (de esta copia si fue secuencial, o la suma de las tareas) */
+    ContadoresBusqueda contadores() {
+        return total != null ? total : cont;
+    }
+
+    /**
+     * Consulta la tabla de transposición. La rama es certificada si ninguna
+     * completación puede exceder riesgoMax: con d >= 0, sum d <= D y |ρ| <= 1,
+     *   var(w+d) <= var(w) + 2·D·σmax·sum_h v_h + (σmax·D)²
+     */
+    private boolean dominada(int k, double presupuestoRest) {
+        long[] v = new long[3 + usoTipo.length + usoSector.length];
+        v[0] = k;
+        v[1] = cantSel;
+        v[2] = TablaTransposicion.centavos(presupuestoRest);
+        int p = 3;
+        for (double x : usoTipo) v[p++] = TablaTransposicion.centavos(x);
+        for (double x : usoSector) v[p++] = TablaTransposicion.centavos(x);
+
+        double D = presupuestoRest / in.presupuesto;
+        double sm = sigmaMaxSuf[k] * D;
+        double sumaV = 0.0;
+        for (int h = 0; h < cantSel; h++) sumaV += vSel[h];
+        boolean certificada = varianza + 2.0 * sm * sumaV + sm * sm <= varianzaCertificada;
+
+        return tabla.dominada(new TablaTransposicion.Clave(v), retParcial, certificada);
+    }
+
+    /** Si un subárbol con cota ub no puede mejorar al incumbente ni llegar al retorno exigido */
+    boolean podar(double ub, int k) {
+        return incumbente.podar(ub, lotes, k) || ub + 1e-12 < in.retornoRequerido;
+    }
+
+    /** Mayor cantidad de lotes del activo de la profundidad k que entra en el presupuesto y el tope */
+    int lotesMaximos(int k, double presupuestoRest) {
+        int i = ord[k];
+        return Math.min(in.lotesMax[i], (int)Math.floor(Math.min(presupuestoRest, in.topePorActivoAbs) / in.montoMin[i]));
+    }
+
+    /** Vuelve el estado de la rama a la raíz (sin activos elegidos) */
+    void reiniciar() {
+        for (int h = 0; h < cantSel; h++) montos[sel[h]] = 0.0;
+        java.util.Arrays.fill(usoTipo, 0.0);
+        java.util.Arrays.fill(usoSector, 0.0);
+        java.util.Arrays.fill(lotes, 0);
+        retParcial = 0.0;
+        varianza = 0.0;
+        cantSel = 0;
+    }
+
+    boolean detener() {
+        if (nodos - controlados < control.lote) return control.detenida();
+        long visitados = nodos - controlados;
+        controlados = nodos;
+        return control.consumir(visitados);
+    }
+
+    /**
+     * Si conviene repartir los hijos de este nodo en tareas: solo dentro del pool,
+     * con subárboles que todavía tienen trabajo (quedan lugares y profundidad) y
+     * cuando la cola propia se está vaciando.
+     */
+    private boolean convieneDividir(int k) {
+        return nodosPorWorker != null
+                && cantSel <= MAX_ACTIVOS - 3
+                && ord.length - k > MAX_ACTIVOS
+                && ForkJoinTask.getSurplusQueuedTaskCount() < 2;
+    }
+
+    /** Un hijo por cantidad de lotes, en el mismo orden que el recorrido secuencial */
+    private void dividir(int k, double presupuestoRest, int qmax) {
+        double unit = in.montoMin[ord[k]];
+        List<Tarea> hijos = new ArrayList<>(qmax + 1);
+        for (int q = qmax; q >= 0; q--) {
+            Busqueda hijo = new Busqueda(this);
+            if (!hijo.aplicar(k, q)) {
+                cont.sumar(hijo.cont);          // el hijo descartado no llega a ser tarea
+                continue;
+            }
+            hijos.add(new Tarea(hijo, k + 1, presupuestoRest - q * unit));
+        }
+        ForkJoinTask.invokeAll(hijos);
+    }
+
+    /**
+     * Agrega q lotes del activo de la profundidad k al estado de la rama.
+     * Devuelve false (sin tocar el estado) si excede el tope de su tipo o sector.
+     */
+    boolean aplicar(int k, int q) {
+        lotes[k] = q;
+        if (q == 0) return true;
+
+        int i = ord[k];
+        int t = in.tipo[i], s = in.sector[i];
+        double delta = q * in.montoMin[i];
+        double nuevoTipo   = usoTipo[t] + delta;
+        double nuevoSector = usoSector[s] + delta;
+        if (nuevoTipo > in.limTipo[t] + 1e-9 || nuevoSector > in.limSector[s] + 1e-9) {
+            if (nuevoTipo > in.limTipo[t] + 1e-9) cont.podasTopeTipo++;
+            else cont.podasTopeSector++;
+            lotes[k] = 0;
+            return false;
+        }
+
+        montos[i] = delta;
+        usoTipo[t] = nuevoTipo;
+        usoSector[s] = nuevoSector;
+        retParcial += q * ((in.montoMin[i] / in.presupuesto) * in.retorno[i]);
+
+        // v_i pasa de 0 a c: var += 2c·u_i + c² (ρ_ii = 1)
+        double c = in.sigma[i] * (delta / in.presupuesto);
+        varianza = varianza + 2.0 * c * u(i) + c * c;
+        sel[cantSel] = i;
+        vSel[cantSel] = c;
+        posSel[cantSel] = k;
+        minSel[cantSel++] = Double.NaN;
+        return true;
+    }
+
+    /** Deshace aplicar(k, q); se restauran los valores guardados, sin acumular error de redondeo */
+    void deshacer(int k, double retPrevio, double varPrevia) {
+        if (lotes[k] == 0) return;
+        int i = ord[k];
+        double delta = montos[i];
+        montos[i] = 0.0;
+        usoTipo[in.tipo[i]] -= delta;
+        usoSector[in.sector[i]] -= delta;
+        retParcial = retPrevio;
+        varianza = varPrevia;
+        cantSel--;
+        lotes[k] = 0;
+    }
+
+    /**
+     * Cota fraccional del sufijo ord[k..] en O(1): como todos los activos comparten
+     * el mismo tope por activo y ord está ordenado por retorno, la mejor relajación
+     * llena topes completos sobre los primeros activos y una fracción del siguiente.
+     * Relaja los topes por tipo/sector (siguen siendo válidos como cota superior).
+     */
+    double cotaSufijo(int k, double presupuestoRest) {
+        if (k >= finPositivos) return 0.0;
+        double tope = in.topePorActivoAbs;
+        int disponibles = finPositivos - k;
+        double llenos = Math.floor(presupuestoRest / tope);
+        if (llenos >= disponibles) {
+            return tope * (prefRet[finPositivos] - prefRet[k]) / in.presupuesto;
+        }
+        int f = (int) llenos;
+        double resto = presupuestoRest - f * tope;
+        return (tope * (prefRet[k + f] - prefRet[k]) + resto * in.retorno[ord[k + f]]) / in.presupuesto;
+    }
+
+    /**
+     * Cota del sufijo que respeta la cardinalidad máxima. Un activo del sufijo es
+     * elegible si le entra al menos un lote; su tope es el mayor múltiplo de
+     * montoMin dentro de min(tope por activo, presupuesto, tope restante de su
+     * tipo y de su sector). Se devuelve el mínimo de dos relajaciones válidas:
+     *  a) mochila fraccional con esos topes individuales (orden por retorno);
+     *  b) los primeros L elegibles (L = lugares libres) con el tope común
+     *     min(tope por activo, presupuesto): con a lo sumo L activos, ninguna
+     *     cartera supera esa mochila.
+     * Ambas recorren el sufijo en orden de retorno y cortan temprano.
+     */
+    double cotaSufijoAjustada(int k, double presupuestoRest) {
+        int libres = MAX_ACTIVOS - cantSel;
+        double topeComun = Math.min(in.topePorActivoAbs, presupuestoRest);
+        double restoA = presupuestoRest, restoB = presupuestoRest;
+        double cotaA = 0.0, cotaB = 0.0;
+        int tomadosB = 0;
+
+        for (int h = k; h < finPositivos && (restoA > 1e-9 || (tomadosB < libres && restoB > 1e-9)); h++) {
+            int j = ord[h];
+            double unit = in.montoMin[j];
+            double cap = Math.min(topeComun,
+                    Math.min(in.limTipo[in.tipo[j]] - usoTipo[in.tipo[j]],
+                             in.limSector[in.sector[j]] - usoSector[in.sector[j]]));
+            cap = Math.floor(cap / unit + 1e-9) * unit;
+            if (cap < unit - 1e-9) continue;          // no le entra ni un lote
+
+            if (restoA > 1e-9) {
+                double x = Math.min(cap, restoA);
+                cotaA += x * in.retorno[j];
+                restoA -= x;
+            }
+            if (tomadosB < libres && restoB > 1e-9) {
+                double x = Math.min(topeComun, restoB);
+                cotaB += x * in.retorno[j];
+                restoB -= x;
+                tomadosB++;
+            }
+        }
+        return Math.min(cotaA, cotaB) / in.presupuesto;
+    }
+
+    /**
+     * Cota inferior de la varianza de cualquier completación de la rama.
+     * Con d >= 0 los pesos que falta agregar (sum d <= D = presupuestoRest/P):
+     *   var(w+d) = var(w) + 2·sum_j d_j·σ_j·u_j + d'Σd
+     * El término lineal se acota con el menor σ_j·u_j del sufijo (puede ser
+     * negativo si hay correlaciones negativas) y d'Σd con la diagonal >= 0 más
+     * el peor cruce posible, min(0, ρmin)·(σmax·D)². No supone ρ semidefinida.
+     */
+    double varianzaMinima(int k, double presupuestoRest) {
+        double D = presupuestoRest / in.presupuesto;
+        double sm = sigmaMaxSuf[k] * D;
+        double sinLineal = varianza + rhoMinSuf[k] * sm * sm;
+        if (sinLineal <= varianzaMax) return sinLineal;      // no hay poda posible
+
+        // min_j σ_j·u_j >= sum_h v_h · min_j σ_j·ρ_j,h; el mínimo de cada elegido se
+        // calcula una vez sobre el sufijo posterior a su elección (que contiene a ord[k..])
+        double lineal = 0.0;
+        for (int h = 0; h < cantSel; h++) {
+            if (Double.isNaN(minSel[h])) minSel[h] = minimoCruzado(sel[h], posSel[h] + 1);
+            lineal += vSel[h] * minSel[h];
+        }
+        return sinLineal + 2.0 * D * Math.min(0.0, lineal);
+    }
+
+    private double minimoCruzado(int i, int desde) {
+        double min = 0.0;
+        if (in.rho == null) {
+            for (int h = desde; h < ord.length; h++) min = Math.min(min, in.sigma[ord[h]] * in.correlacion(i, ord[h]));
+            return min;
+        }
+        double[] fila = in.rho[i];
+        for (int h = desde; h < ord.length; h++) {
+            int j = ord[h];
+            min = Math.min(min, in.sigma[j] * fila[j]);
+        }
+        return min;
+    }
+
+    /** u_j = (ρ·v)_j, sumando solo sobre los activos elegidos (O(elegidos)) */
+    private double u(int j) {
+        double acc = 0.0;
+        if (in.rho == null) {
+            for (int h = 0; h < cantSel; h++) acc += in.correlacion(j, sel[h]) * vSel[h];
+            return acc;
+        }
+        double[] fila = in.rho[j];
+        for (int h = 0; h < cantSel; h++) acc += fila[sel[h]] * vSel[h];
+        return acc;
+    }
+
+    /**
+     * Evalúa la hoja con el estado que ya mantiene la búsqueda (sin excepciones ni
+     * asignar memoria); la cartera solo se materializa si mejora al incumbente.
+     */
+    private void evaluarYActualizar(){
+        cont.hojas++;
+        if (!incumbente.mejora(retParcial, lotes)) return;
+        int codigo = ValidadorAsignacion.evaluar(in, montos, sel, cantSel,
+                usoTipo, usoSector, varianza, retParcial);
+        if (codigo != ValidadorAsignacion.OK) {
+            cont.hojasRechazadas++;
+            return;
+        }
+
+        double r = in.retorno(montos, sel, cantSel);
+        if (incumbente.mejora(r, lotes)) {
+            incumbente.ofrecer(new Incumbente.Solucion(in.compacta(montos, sel, cantSel), r,
+                    in.riesgo(montos, sel, cantSel), lotes.clone()));
+        }
+    }
+}
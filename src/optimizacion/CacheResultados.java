@@ -0,0 +1,208 @@
+package optimizacion;
+
+import model.*;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.function.Function;
+
+/**
+ * Cache de resultados delante de los solvers. La clave es la forma canónica
+ * de lo que el solver realmente usa del perfil: presupuesto, tope por activo,
+ * riesgo máximo, retorno exigido y los topes por tipo/sector del mercado,
+ * ordenados y sin los que no restringen (>= 1, o de un tipo/sector que el
+ * mercado no tiene). Dos perfiles con distinto tipoPerfil, plazo o nombre de
+ * cliente pero las mismas restricciones efectivas comparten entrada. La clave
+ * lleva además las opciones del solver que pueden cambiar un resultado completo
+ * (estrategia y su parámetro, presolve, tabla de transposición, paralelo no
+ * determinista), que deciden entre carteras empatadas o, con haz, cuál se
+ * encuentra; el plazo, el presupuesto de nodos y cotaContinua no entran.
+ *
+ * Cada entrada es de un mercado ({@link Mercado#huella()}); la primera consulta
+ * con otro mercado vacía la cache. Solo se guardan resultados completos (los
+ * cortados por tiempo dependen del momento del corte). Desalojo LRU por
+ * cantidad de entradas. Es segura entre hilos: si varios piden a la vez una
+ * clave que no está, uno la calcula y los demás esperan ese cálculo, como mucho
+ * hasta su propio plazo; si el plazo vence o el resultado no es completo, cada
+ * uno calcula el suyo (un resultado cortado no se comparte). Un acierto, o un
+ * resultado obtenido esperando el cálculo de otro, no llama a op.alMejorar.
+ */
+public final class CacheResultados {
+
+    /** Contadores de uso de la cache */
+    public static final class Estadisticas {
+        public final long aciertos, fallos, desalojos, invalidaciones;
+        public final int tamanio;
+
+        Estadisticas(long aciertos, long fallos, long desalojos, long invalidaciones, int tamanio) {
+            this.aciertos = aciertos;
+            this.fallos = fallos;
+            this.desalojos = desalojos;
+            this.invalidaciones = invalidaciones;
+            this.tamanio = tamanio;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("aciertos=%d fallos=%d desalojos=%d invalidaciones=%d tamaño=%d",
+                    aciertos, fallos, desalojos, invalidaciones, tamanio);
+        }
+    }
+
+    private final LinkedHashMap<String, BBPortafolio.Resultado> entradas;
+    private final Map<String, CompletableFuture<BBPortafolio.Resultado>> enCurso = new HashMap<>();
+    private String huellaMercado;
+    private long aciertos, fallos, desalojos, invalidaciones;
+
+    public CacheResultados(int capacidad) {
+        if (capacidad < 1) throw new IllegalArgumentException("capacidad debe ser >= 1");
+        this.entradas = new LinkedHashMap<String, BBPortafolio.Resultado>(Math.min(capacidad, 1 << 16), 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, BBPortafolio.Resultado> e) {
+                if (size() <= capacidad) return false;
+                desalojos++;
+                return true;
+            }
+        };
+    }
+
+    /** Resultado de BBPortafolio.maximizarRetorno(m, p, op), desde la cache si ya se calculó */
+    public BBPortafolio.Resultado resolver(Mercado m, Perfil p, BBPortafolio.Opciones op) {
+        return obtener(m, p, op, in -> BBPortafolio.maximizarRetorno(in, op));
+    }
+
+    /** {@link #obtener(Mercado, Perfil, BBPortafolio.Opciones, Function)} con las opciones por defecto */
+    public BBPortafolio.Resultado obtener(Mercado m, Perfil p, Function<Instancia, BBPortafolio.Resultado> calcular) {
+        return obtener(m, p, new BBPortafolio.Opciones(), calcular);
+    }
+
+    /**
+     * Resultado cacheado para (m, p, op) o, si no está, el de {@code calcular},
+     * que debe resolver con esas opciones. Las excepciones de calcular se
+     * propagan (también a quienes esperaban esa clave) y no se cachean. Quien
+     * espera un cálculo en curso cuenta como acierto si obtiene de él un
+     * resultado completo; la espera dura a lo sumo op.tiempoMaximoMs (0 = sin
+     * límite) y, si vence, se calcula aparte con calcular, que debe descontar
+     * del plazo lo ya esperado.
+     */
+    public BBPortafolio.Resultado obtener(Mercado m, Perfil p, BBPortafolio.Opciones op,
+                                          Function<Instancia, BBPortafolio.Resultado> calcular) {
+        long inicio = System.nanoTime();
+        long plazoMs = op.tiempoMaximoMs;
+        String huella = m.huella();
+        String clave = clave(m, p, op);
+        CompletableFuture<BBPortafolio.Resultado> propio, ajeno;
+        synchronized (this) {
+            if (!huella.equals(huellaMercado)) {
+                if (huellaMercado != null) {
+                    entradas.clear();
+                    enCurso.clear();        // los cálculos en curso son del mercado anterior
+                    invalidaciones++;
+                }
+                huellaMercado = huella;
+            }
+            BBPortafolio.Resultado r = entradas.get(clave);
+            if (r != null) {
+                aciertos++;
+                return r;
+            }
+            ajeno = enCurso.get(clave);
+            if (ajeno != null) {
+                propio = null;
+            } else {
+                fallos++;
+                propio = new CompletableFuture<>();
+                enCurso.put(clave, propio);
+            }
+        }
+        if (ajeno != null) {
+            BBPortafolio.Resultado r = esperar(ajeno, plazoMs > 0 ? plazoMs * 1_000_000L - (System.nanoTime() - inicio) : -1);
+            synchronized (this) {
+                if (r != null) aciertos++;
+                else fallos++;
+            }
+            // sin resultado completo a tiempo: cálculo propio, sin registrarlo como en curso
+            return r != null ? r : calcular.apply(new Instancia(m, p));
+        }
+
+        BBPortafolio.Resultado r;
+        try {
+            r = calcular.apply(new Instancia(m, p));
+        } catch (RuntimeException | Error e) {
+            synchronized (this) { enCurso.remove(clave, propio); }
+            propio.completeExceptionally(e);
+            throw e;
+        }
+        synchronized (this) {
+            enCurso.remove(clave, propio);
+            // si entretanto cambió el mercado, el resultado ya no corresponde
+            if (r.completo && huella.equals(huellaMercado)) entradas.put(clave, r);
+        }
+        propio.complete(r);
+        return r;
+    }
+
+    // El resultado de f si termina completo dentro de restanteNs (< 0: sin límite), o null
+    private static BBPortafolio.Resultado esperar(CompletableFuture<BBPortafolio.Resultado> f, long restanteNs) {
+        BBPortafolio.Resultado r;
+        try {
+            r = restanteNs < 0 ? f.get() : f.get(Math.max(restanteNs, 0), TimeUnit.NANOSECONDS);
+        } catch (TimeoutException e) {
+            return null;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrumpido esperando un cálculo en curso", e);
+        } catch (ExecutionException e) {
+            Throwable c = e.getCause();
+            if (c instanceof RuntimeException) throw (RuntimeException) c;
+            if (c instanceof Error) throw (Error) c;
+            throw new IllegalStateException(c);
+        }
+        return r.completo ? r : null;
+    }
+
+    /** Vacía la cache (cuenta como invalidación) */
+    public synchronized void invalidar() {
+        entradas.clear();
+        enCurso.clear();
+        invalidaciones++;
+    }
+
+    public synchronized Estadisticas estadisticas() {
+        return new Estadisticas(aciertos, fallos, desalojos, invalidaciones, entradas.size());
+    }
+
+    /** Forma canónica de las restricciones efectivas del perfil sobre el mercado, y de las opciones */
+    static String clave(Mercado m, Perfil p, BBPortafolio.Opciones op) {
+        Set<String> tipos = new HashSet<>(), sectores = new HashSet<>();
+        for (Activo a : m.activos) {
+            tipos.add(a.tipo);
+            sectores.add(a.sector);
+        }
+        StringBuilder sb = new StringBuilder();
+        sb.append(p.getPresupuesto()).append('|')
+          .append(Math.min(p.getMaxPorActivo(), 1.0)).append('|')
+          .append(p.getRiesgoMax()).append('|')
+          .append(Math.max(p.getRetornoMin(), p.getRetornoMinDeseado()));
+        topes(sb.append("|T"), p.getMaxPorTipo(), tipos);
+        topes(sb.append("|S"), p.getMaxPorSector(), sectores);
+        sb.append("|O").append(op.estrategia);
+        if (op.estrategia == BBPortafolio.Estrategia.MEJOR_PRIMERO) sb.append(';').append(op.memoriaMaxNodos);
+        if (op.estrategia == BBPortafolio.Estrategia.HAZ) sb.append(';').append(op.anchoHaz);
+        if (!op.presolve) sb.append(";sin presolve");
+        if (op.tablaTransposicion > 0) sb.append(";tabla=").append(op.tablaTransposicion);
+        // en paralelo determinista el resultado es el secuencial
+        if (op.paralelismo > 1 && !op.determinista) sb.append(";no determinista");
+        return sb.toString();
+    }
+
+    private static void topes(StringBuilder sb, Map<String, Double> topes, Set<String> presentes) {
+        // sin tope (o tope >= 1) el grupo queda limitado solo por el presupuesto
+        TreeMap<String, Double> orden = new TreeMap<>();
+        for (Map.Entry<String, Double> e : topes.entrySet()) {
+            Double v = e.getValue();
+            if (v != null && v < 1.0 && presentes.contains(e.getKey())) orden.put(e.getKey(), v);
+        }
+        for (Map.Entry<String, Double> e : orden.entrySet())
+            sb.append(';').append(e.getKey()).append('=').append(e.getValue());
+    }
+}
@@ -0,0 +1,37 @@
+package optimizacion;
+
+/**
+ * Contadores de una copia de {@link Busqueda}. Son campos simples (sin
+ * sincronizar) porque cada worker incrementa los suyos; al terminar cada tarea
+ * se suman en un total compartido con {@link #sumar}.
+ *
+ * Los tiempos se miden por muestreo: solo en los nodos cuyo número es múltiplo
+ * de {@link #MUESTREO} + 1, así el costo de System.nanoTime no pesa en el recorrido.
+ */
+final class ContadoresBusqueda {
+    static final int MUESTREO = 63;            // máscara: se mide 1 de cada 64 nodos
+
+    final long[] nodosPorProfundidad;
+    long podasCota, podasPresupuesto, podasRiesgo, podasTransposicion;
+    long podasTopeTipo, podasTopeSector;
+    long hojas, hojasRechazadas;
+    long nanosCotaMuestra, nanosHojasMuestra;
+
+    ContadoresBusqueda(int profundidades) {
+        this.nodosPorProfundidad = new long[profundidades];
+    }
+
+    synchronized void sumar(ContadoresBusqueda o) {
+        for (int k = 0; k < nodosPorProfundidad.length; k++) nodosPorProfundidad[k] += o.nodosPorProfundidad[k];
+        podasCota += o.podasCota;
+        podasPresupuesto += o.podasPresupuesto;
+        podasRiesgo += o.podasRiesgo;
+        podasTransposicion += o.podasTransposicion;
+        podasTopeTipo += o.podasTopeTipo;
+        podasTopeSector += o.podasTopeSector;
+        hojas += o.hojas;
+        hojasRechazadas += o.hojasRechazadas;
+        nanosCotaMuestra += o.nanosCotaMuestra;
+        nanosHojasMuestra += o.nanosHojasMuestra;
+    }
+}
@@ -0,0 +1,49 @@
+package optimizacion;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.DoubleAccumulator;
+
+/**
+ * Límites de una búsqueda (tiempo y nodos) compartidos entre los workers.
+ * Los nodos se descuentan por lotes de {@link #LOTE} para no tocar memoria
+ * compartida en cada nodo, así que con varios workers el presupuesto puede
+ * excederse en menos de un lote por worker.
+ *
+ * Cuando la búsqueda se detiene, cada nodo que queda sin explorar registra su
+ * cota; el máximo de esas cotas (y del incumbente) acota el óptimo.
+ */
+final class ControlBusqueda {
+    static final int LOTE = 1024;
+
+    private final long finNanos;       // Long.MAX_VALUE = sin plazo
+    private final long nodosMax;       // Long.MAX_VALUE = sin presupuesto
+    final int lote;                    // nodos entre controles
+    private final AtomicLong nodos = new AtomicLong();
+    private volatile boolean detenida;
+    private final DoubleAccumulator cotaPendiente =
+            new DoubleAccumulator(Math::max, Double.NEGATIVE_INFINITY);
+
+    ControlBusqueda(long tiempoMaximoMs, long nodosMaximos) {
+        this.finNanos = tiempoMaximoMs > 0 ? System.nanoTime() + tiempoMaximoMs * 1_000_000L : Long.MAX_VALUE;
+        this.nodosMax = nodosMaximos > 0 ? nodosMaximos : Long.MAX_VALUE;
+        this.lote = (int) Math.min(LOTE, this.nodosMax);
+    }
+
+    boolean detenida() { return detenida; }
+
+    /** Nodos descontados hasta ahora (aproximado mientras la búsqueda corre) */
+    long nodos() { return nodos.get(); }
+
+    /** Descuenta nodos recién visitados; devuelve true si ya hay que detenerse */
+    boolean consumir(long visitados) {
+        if (detenida) return true;
+        if (nodos.addAndGet(visitados) >= nodosMax || System.nanoTime() >= finNanos) detenida = true;
+        return detenida;
+    }
+
+    /** Cota de un subárbol que quedó sin explorar al detenerse */
+    void registrarPendiente(double cota) { cotaPendiente.accumulate(cota); }
+
+    /** Mayor cota entre los subárboles sin explorar (-inf si no quedó ninguno) */
+    double cotaPendiente() { return cotaPendiente.get(); }
+}
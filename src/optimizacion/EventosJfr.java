@@ -0,0 +1,59 @@
+package optimizacion;
+
+import jdk.jfr.*;
+
+/**
+ * Eventos de JDK Flight Recorder de la búsqueda. Con JFR apagado crearlos y
+ * consultarlos es casi gratis (isEnabled/shouldCommit), así que quedan siempre.
+ * Uso: java -XX:StartFlightRecording=filename=bb.jfr ... y luego
+ * {@code jfr print --events optimizacion.BusquedaBB bb.jfr}.
+ */
+final class EventosJfr {
+    private EventosJfr(){}
+
+    @Name("optimizacion.BusquedaBB")
+    @Label("Búsqueda Branch & Bound")
+    @Category({"Portafolio", "Optimización"})
+    @Description("Una llamada a BBPortafolio.maximizarRetorno, con sus contadores")
+    static final class EventoBusqueda extends Event {
+        @Label("Activos") int activos;
+        @Label("Estrategia") String estrategia;
+        @Label("Paralelismo") int paralelismo;
+        @Label("Nodos") long nodos;
+        @Label("Nodos por profundidad") String nodosPorProfundidad;
+        @Label("Podas por cota") long podasCota;
+        @Label("Podas por presupuesto") long podasPresupuesto;
+        @Label("Podas por riesgo") long podasRiesgo;
+        @Label("Podas por transposición") long podasTransposicion;
+        @Label("Podas por tope de tipo") long podasTopeTipo;
+        @Label("Podas por tope de sector") long podasTopeSector;
+        @Label("Hojas") long hojas;
+        @Label("Hojas rechazadas") long hojasRechazadas;
+        @Label("Tiempo en cotas (estimado)") @Timespan long nanosCota;
+        @Label("Tiempo en hojas (estimado)") @Timespan long nanosHojas;
+        @Label("Mejoras del incumbente") int mejoras;
+        @Label("Retorno") double retorno;
+        @Label("Cota superior") double cotaSuperior;
+        @Label("Completa") boolean completo;
+    }
+
+    @Name("optimizacion.MejoraIncumbente")
+    @Label("Mejora del incumbente")
+    @Category({"Portafolio", "Optimización"})
+    static final class EventoMejora extends Event {
+        @Label("Retorno") double retorno;
+        @Label("Riesgo") double riesgo;
+        @Label("Nodos (aprox.)") long nodos;
+        @Label("Desde el inicio") @Timespan long nanos;
+    }
+
+    static void mejora(double retorno, double riesgo, long nodos, long nanos) {
+        EventoMejora e = new EventoMejora();
+        if (!e.isEnabled()) return;
+        e.retorno = retorno;
+        e.riesgo = riesgo;
+        e.nodos = nodos;
+        e.nanos = nanos;
+        e.commit();
+    }
+}
@@ -0,0 +1,169 @@
+package optimizacion;
+
+import model.*;
+import java.util.*;
+import java.util.concurrent.*;
+
+/**
+ * Frontera eficiente: el máximo retorno para cada riesgo máximo de una grilla,
+ * con el resto del perfil base fijo. Los niveles se resuelven en paralelo.
+ *
+ * Una cartera factible con riesgo σ lo es también con cualquier σ' >= σ si los
+ * demás topes no cambian, así que cada mejora encontrada en un nivel se ofrece
+ * como incumbente a todos los niveles más altos cuyo retorno exigido alcanza,
+ * estén corriendo o por empezar. Por eso los niveles se lanzan de menor a mayor
+ * riesgo.
+ *
+ * Las soluciones recibidas de otro nivel no tienen camino en el árbol propio:
+ * con determinista=true un empate en retorno puede resolverse a favor de la
+ * cartera recibida en lugar de la primera del DFS de ese nivel.
+ */
+public final class FronteraEficiente {
+
+    /** Un punto de la frontera */
+    public static final class Punto {
+        public final double riesgoMax;
+        public final BBPortafolio.Resultado resultado;
+
+        Punto(double riesgoMax, BBPortafolio.Resultado resultado) {
+            this.riesgoMax = riesgoMax;
+            this.resultado = resultado;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("riesgoMax=%.4f retorno=%.6f riesgo=%.6f%s", riesgoMax,
+                    resultado.retorno, resultado.riesgo, resultado.completo ? "" : String.format(" gap=%.6f", resultado.gap()));
+        }
+    }
+
+    private FronteraEficiente(){}
+
+    public static List<Punto> calcular(Mercado m, Perfil base, double[] riesgos){
+        return calcular(m, base, riesgos, Runtime.getRuntime().availableProcessors(), new BBPortafolio.Opciones());
+    }
+
+    /**
+     * Un punto por cada tipo de perfil ({@link Perfil#TIPOS}), como correr cada tipo
+     * por separado: cada nivel toma de su tipo el riesgo máximo y el retorno mínimo,
+     * y del perfil base presupuesto, topes y plazo. El retorno deseado del base se
+     * conserva solo si supera el mínimo de su tipo (es un pedido del cliente).
+     */
+    public static List<Punto> porTipoPerfil(Mercado m, Perfil base, int hilos, BBPortafolio.Opciones op){
+        int L = Perfil.TIPOS.size();
+        double deseado = base.getRetornoMinDeseado() > base.getRetornoMin() ? base.getRetornoMinDeseado() : 0.0;
+        double[] riesgos = new double[L];
+        Perfil[] perfiles = new Perfil[L];
+        for (int t = 0; t < L; t++) {
+            perfiles[t] = new Perfil(base.getPresupuesto(), base.getMaxPorActivo(), base.getMaxPorTipo(), base.getMaxPorSector(),
+                    Perfil.TIPOS.get(t), deseado, base.getPlazoAnios());
+            riesgos[t] = perfiles[t].getRiesgoMax();
+        }
+        return calcular(m, perfiles, riesgos, hilos, op);
+    }
+
+    /**
+     * Resuelve cada riesgo de la grilla con las opciones dadas (cada nivel con su
+     * propio paralelismo) usando hasta {@code hilos} niveles a la vez. Los puntos
+     * vuelven en el orden de la grilla; op.alMejorar se llama también con las
+     * mejoras que un nivel recibe de otro.
+     */
+    public static List<Punto> calcular(Mercado m, Perfil base, double[] riesgos, int hilos, BBPortafolio.Opciones op){
+        Perfil[] perfiles = new Perfil[riesgos.length];
+        for (int l = 0; l < riesgos.length; l++) perfiles[l] = base.conRiesgoMax(riesgos[l]);
+        return calcular(m, perfiles, riesgos, hilos, op);
+    }
+
+    // perfiles[l] tiene riesgo máximo riesgos[l] y los mismos topes que los demás
+    private static List<Punto> calcular(Mercado m, Perfil[] perfiles, double[] riesgos, int hilos, BBPortafolio.Opciones op){
+        if (hilos < 1) throw new IllegalArgumentException("hilos debe ser >= 1");
+        final int L = riesgos.length;
+        Integer[] tmp = new Integer[L];
+        for (int l = 0; l < L; l++) tmp[l] = l;
+        Arrays.sort(tmp, Comparator.comparingDouble(l -> riesgos[l]));
+        double[] exigido = new double[L];           // por rango
+        for (int pos = 0; pos < L; pos++)
+            exigido[pos] = Math.max(perfiles[tmp[pos]].getRetornoMin(), perfiles[tmp[pos]].getRetornoMinDeseado());
+
+        Enlace enlace = new Enlace(exigido);
+        ExecutorService pool = Executors.newFixedThreadPool(Math.min(hilos, Math.max(1, L)));
+        try {
+            List<Future<BBPortafolio.Resultado>> futuros = new ArrayList<>(Collections.nCopies(L, null));
+            for (int pos = 0; pos < L; pos++) {
+                final int l = tmp[pos], rango = pos;
+                BBPortafolio.Opciones opl = new BBPortafolio.Opciones(op);
+                opl.alMejorar = r -> {
+                    enlace.publicar(rango, new Incumbente.Solucion(AsignacionCompacta.de(m, r.mejor), r.retorno, r.riesgo, null));
+                    if (op.alMejorar != null) op.alMejorar.accept(r);
+                };
+                futuros.set(l, pool.submit(() -> BBPortafolio.maximizarRetorno(new Instancia(m, perfiles[l]), opl,
+                        inc -> enlace.registrar(rango, inc))));
+            }
+
+            List<Punto> puntos = new ArrayList<>(L);
+            for (int l = 0; l < L; l++) puntos.add(new Punto(riesgos[l], esperar(futuros.get(l))));
+            return puntos;
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    private static BBPortafolio.Resultado esperar(Future<BBPortafolio.Resultado> f) {
+        try {
+            return f.get();
+        } catch (ExecutionException e) {
+            Throwable c = e.getCause();
+            if (c instanceof RuntimeException) throw (RuntimeException) c;
+            if (c instanceof Error) throw (Error) c;
+            throw new IllegalStateException(c);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Frontera interrumpida", e);
+        }
+    }
+
+    /**
+     * Reparto de soluciones entre niveles (por rango de riesgo creciente). Un nivel
+     * que todavía no empezó recibe al registrarse la mejor solución ya publicada
+     * por los de menor riesgo; el lock ordena publicar y registrar para que
+     * ninguna mejora se pierda entre ambos. Un nivel solo recibe soluciones que
+     * llegan a su retorno exigido.
+     */
+    private static final class Enlace {
+        private final Incumbente[] incumbentes;
+        private final Incumbente.Solucion[] publicadas;
+        private final double[] exigido;
+
+        Enlace(double[] exigido) {
+            this.incumbentes = new Incumbente[exigido.length];
+            this.publicadas = new Incumbente.Solucion[exigido.length];
+            this.exigido = exigido;
+        }
+
+        private boolean alcanza(Incumbente.Solucion s, int rango) {
+            return s.retorno + 1e-12 >= exigido[rango];
+        }
+
+        void publicar(int rango, Incumbente.Solucion s) {
+            List<Incumbente> destinos = new ArrayList<>();
+            synchronized (this) {
+                if (publicadas[rango] != null && publicadas[rango].retorno >= s.retorno) return;
+                publicadas[rango] = s;
+                for (int j = rango + 1; j < incumbentes.length; j++)
+                    if (incumbentes[j] != null && alcanza(s, j)) destinos.add(incumbentes[j]);
+            }
+            // fuera del lock: ofrecer dispara el alMejorar del destino, que vuelve a publicar
+            for (Incumbente inc : destinos) inc.ofrecer(s);
+        }
+
+        void registrar(int rango, Incumbente inc) {
+            Incumbente.Solucion mejor = null;
+            synchronized (this) {
+                incumbentes[rango] = inc;
+                for (int i = 0; i < rango; i++)
+                    if (publicadas[i] != null && (mejor == null || publicadas[i].retorno > mejor.retorno)) mejor = publicadas[i];
+            }
+            if (mejor != null && alcanza(mejor, rango)) inc.ofrecer(mejor);
+        }
+    }
+}
@@ -0,0 +1,90 @@
+package optimizacion;
+
+import model.AsignacionCompacta;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
+
+/**
+ * Mejor solución conocida, compartida entre los workers de una búsqueda.
+ * Se publica de forma atómica para que todos poden contra el mejor global.
+ *
+ * En modo determinista los empates (|Δretorno| <= EPS) se resuelven por el
+ * orden DFS del camino de lotes, igual que en la búsqueda secuencial: gana la
+ * hoja que el recorrido secuencial hubiese visitado primero.
+ */
+final class Incumbente {
+    static final double EPS = 1e-12;
+
+    static final class Solucion {
+        final AsignacionCompacta asignacion;
+        final double retorno, riesgo;
+        final int[] lotes;          // lotes por profundidad; null para la semilla y soluciones externas
+
+        Solucion(AsignacionCompacta asignacion, double retorno, double riesgo, int[] lotes) {
+            this.asignacion = asignacion;
+            this.retorno = retorno;
+            this.riesgo = riesgo;
+            this.lotes = lotes;
+        }
+    }
+
+    private final AtomicReference<Solucion> actual;
+    private final boolean determinista;
+    private final Consumer<Solucion> alMejorar;     // puede ser null
+
+    Incumbente(Solucion semilla, boolean determinista) {
+        this(semilla, determinista, null);
+    }
+
+    /** alMejorar se invoca desde el worker que publicó cada mejora */
+    Incumbente(Solucion semilla, boolean determinista, Consumer<Solucion> alMejorar) {
+        this.actual = new AtomicReference<>(semilla);
+        this.determinista = determinista;
+        this.alMejorar = alMejorar;
+    }
+
+    Solucion actual()  { return actual.get(); }
+    double retorno()   { return actual.get().retorno; }
+
+    /** Si una hoja con ese retorno y camino reemplazaría al incumbente (sin asignar memoria) */
+    boolean mejora(double r, int[] lotes) {
+        return acepta(actual.get(), r, lotes);
+    }
+
+    /** Publica la solución si sigue siendo mejor; devuelve true si quedó como incumbente */
+    boolean ofrecer(Solucion s) {
+        while (true) {
+            Solucion cur = actual.get();
+            if (!acepta(cur, s.retorno, s.lotes)) return false;
+            if (actual.compareAndSet(cur, s)) {
+                if (alMejorar != null) alMejorar.accept(s);
+                return true;
+            }
+        }
+    }
+
+    /**
+     * Si un subárbol con cota ub ya no puede aportar. Un subárbol cuyo prefijo va
+     * antes que el incumbente en orden DFS todavía puede empatarlo y ganar.
+     */
+    boolean podar(double ub, int[] lotes, int profundidad) {
+        Solucion cur = actual.get();
+        if (ub > cur.retorno + EPS) return false;
+        if (!determinista || cur.lotes == null || ub < cur.retorno - EPS) return true;
+        return compararPrefijo(lotes, cur.lotes, profundidad) >= 0;
+    }
+
+    private boolean acepta(Solucion cur, double r, int[] lotes) {
+        if (r > cur.retorno + EPS) return true;
+        if (!determinista || cur.lotes == null || lotes == null || r < cur.retorno - EPS) return false;
+        return compararPrefijo(lotes, cur.lotes, lotes.length) < 0;
+    }
+
+    /** < 0 si a va antes que b en el DFS (más lotes primero), 0 si coinciden los prefijos */
+    static int compararPrefijo(int[] a, int[] b, int largo) {
+        for (int k = 0; k < largo; k++) {
+            if (a[k] != b[k]) return a[k] > b[k] ? -1 : 1;
+        }
+        return 0;
+    }
+}
@@ -0,0 +1,461 @@
+package optimizacion;
+
+import model.*;
+import java.util.*;
+
+/**
+ * Relajación continua del problema: maximizar r'w sujeto a w'Σw <= riesgoMax²,
+ * sum w <= 1, 0 <= w_i <= maxPorActivo y los topes por tipo/sector (w son
+ * pesos sobre el presupuesto, sin lotes ni cardinalidad).
+ *
+ * Primal: gradiente proyectado acelerado sobre max r'w - λ·w'Σ̂w, con bisección
+ * en λ hasta que el riesgo real quede en riesgoMax. La proyección sobre caja +
+ * presupuesto + topes por tipo + topes por sector se resuelve por su dual.
+ *
+ * Σ = DρD puede no ser semidefinida (la matriz de correlaciones del mercado no
+ * lo es siempre), así que se trabaja con Σ̂ = Σ + μI, con μ >= max(0, -λmin(Σ))
+ * certificado por Cholesky ({@link Mercado#corrimiento()}, una vez por mercado).
+ * Como sum w_i² <= maxPorActivo, toda w factible
+ * cumple w'Σ̂w <= riesgoMax² + μ·maxPorActivo, y sobre ese problema convexo la
+ * dualidad lagrangiana da una cota superior válida también para el problema
+ * discreto (cotaSuperior). Cada λ probada deja una cota válida, así que con
+ * plazo se corta donde esté y se devuelve la mejor hasta ahí.
+ *
+ * Los productos densos con Σ usan la covarianza por filas de la instancia
+ * (cacheada en el Mercado) y {@link KernelRiesgo#actual()}. Si el mercado es
+ * factorial, Σw = σ∘(ρ̂(σ∘w)) se arma en O(n·k) sin matriz densa, y como ρ̂ es
+ * semidefinida por construcción μ = 0.
+ */
+public final class MarkowitzContinuo {
+
+    public static final class Resultado {
+        public final double[] pesos;          // por índice de la instancia
+        public final Asignacion asignacion;   // montos continuos (no respetan lotes)
+        public final double retorno, riesgo;
+        public final boolean factible;        // false si ni la cartera de mínimo riesgo entra en riesgoMax
+        public final double cotaSuperior;     // ninguna cartera factible (continua o discreta) rinde más
+        public final int iteraciones;
+
+        Resultado(double[] pesos, Asignacion asignacion, double retorno, double riesgo,
+                  boolean factible, double cotaSuperior, int iteraciones) {
+            this.pesos = pesos;
+            this.asignacion = asignacion;
+            this.retorno = retorno;
+            this.riesgo = riesgo;
+            this.factible = factible;
+            this.cotaSuperior = cotaSuperior;
+            this.iteraciones = iteraciones;
+        }
+    }
+
+    private static final int MAX_ITER = 200;          // gradiente proyectado por cada λ
+    private static final int MAX_BISECCION = 20;
+    private static final int MAX_BARRIDOS = 200;      // ascenso por coordenadas en la proyección
+
+    private MarkowitzContinuo(){}
+
+    public static Resultado resolver(Mercado m, Perfil p, Asignacion inicio){
+        return resolver(new Instancia(m, p), inicio);
+    }
+
+    public static Resultado resolver(Instancia in){
+        return resolver(in, null);
+    }
+
+    /**
+     * inicio (opcional) es el punto de partida; se proyecta sobre las restricciones
+     * lineales y se ofrece como arranque en cada λ
+     */
+    public static Resultado resolver(Instancia in, Asignacion inicio){
+        return resolver(in, inicio, 0);
+    }
+
+    /**
+     * Con plazo (0 = sin límite): al vencer se devuelve la mejor cartera factible
+     * encontrada y la menor cota registrada, más floja pero válida. El corrimiento
+     * μ (si el mercado no lo tenía calculado) no entra en el plazo.
+     */
+    public static Resultado resolver(Instancia in, Asignacion inicio, long plazoMs){
+        long fin = plazoMs > 0 ? System.nanoTime() + plazoMs * 1_000_000L : Long.MAX_VALUE;
+        return new Problema(in, fin).resolver(inicio == null ? null : pesos(in, inicio));
+    }
+
+    /** Solo la cota superior del retorno (misma que resolver(in).cotaSuperior) */
+    public static double cotaSuperior(Instancia in){
+        return cotaSuperior(in, 0);
+    }
+
+    /** La cota superior con plazo (ver {@link #resolver(Instancia, Asignacion, long)}) */
+    public static double cotaSuperior(Instancia in, long plazoMs){
+        return resolver(in, null, plazoMs).cotaSuperior;
+    }
+
+    private static double[] pesos(Instancia in, Asignacion a){
+        double[] w = in.montos(a);
+        for (int i = 0; i < w.length; i++) w[i] /= in.presupuesto;
+        return w;
+    }
+
+    /** Datos del problema en pesos y estado compartido entre las sucesivas λ */
+    private static final class Problema {
+        final Instancia in;
+        final int n;
+        final double[] S;              // Σ = DρD por filas (compartida, no se modifica); null si es factorial
+        final ModeloFactorial F;       // null si hay matriz densa
+        final double[] sw, tmpF;       // σ∘w y Bᵀ(σ∘w) para los productos factoriales
+        final KernelRiesgo K = KernelRiesgo.actual();
+        final double mu;               // corrimiento para que Σ + μI sea semidefinida
+        final double normaS;           // norma espectral de Σ + μI (estimada, con margen)
+        final double tope;             // maxPorActivo en pesos
+        final double[] limTipo, limSector;
+        final boolean hayTopesTipo, hayTopesSector;
+        final double varMax, varRelajada;
+        final long fin;                // System.nanoTime() del plazo (Long.MAX_VALUE = sin plazo)
+        final int[] todos;
+        final int[][] miembrosTipo, miembrosSector;
+        double alfa;                   // multiplicadores de la última proyección
+        final double[] beta, gamma;
+        double cota = Double.POSITIVE_INFINITY;
+        int iteraciones;
+
+        Problema(Instancia in, long fin) {
+            this.in = in;
+            this.n = in.n;
+            this.fin = fin;
+            F = in.factores;
+            if (F != null) {
+                S = null;
+                sw = new double[n];
+                tmpF = new double[F.k];
+                mu = 0.0;
+            } else {
+                S = in.covarianza();
+                sw = tmpF = null;
+                mu = in.corrimiento();
+            }
+            normaS = normaEspectral();
+
+            tope = Math.min(1.0, in.topePorActivoAbs / in.presupuesto);
+            limTipo = new double[in.cantidadTipos()];
+            limSector = new double[in.cantidadSectores()];
+            boolean ht = false, hs = false;
+            for (int t = 0; t < limTipo.length; t++) { limTipo[t] = in.limTipo[t] / in.presupuesto; ht |= limTipo[t] < 1.0; }
+            for (int s = 0; s < limSector.length; s++) { limSector[s] = in.limSector[s] / in.presupuesto; hs |= limSector[s] < 1.0; }
+            hayTopesTipo = ht;
+            hayTopesSector = hs;
+            todos = new int[n];
+            for (int i = 0; i < n; i++) todos[i] = i;
+            miembrosTipo = miembros(in.tipo, limTipo.length);
+            miembrosSector = miembros(in.sector, limSector.length);
+            beta = new double[limTipo.length];
+            gamma = new double[limSector.length];
+
+            double tol = in.riesgoMax + 1e-9;
+            varMax = tol * tol;
+            varRelajada = varMax + mu * tope;
+        }
+
+        Resultado resolver(double[] inicio) {
+            final double[] w0 = inicio == null ? null : proyectar(inicio);
+
+            // λ = 0: máximo retorno lineal; si ya entra en riesgo es el óptimo
+            double[] w = maximizar(0.0, w0 != null ? w0 : proyectar(new double[n]));
+            double[] mejor = null;
+            double mejorRet = Double.NEGATIVE_INFINITY;
+            if (varianza(w) <= varMax) {
+                mejor = w;
+                mejorRet = retorno(w);
+            } else {
+                // Se acota λ* (riesgo justo en riesgoMax) partiendo de la escala r/‖Σ̂‖
+                // y después se biseca en escala logarítmica
+                double rmax = 0.0;
+                for (double r : in.retorno) rmax = Math.max(rmax, Math.abs(r));
+                double lambda = Math.max(rmax / normaS, 1e-12);
+                double lo = 0.0, hi = 0.0;
+                double[] whi = null, x = w;
+                for (int paso = 0; paso < 60 && (lo == 0.0 || hi == 0.0) && !vencido(); paso++) {
+                    x = maximizar(lambda, arranque(lambda, x, w0));
+                    if (varianza(x) <= varMax) {
+                        hi = lambda;
+                        whi = x;
+                        lambda /= 4.0;
+                        if (lo != 0.0) break;
+                    } else {
+                        lo = lambda;
+                        lambda *= 4.0;
+                        if (hi != 0.0) break;
+                    }
+                }
+                if (whi != null) {
+                    mejor = whi;
+                    mejorRet = retorno(whi);
+                    double[] wmid = whi;
+                    for (int b = 0; b < MAX_BISECCION && lo > 0.0 && hi - lo > 1e-4 * hi && !vencido(); b++) {
+                        double mid = Math.sqrt(lo * hi);
+                        wmid = maximizar(mid, arranque(mid, wmid, w0));
+                        double v = varianza(wmid);
+                        if (v <= varMax) {
+                            hi = mid;
+                            if (retorno(wmid) > mejorRet) { mejor = wmid; mejorRet = retorno(wmid); }
+                            if (v >= 0.99 * varMax) break;          // riesgo a menos de 0,5% del máximo
+                        } else {
+                            lo = mid;
+                        }
+                    }
+                } else {
+                    mejor = x;        // la de menor riesgo encontrada, no factible
+                }
+            }
+
+            boolean factible = varianza(mejor) <= varMax;
+            double[] montos = new double[n];
+            int[] orden = new int[n];
+            for (int i = 0; i < n; i++) { montos[i] = mejor[i] * in.presupuesto; orden[i] = i; }
+            return new Resultado(mejor, in.asignacion(montos, orden), retorno(mejor),
+                    Math.sqrt(Math.max(0.0, varianza(mejor))), factible,
+                    Math.max(cota, factible ? retorno(mejor) : Double.NEGATIVE_INFINITY), iteraciones);
+        }
+
+        /**
+         * max r'w - λ·w'Σ̂w sobre las restricciones lineales (FISTA). Al terminar
+         * registra la cota dual: por concavidad, para cualquier z factible
+         *   f(z) <= f(w) + ∇f(w)'(z - w)
+         * y sumando λ·(riesgoMax² + μ·tope) se acota el problema con riesgo.
+         */
+        double[] maximizar(double lambda, double[] w0) {
+            double paso = 1.0 / Math.max(2.0 * lambda * normaS, 1e-3);
+            double[] w = w0.clone(), prev = w0.clone(), y = w0.clone(), g = new double[n];
+            double t = 1.0;
+            for (int it = 0; it < MAX_ITER && !vencido(); it++) {
+                iteraciones++;
+                gradiente(lambda, y, g);
+                double[] z = new double[n];
+                for (int i = 0; i < n; i++) z[i] = y[i] + paso * g[i];
+                z = proyectar(z);
+
+                double cambio = 0.0;
+                for (int i = 0; i < n; i++) cambio = Math.max(cambio, Math.abs(z[i] - w[i]));
+                prev = w;
+                w = z;
+                if (cambio < 1e-8) break;
+
+                double t2 = 0.5 * (1.0 + Math.sqrt(1.0 + 4.0 * t * t));
+                for (int i = 0; i < n; i++) y[i] = w[i] + ((t - 1.0) / t2) * (w[i] - prev[i]);
+                t = t2;
+            }
+            registrarCota(lambda, w, g);
+            return w;
+        }
+
+        private boolean vencido() {
+            return fin != Long.MAX_VALUE && System.nanoTime() >= fin;
+        }
+
+        // el arranque para λ: el punto anterior o el inicio dado, el que más rinda en r'w - λ·w'Σ̂w
+        private double[] arranque(double lambda, double[] previo, double[] inicio) {
+            if (inicio == null) return previo;
+            return objetivo(lambda, inicio) > objetivo(lambda, previo) ? inicio : previo;
+        }
+
+        private double objetivo(double lambda, double[] w) {
+            return retorno(w) - lambda * (varianza(w) + mu * normaCuadrado(w));
+        }
+
+        private void registrarCota(double lambda, double[] w, double[] g) {
+            gradiente(lambda, w, g);
+            double f = objetivo(lambda, w);
+            double lineal = Math.min(maxLineal(g, in.tipo, limTipo), maxLineal(g, in.sector, limSector));
+            for (int i = 0; i < n; i++) lineal -= g[i] * w[i];
+            cota = Math.min(cota, f + lineal + lambda * varRelajada);
+        }
+
+        private int[][] miembros(int[] grupo, int cantGrupos) {
+            int[] cant = new int[cantGrupos];
+            for (int i = 0; i < n; i++) cant[grupo[i]]++;
+            int[][] m = new int[cantGrupos][];
+            for (int g = 0; g < cantGrupos; g++) m[g] = new int[cant[g]];
+            Arrays.fill(cant, 0);
+            for (int i = 0; i < n; i++) m[grupo[i]][cant[grupo[i]]++] = i;
+            return m;
+        }
+
+        /** ∇(r'w - λ·w'Σ̂w) = r - 2λ(Σw + μw) */
+        private void gradiente(double lambda, double[] w, double[] g) {
+            producto(w, g);
+            for (int i = 0; i < n; i++) g[i] = in.retorno[i] - 2.0 * lambda * (g[i] + mu * w[i]);
+        }
+
+        /**
+         * max g'z con 0 <= z <= tope, sum z <= 1 y los topes de una partición en
+         * grupos. La familia (activos, grupos, total) es laminar, así que el greedy
+         * por coeficiente es óptimo; ignorar la otra partición la hace una cota.
+         */
+        private double maxLineal(double[] g, int[] grupo, double[] lim) {
+            Integer[] idx = new Integer[n];
+            for (int i = 0; i < n; i++) idx[i] = i;
+            Arrays.sort(idx, (a, b) -> Double.compare(g[b], g[a]));
+            double[] libre = lim.clone();
+            double resto = 1.0, valor = 0.0;
+            for (int i : idx) {
+                if (g[i] <= 0.0 || resto <= 0.0) break;
+                double x = Math.min(tope, Math.min(resto, libre[grupo[i]]));
+                if (x <= 0.0) continue;
+                valor += g[i] * x;
+                resto -= x;
+                libre[grupo[i]] -= x;
+            }
+            return valor;
+        }
+
+        /**
+         * Proyección sobre caja + presupuesto + topes por tipo y por sector. La
+         * proyección es x_i = clamp(y_i - α - β_tipo(i) - γ_sector(i), 0, tope) con
+         * multiplicadores >= 0 que maximizan el dual; se obtienen por ascenso por
+         * coordenadas (cada multiplicador es exacto dado el resto) y se reusan
+         * como punto de partida en la proyección siguiente, que suele estar cerca.
+         */
+        double[] proyectar(double[] y) {
+            double[] x = new double[n];
+            if (!hayTopesTipo && !hayTopesSector) {
+                alfa = umbral(y, todos, n, 1.0);
+                return recortar(y, x);
+            }
+            double[] z = new double[n];
+            for (int it = 0; it < MAX_BARRIDOS; it++) {
+                double cambio = 0.0;
+                for (int i = 0; i < n; i++) z[i] = y[i] - beta[in.tipo[i]] - gamma[in.sector[i]];
+                double a = umbral(z, todos, n, 1.0);
+                cambio = Math.max(cambio, Math.abs(a - alfa));
+                alfa = a;
+                for (int t = 0; t < limTipo.length; t++) {
+                    if (limTipo[t] >= 1.0) continue;
+                    int[] g = miembrosTipo[t];
+                    for (int i : g) z[i] = y[i] - alfa - gamma[in.sector[i]];
+                    double b = umbral(z, g, g.length, limTipo[t]);
+                    cambio = Math.max(cambio, Math.abs(b - beta[t]));
+                    beta[t] = b;
+                }
+                for (int sc = 0; sc < limSector.length; sc++) {
+                    if (limSector[sc] >= 1.0) continue;
+                    int[] g = miembrosSector[sc];
+                    for (int i : g) z[i] = y[i] - alfa - beta[in.tipo[i]];
+                    double c = umbral(z, g, g.length, limSector[sc]);
+                    cambio = Math.max(cambio, Math.abs(c - gamma[sc]));
+                    gamma[sc] = c;
+                }
+                if (cambio < 1e-14) break;
+            }
+            for (int i = 0; i < n; i++) z[i] = y[i] - beta[in.tipo[i]] - gamma[in.sector[i]];
+            for (int i = 0; i < n; i++) x[i] = z[i] - alfa;
+            return reparar(x);
+        }
+
+        private double[] recortar(double[] y, double[] x) {
+            for (int i = 0; i < n; i++) x[i] = Math.min(tope, Math.max(0.0, y[i] - alfa));
+            return x;
+        }
+
+        /**
+         * Menor τ >= 0 con sum_{i en miembros} clamp(z_i - τ, 0, tope) <= lim. La suma
+         * es lineal por tramos y decreciente en τ, con quiebres en z_i y z_i - tope:
+         * se ubica el tramo que cruza lim y se interpola.
+         */
+        private double umbral(double[] z, int[] miembros, int cant, double lim) {
+            if (suma(z, miembros, cant, 0.0) <= lim) return 0.0;
+            double[] q = new double[2 * cant];
+            for (int h = 0; h < cant; h++) { q[2 * h] = z[miembros[h]]; q[2 * h + 1] = z[miembros[h]] - tope; }
+            Arrays.sort(q);
+            int lo = 0, hi = q.length - 1;                 // suma en q[hi] = 0 <= lim
+            while (lo < hi && q[lo] <= 0.0) lo++;
+            double a = 0.0;
+            if (suma(z, miembros, cant, q[lo]) > lim) {
+                while (hi - lo > 1) {
+                    int mid = (lo + hi) >>> 1;
+                    if (suma(z, miembros, cant, q[mid]) > lim) lo = mid; else hi = mid;
+                }
+                a = q[lo];
+            } else {
+                hi = lo;
+            }
+            double b = q[hi];
+            double fa = suma(z, miembros, cant, a), fb = suma(z, miembros, cant, b);
+            return fa == fb ? b : a + (fa - lim) * (b - a) / (fa - fb);
+        }
+
+        private double suma(double[] z, int[] miembros, int cant, double tau) {
+            double s = 0.0;
+            for (int h = 0; h < cant; h++) s += Math.min(tope, Math.max(0.0, z[miembros[h]] - tau));
+            return s;
+        }
+
+        /** Deja el punto exactamente factible achicando lo que quede excedido */
+        private double[] reparar(double[] x) {
+            for (int i = 0; i < n; i++) x[i] = Math.min(tope, Math.max(0.0, x[i]));
+            escalarGrupos(x, in.tipo, limTipo);
+            escalarGrupos(x, in.sector, limSector);
+            double total = 0.0;
+            for (double v : x) total += v;
+            if (total > 1.0) for (int i = 0; i < n; i++) x[i] /= total;
+            return x;
+        }
+
+        private void escalarGrupos(double[] x, int[] grupo, double[] lim) {
+            double[] suma = new double[lim.length];
+            for (int i = 0; i < n; i++) suma[grupo[i]] += x[i];
+            for (int i = 0; i < n; i++) {
+                int g = grupo[i];
+                if (suma[g] > lim[g]) x[i] *= lim[g] / suma[g];
+            }
+        }
+
+        double retorno(double[] w) {
+            double r = 0.0;
+            for (int i = 0; i < n; i++) r += w[i] * in.retorno[i];
+            return r;
+        }
+
+        double varianza(double[] w) {
+            if (F == null) return K.varianza(S, n, w);
+            for (int i = 0; i < n; i++) sw[i] = in.sigma[i] * w[i];
+            return F.formaCuadratica(sw);
+        }
+
+        /** out = Σw, densa o por factores */
+        private void producto(double[] w, double[] out) {
+            if (F == null) { K.producto(S, n, w, out); return; }
+            for (int i = 0; i < n; i++) sw[i] = in.sigma[i] * w[i];
+            F.producto(sw, out, tmpF);
+            for (int i = 0; i < n; i++) out[i] *= in.sigma[i];
+        }
+
+        /**
+         * Mayor autovalor de Σ + μI (semidefinida) por el método de la potencia. Se
+         * devuelve con un margen: solo define el paso del gradiente, no la cota.
+         */
+        private double normaEspectral() {
+            double[] x = new double[n], y = new double[n];
+            Arrays.fill(x, 1.0 / Math.sqrt(Math.max(1, n)));
+            double lambda = 0.0;
+            for (int it = 0; it < 100; it++) {
+                producto(x, y);
+                double norma = 0.0;
+                for (int i = 0; i < n; i++) {
+                    y[i] += mu * x[i];
+                    norma += y[i] * y[i];
+                }
+                norma = Math.sqrt(norma);
+                if (norma == 0.0) break;
+                for (int i = 0; i < n; i++) x[i] = y[i] / norma;
+                if (Math.abs(norma - lambda) < 1e-9 * norma) { lambda = norma; break; }
+                lambda = norma;
+            }
+            return 1.1 * lambda + 1e-12;
+        }
+
+        private static double normaCuadrado(double[] w) {
+            double s = 0.0;
+            for (double v : w) s += v * v;
+            return s;
+        }
+    }
+}
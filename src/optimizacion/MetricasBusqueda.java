@@ -0,0 +1,83 @@
+package optimizacion;
+
+import java.util.List;
+
+/**
+ * Foto de los contadores de una búsqueda terminada (ver Resultado.metricas).
+ * Los contadores están siempre activos; también salen como eventos de JDK
+ * Flight Recorder ("optimizacion.BusquedaBB" y "optimizacion.MejoraIncumbente").
+ *
+ * Podas por motivo:
+ * - cota: la cota optimista no mejora al incumbente o no llega al retorno exigido
+ * - presupuesto: lo que queda no alcanza para llegar al mínimo de activos
+ * - riesgo: la varianza mínima alcanzable ya excede riesgoMax²
+ * - transposicion: rama dominada en la tabla de transposición
+ * - topeTipo / topeSector: hijos descartados por exceder el tope de su tipo o sector
+ *
+ * nanosCota (cotas optimistas) y nanosHojas (evaluación de hojas) se estiman
+ * midiendo 1 de cada 64 nodos.
+ */
+public final class MetricasBusqueda {
+
+    /** Una mejora del incumbente: cuándo (desde el inicio), con qué retorno y tras cuántos nodos (aprox.) */
+    public static final class Mejora {
+        public final long nanos;
+        public final double retorno;
+        public final long nodos;
+
+        Mejora(long nanos, double retorno, long nodos) {
+            this.nanos = nanos;
+            this.retorno = retorno;
+            this.nodos = nodos;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%.3f ms: %.6f (%d nodos)", nanos / 1e6, retorno, nodos);
+        }
+    }
+
+    public final long nodos;
+    public final long[] nodosPorProfundidad;
+    public final long podasCota, podasPresupuesto, podasRiesgo, podasTransposicion, podasTopeTipo, podasTopeSector;
+    public final long hojas, hojasRechazadas;
+    public final long nanosCota, nanosHojas, nanosTotal;
+    public final List<Mejora> mejoras;
+
+    MetricasBusqueda(ContadoresBusqueda c, long nanosTotal, List<Mejora> mejoras) {
+        long total = 0;
+        for (long x : c.nodosPorProfundidad) total += x;
+        this.nodos = total;
+        this.nodosPorProfundidad = c.nodosPorProfundidad.clone();
+        this.podasCota = c.podasCota;
+        this.podasPresupuesto = c.podasPresupuesto;
+        this.podasRiesgo = c.podasRiesgo;
+        this.podasTransposicion = c.podasTransposicion;
+        this.podasTopeTipo = c.podasTopeTipo;
+        this.podasTopeSector = c.podasTopeSector;
+        this.hojas = c.hojas;
+        this.hojasRechazadas = c.hojasRechazadas;
+        this.nanosCota = c.nanosCotaMuestra * (ContadoresBusqueda.MUESTREO + 1);
+        this.nanosHojas = c.nanosHojasMuestra * (ContadoresBusqueda.MUESTREO + 1);
+        this.nanosTotal = nanosTotal;
+        this.mejoras = List.copyOf(mejoras);
+    }
+
+    /** Nodos por profundidad sin los ceros finales, p. ej. "1,8,61,..." */
+    public String perfilProfundidad() {
+        int fin = nodosPorProfundidad.length;
+        while (fin > 0 && nodosPorProfundidad[fin - 1] == 0) fin--;
+        StringBuilder sb = new StringBuilder();
+        for (int k = 0; k < fin; k++) sb.append(k > 0 ? "," : "").append(nodosPorProfundidad[k]);
+        return sb.toString();
+    }
+
+    @Override
+    public String toString() {
+        return String.format("nodos=%d hojas=%d (rechazadas %d) podas: cota=%d presupuesto=%d riesgo=%d transposicion=%d "
+                        + "topeTipo=%d topeSector=%d | cota≈%.1f ms hojas≈%.1f ms total=%.1f ms | mejoras=%d | profundidad=[%s]",
+                nodos, hojas, hojasRechazadas, podasCota, podasPresupuesto, podasRiesgo, podasTransposicion,
+                podasTopeTipo, podasTopeSector, nanosCota / 1e6, nanosHojas / 1e6, nanosTotal / 1e6,
+                mejoras.size(), perfilProfundidad());
+    }
+}
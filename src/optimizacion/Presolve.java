@@ -0,0 +1,134 @@
+package optimizacion;
+
+import model.*;
+import java.util.*;
+
+import static validacion.ValidadorAsignacion.MAX_ACTIVOS;
+
+/**
+ * Reducción del universo antes de optimizar. Sobre una {@link Instancia}:
+ * - elimina activos que nunca pueden elegirse: un solo lote (montoMin) excede
+ *   el tope por activo, el presupuesto o el tope de su tipo o sector;
+ * - elimina activos dominados teniendo en cuenta las correlaciones;
+ * - informa los lotes máximos que ajustan los topes (Instancia.lotesMax).
+ *
+ * Dominancia: i domina a j si son del mismo tipo y sector, r_i >= r_j,
+ * σ_i <= σ_j, montoMin_i divide a montoMin_j y σ_i·ρ_ik <= σ_j·ρ_jk para todo
+ * otro activo k. Entonces en cualquier cartera con j, pasar el monto de j a
+ * un i que no esté en ella mantiene presupuesto, topes, lotes y cardinalidad,
+ * no baja el retorno y no sube la varianza. Una cartera con j tiene a lo sumo
+ * MAX_ACTIVOS - 1 activos más, así que j se elimina solo si tiene al menos
+ * MAX_ACTIVOS dominadores que se conservan. Siempre queda un óptimo en el
+ * universo reducido (aunque con empates puede ser otra cartera). Los candidatos
+ * a dominador se buscan solo entre los conservados del mismo (tipo, sector).
+ *
+ * BBPortafolio.maximizarRetorno lo aplica antes de la semilla y la búsqueda
+ * (Opciones.presolve). Las soluciones de la instancia reducida ya quedan en
+ * términos del mercado: sus activos conservan {@link Instancia#indiceMercado}
+ * y su ticker.
+ */
+public final class Presolve {
+
+    public static final class Reduccion {
+        public final Instancia instancia;                 // universo reducido
+        public final Map<String, String> eliminados;      // ticker -> motivo, en orden del mercado
+        public final int lotesAjustados;                  // activos cuyo lotesMax bajó por los topes de tipo/sector
+
+        Reduccion(Instancia instancia, Map<String, String> eliminados, int lotesAjustados) {
+            this.instancia = instancia;
+            this.eliminados = Collections.unmodifiableMap(eliminados);
+            this.lotesAjustados = lotesAjustados;
+        }
+
+        @Override
+        public String toString() {
+            StringBuilder sb = new StringBuilder();
+            sb.append(String.format("Presolve: %d activos -> %d (%d eliminados, %d con lotes ajustados)%n",
+                    instancia.n + eliminados.size(), instancia.n, eliminados.size(), lotesAjustados));
+            for (Map.Entry<String, String> e : eliminados.entrySet())
+                sb.append(" - ").append(e.getKey()).append(": ").append(e.getValue()).append(System.lineSeparator());
+            return sb.toString();
+        }
+    }
+
+    private Presolve(){}
+
+    public static Reduccion reducir(Mercado m, Perfil p){
+        return reducir(new Instancia(m, p));
+    }
+
+    public static Reduccion reducir(Instancia in){
+        final int n = in.n;
+        String[] motivo = new String[n];
+
+        // 1) activos que no admiten ni un lote
+        for (int i = 0; i < n; i++) {
+            double mm = in.montoMin[i];
+            if (mm - in.topePorActivoAbs > 1e-9)
+                motivo[i] = String.format("montoMin %.2f > tope por activo %.2f", mm, in.topePorActivoAbs);
+            else if (mm - in.presupuesto > 1e-9)
+                motivo[i] = String.format("montoMin %.2f > presupuesto %.2f", mm, in.presupuesto);
+            else if (mm - in.limTipo[in.tipo[i]] > 1e-9)
+                motivo[i] = String.format("montoMin %.2f > tope del tipo %s (%.2f)", mm, in.nombreTipo[in.tipo[i]], in.limTipo[in.tipo[i]]);
+            else if (mm - in.limSector[in.sector[i]] > 1e-9)
+                motivo[i] = String.format("montoMin %.2f > tope del sector %s (%.2f)", mm, in.nombreSector[in.sector[i]], in.limSector[in.sector[i]]);
+        }
+
+        // 2) dominancia: se recorre de más fuerte a más débil, así los dominadores
+        //    de cada activo ya tienen su decisión tomada
+        Integer[] tmp = new Integer[n];
+        for (int i = 0; i < n; i++) tmp[i] = i;
+        Arrays.sort(tmp, (a, b) -> {
+            int c = Double.compare(in.retorno[b], in.retorno[a]);
+            if (c == 0) c = Double.compare(in.sigma[a], in.sigma[b]);
+            if (c == 0) c = Double.compare(in.montoMin[a], in.montoMin[b]);
+            return c != 0 ? c : Integer.compare(a, b);
+        });
+        Map<Integer, List<Integer>> conservados = new HashMap<>();      // por (tipo, sector)
+        for (int j : tmp) {
+            if (motivo[j] != null) continue;
+            List<Integer> grupo = conservados.computeIfAbsent(in.tipo[j] * in.cantidadSectores() + in.sector[j],
+                    g -> new ArrayList<>());
+            List<String> dominadores = new ArrayList<>(MAX_ACTIVOS);
+            for (int i : grupo) {
+                if (domina(in, i, j) && dominadores.add(in.ticker[i]) && dominadores.size() == MAX_ACTIVOS) break;
+            }
+            if (dominadores.size() == MAX_ACTIVOS) motivo[j] = "dominado por " + String.join(", ", dominadores);
+            else grupo.add(j);
+        }
+
+        // universo reducido en el orden original
+        Map<String, String> eliminados = new LinkedHashMap<>();
+        int[] activos = new int[n];
+        int cant = 0;
+        for (int i = 0; i < n; i++) {
+            if (motivo[i] == null) activos[cant++] = i;
+            else eliminados.put(in.ticker[i], motivo[i]);
+        }
+        // sin eliminados no se copia nada (restringir copia la submatriz de ρ)
+        Instancia reducida = cant == n ? in : in.restringir(Arrays.copyOf(activos, cant));
+
+        // 3) lotes máximos: cuántos activos quedan limitados por su tipo/sector
+        int ajustados = 0;
+        for (int a = 0; a < reducida.n; a++) {
+            int porTope = (int) Math.floor(Math.min(reducida.topePorActivoAbs, reducida.presupuesto) / reducida.montoMin[a] + 1e-9);
+            if (reducida.lotesMax[a] < porTope) ajustados++;
+        }
+        return new Reduccion(reducida, eliminados, ajustados);
+    }
+
+    // i y j del mismo tipo y sector
+    private static boolean domina(Instancia in, int i, int j) {
+        if (in.retorno[i] < in.retorno[j] || in.sigma[i] > in.sigma[j]) return false;
+
+        // montoMin_i divide a montoMin_j (todo monto válido de j es válido para i)
+        double lotes = in.montoMin[j] / in.montoMin[i];
+        if (Math.abs(lotes - Math.rint(lotes)) > 1e-9 * Math.max(1.0, lotes)) return false;
+
+        for (int k = 0; k < in.n; k++) {
+            if (k == i || k == j) continue;
+            if (in.sigma[i] * in.correlacion(i, k) > in.sigma[j] * in.correlacion(j, k)) return false;
+        }
+        return true;
+    }
+}
@@ -0,0 +1,131 @@
+package optimizacion;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+
+/**
+ * Recorridos alternativos del árbol de {@link Busqueda}: mejor primero y haz
+ * (beam). Usan el mismo modelo de nodo que el DFS (aplicar/visitar/deshacer);
+ * un nodo abierto se guarda como su camino de lotes enlazado al padre y el
+ * estado de la rama se reconstruye reaplicando ese camino desde la raíz.
+ */
+final class Recorridos {
+    private Recorridos(){}
+
+    /** Nodo abierto: los lotes del activo de la profundidad k-1 y el resto del camino en el padre */
+    private static final class Nodo {
+        final Nodo padre;
+        final int k, q;
+        final double presupuestoRest, cota;
+        final long orden;                 // desempate estable entre cotas iguales
+
+        Nodo(Nodo padre, int k, int q, double presupuestoRest, double cota, long orden) {
+            this.padre = padre;
+            this.k = k;
+            this.q = q;
+            this.presupuestoRest = presupuestoRest;
+            this.cota = cota;
+            this.orden = orden;
+        }
+    }
+
+    /** Mayor cota primero; entre iguales, el que se generó antes */
+    private static final Comparator<Nodo> POR_COTA = (x, y) -> {
+        int c = Double.compare(y.cota, x.cota);
+        return c != 0 ? c : Long.compare(x.orden, y.orden);
+    };
+
+    /**
+     * Expande siempre el nodo abierto de mayor cota. Si la cola llega a
+     * memoriaMax nodos, los que quedan se terminan con DFS en orden de cota.
+     * Con el corte por tiempo o nodos, la cota pendiente es la del tope de la cola.
+     */
+    static void mejorPrimero(Busqueda b, int memoriaMax) {
+        PriorityQueue<Nodo> cola = new PriorityQueue<>(POR_COTA);
+        long orden = 0;
+
+        double ub = b.visitar(0, b.in.presupuesto);
+        if (!Double.isNaN(ub)) cola.add(new Nodo(null, 0, 0, b.in.presupuesto, ub, orden++));
+
+        while (!cola.isEmpty()) {
+            Nodo nd = cola.poll();
+            if (nd.cota < b.incumbente.retorno() - Incumbente.EPS) break;     // el resto tampoco mejora
+
+            reconstruir(b, nd);
+            if (b.podar(nd.cota, nd.k)) continue;
+            if (b.detener()) {
+                b.control.registrarPendiente(nd.cota);
+                break;
+            }
+
+            if (cola.size() >= memoriaMax) {
+                // Sin memoria para más nodos abiertos: DFS desde éste y los que siguen
+                b.expandirIterativo(nd.k, nd.presupuestoRest);
+                continue;
+            }
+
+            int k = nd.k;
+            double unit = b.in.montoMin[b.ord[k]];
+            double retPrevio = b.retParcial, varPrevia = b.varianza;
+            for (int q = b.lotesMaximos(k, nd.presupuestoRest); q >= 0; q--) {
+                if (!b.aplicar(k, q)) continue;
+                double r = nd.presupuestoRest - q * unit;
+                double cub = b.visitar(k + 1, r);
+                if (!Double.isNaN(cub)) cola.add(new Nodo(nd, k + 1, q, r, cub, orden++));
+                b.deshacer(k, retPrevio, varPrevia);
+            }
+        }
+    }
+
+    /**
+     * Búsqueda en haz: por profundidad conserva solo los {@code ancho} nodos de
+     * mayor cota. Es aproximada; la cota de cada nodo descartado que supera al
+     * incumbente queda como pendiente, así que el resultado informa igual una
+     * brecha válida (y completo=true si no se descartó nada que pudiera mejorar).
+     */
+    static void haz(Busqueda b, int ancho) {
+        List<Nodo> nivel = new ArrayList<>();
+        long orden = 0;
+
+        double ub = b.visitar(0, b.in.presupuesto);
+        if (!Double.isNaN(ub)) nivel.add(new Nodo(null, 0, 0, b.in.presupuesto, ub, orden++));
+
+        while (!nivel.isEmpty()) {
+            List<Nodo> hijos = new ArrayList<>();
+            for (Nodo nd : nivel) {
+                reconstruir(b, nd);
+                if (b.podar(nd.cota, nd.k)) continue;
+                if (b.detener()) {
+                    b.control.registrarPendiente(nd.cota);
+                    continue;
+                }
+                int k = nd.k;
+                double unit = b.in.montoMin[b.ord[k]];
+                double retPrevio = b.retParcial, varPrevia = b.varianza;
+                for (int q = b.lotesMaximos(k, nd.presupuestoRest); q >= 0; q--) {
+                    if (!b.aplicar(k, q)) continue;
+                    double r = nd.presupuestoRest - q * unit;
+                    double cub = b.visitar(k + 1, r);
+                    if (!Double.isNaN(cub)) hijos.add(new Nodo(nd, k + 1, q, r, cub, orden++));
+                    b.deshacer(k, retPrevio, varPrevia);
+                }
+            }
+
+            hijos.sort(POR_COTA);
+            // un descartado que no supera al incumbente no deja nada pendiente (y los siguientes tampoco)
+            double incumbente = b.incumbente.retorno();
+            for (int h = ancho; h < hijos.size() && hijos.get(h).cota > incumbente; h++)
+                b.control.registrarPendiente(hijos.get(h).cota);
+            nivel = hijos.size() > ancho ? new ArrayList<>(hijos.subList(0, ancho)) : hijos;
+        }
+    }
+
+    /** Lleva el estado de la búsqueda a la rama del nodo */
+    private static void reconstruir(Busqueda b, Nodo nd) {
+        b.reiniciar();
+        for (Nodo x = nd; x.padre != null; x = x.padre) b.lotes[x.k - 1] = x.q;
+        for (int d = 0; d < nd.k; d++) b.aplicar(d, b.lotes[d]);
+    }
+}
@@ -0,0 +1,95 @@
+package optimizacion;
+
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Tabla de transposición de la búsqueda. Dos ramas que llegan a la misma
+ * profundidad con el mismo presupuesto restante, el mismo uso por tipo/sector
+ * y la misma cantidad de activos tienen exactamente las mismas completaciones
+ * factibles en presupuesto, topes y cardinalidad; solo difieren en retorno y
+ * riesgo. Si una rama ya vista tiene más retorno y ninguna completación suya
+ * puede exceder riesgoMax (estado "certificado"), la rama actual está dominada.
+ *
+ * Los montos se cuantizan a centavos. La memoria se acota con desalojo LRU.
+ * Es segura entre workers (métodos sincronizados).
+ */
+public final class TablaTransposicion {
+
+    /** Contadores de uso de la tabla */
+    public static final class Estadisticas {
+        public final long aciertos, fallos, podas, desalojos;
+        public final int tamanio;
+
+        Estadisticas(long aciertos, long fallos, long podas, long desalojos, int tamanio) {
+            this.aciertos = aciertos;
+            this.fallos = fallos;
+            this.podas = podas;
+            this.desalojos = desalojos;
+            this.tamanio = tamanio;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("aciertos=%d fallos=%d podas=%d desalojos=%d tamaño=%d",
+                    aciertos, fallos, podas, desalojos, tamanio);
+        }
+    }
+
+    /** Estado cuantizado: k, cantidad de activos, presupuesto restante y usos por tipo/sector */
+    static final class Clave {
+        private final long[] v;
+        private final int hash;
+
+        Clave(long[] v) {
+            this.v = v;
+            this.hash = Arrays.hashCode(v);
+        }
+
+        @Override public int hashCode() { return hash; }
+        @Override public boolean equals(Object o) {
+            return o instanceof Clave && ((Clave) o).hash == hash && Arrays.equals(((Clave) o).v, v);
+        }
+    }
+
+    private final LinkedHashMap<Clave, Double> mejores;
+    private long aciertos, fallos, podas, desalojos;
+
+    TablaTransposicion(int capacidad) {
+        if (capacidad < 1) throw new IllegalArgumentException("capacidad debe ser >= 1");
+        this.mejores = new LinkedHashMap<Clave, Double>(Math.min(capacidad, 1 << 16), 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Clave, Double> e) {
+                if (size() <= capacidad) return false;
+                desalojos++;
+                return true;
+            }
+        };
+    }
+
+    static long centavos(double monto) { return Math.round(monto * 100.0); }
+
+    /**
+     * Si la rama (clave, retParcial) está dominada por una ya vista. Si no lo
+     * está y es certificada, queda registrada para dominar a las siguientes.
+     */
+    synchronized boolean dominada(Clave clave, double retParcial, boolean certificada) {
+        Double mejor = mejores.get(clave);
+        if (mejor == null) {
+            fallos++;
+        } else {
+            aciertos++;
+            if (mejor > retParcial + Incumbente.EPS) {
+                podas++;
+                return true;
+            }
+        }
+        if (certificada && (mejor == null || retParcial > mejor)) mejores.put(clave, retParcial);
+        return false;
+    }
+
+    synchronized Estadisticas estadisticas() {
+        return new Estadisticas(aciertos, fallos, podas, desalojos, mejores.size());
+    }
+}
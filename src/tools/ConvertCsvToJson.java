@@ -1,16 +1,32 @@
 package tools;
 
+import com.google.gson.stream.JsonWriter;
+import io.SnapshotBinario;
+import model.Activo;
+import validacion.ValidadorMercado;
+
 import java.io.*;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.*;
 import java.util.*;
-import com.google.gson.*;
+import java.util.concurrent.*;
 
-// Conversor CSV -> JSON para el TPO (activos + matriz de correlaciones)
+// Conversor CSV -> mercado para el TPO (activos + matriz de correlaciones), en JSON o snapshot binario
+// Uso: ConvertCsvToJson [activos.csv] [correlaciones.csv] [salida.json|.bin] [hilos]
 // Requisitos de CSV:
 //  - activos_financieros_60.csv: columnas (flexibles en nombre)
 //      ticker, tipo, sector, retorno, sigma, montoMin
 //    * retorno/sigma pueden venir como 0.12 o 12 o "12%": se normalizan a decimales
-//  - correlaciones_60.csv: matriz con encabezados y primera columna de tickers, cuadrada, simétrica (o casi)
+//  - correlaciones_60.csv: matriz con encabezados y primera columna de tickers, cuadrada y simétrica
+//  - separador ';' o ',' (se detecta en el encabezado); se acepta coma decimal. Los campos
+//    pueden ir entre comillas (con separadores, saltos de línea o "" adentro)
+//
+// La matriz se convierte en streaming: un lector separa los registros, los bloques de BLOQUE
+// filas se parsean en paralelo (hilos, por defecto uno por núcleo) directo a double[] y se
+// escriben en orden a medida que están. Hay a lo sumo 2 × hilos bloques en memoria, nunca la
+// matriz entera. Al escribir se verifica lo mismo que ValidadorMercado (rango, simetría) con
+// memoria O(n); la salida .bin es el snapshot triangular de io.SnapshotBinario.
+// Valores redondeados a 6 decimales y diagonal en 1.0, como siempre.
 
 public class ConvertCsvToJson {
 
@@ -19,75 +35,355 @@ private static final String RUTA_ACTIVOS = "activos.csv";
 private static final String RUTA_CORR    = "correlaciones.csv";
 private static final String RUTA_SALIDA  = "data/mercado.json";
 
+    private static final int BLOQUE = 32;              // filas de la matriz por tarea
+
     public static void main(String[] args) {
         try {
             // Si pasás las rutas por argumentos, se usan esas:
             String inAct  = args.length > 0 ? args[0] : RUTA_ACTIVOS;
             String inCorr = args.length > 1 ? args[1] : RUTA_CORR;
             String out    = args.length > 2 ? args[2] : RUTA_SALIDA;
+            int hilos     = args.length > 3 ? Integer.parseInt(args[3]) : Runtime.getRuntime().availableProcessors();
 
-            List<Map<String,String>> activosRows = leerCsvComoMaps(inAct);
-            Map<String,String> col = mapearColumnas(activosRows.get(0).keySet());
-
-            List<Map<String,Object>> activos = new ArrayList<>();
-            for (Map<String,String> row : activosRows) {
-                String ticker = req(row, col.get("ticker"));
-                String tipo   = req(row, col.get("tipo"));
-                String sector = req(row, col.get("sector"));
-                Double retorno= toDecimal(req(row, col.get("retorno")));
-                Double sigma  = toDecimal(req(row, col.get("sigma")));
-                Double monto  = Double.valueOf(req(row, col.get("montoMin")));
-                Map<String,Object> a = new LinkedHashMap<>();
-                a.put("ticker", ticker.trim());
-                a.put("tipo", tipo.trim());
-                a.put("sector", sector.trim());
-                a.put("retorno", retorno);
-                a.put("sigma", sigma);
-                a.put("montoMin", monto);
-                activos.add(a);
-            }
+            long t0 = System.nanoTime();
+            long filas = convertir(inAct, inCorr, out, hilos);
+            Path outPath = Path.of(out);
 
-            Correlacion corr = leerMatrizCorrelaciones(inCorr);
-            // Alineamos activos al orden de la matriz (por tickers de encabezados)
-            Map<String,Map<String,Object>> byTicker = new HashMap<>();
-            for (var a : activos) byTicker.put((String)a.get("ticker"), a);
+            long ms = Math.max(1, (System.nanoTime() - t0) / 1_000_000);
+            double mb = Files.size(Path.of(inCorr)) / 1e6;
+            System.out.println("OK -> " + outPath.toAbsolutePath());
+            System.out.printf(Locale.US, "Activos: %d, matriz %d x %d; %.1f MB de CSV -> %.1f MB en %d ms (%d hilos)%n",
+                    filas, filas, filas, mb, Files.size(outPath) / 1e6, ms, hilos);
+            System.out.printf(Locale.US, "Throughput: %.0f filas/s, %.1f M valores/s, %.1f MB/s%n",
+                    filas * 1000.0 / ms, (double) filas * filas / 1000.0 / ms, mb * 1000.0 / ms);
 
-            List<Map<String,Object>> activosOrdenados = new ArrayList<>();
-            List<String> orden = corr.tickers;
-            for (String t : orden) {
-                Map<String,Object> a = byTicker.get(t);
+        } catch (Exception e) {
+            e.printStackTrace();
+            System.err.println("ERROR: " + e.getMessage());
+            System.exit(1);
+        }
+    }
+
+    /**
+     * Convierte activos + correlaciones a out (JSON, o snapshot si termina en .bin)
+     * con hilos para parsear la matriz; devuelve la cantidad de activos
+     */
+    static long convertir(String inAct, String inCorr, String out, int hilos) throws IOException, InterruptedException {
+        if (hilos < 1) throw new IllegalArgumentException("hilos debe ser >= 1");
+        List<Map<String,String>> activosRows = leerCsvComoMaps(inAct);
+        if (activosRows.isEmpty()) throw new IllegalArgumentException("CSV sin filas: " + inAct);
+        Map<String,String> col = mapearColumnas(activosRows.get(0).keySet());
+
+        Map<String,Activo> byTicker = new HashMap<>();
+        for (Map<String,String> row : activosRows) {
+            String ticker = req(row, col.get("ticker")).trim();
+            String tipo   = req(row, col.get("tipo")).trim();
+            String sector = req(row, col.get("sector")).trim();
+            double retorno= toDecimal(req(row, col.get("retorno")));
+            double sigma  = toDecimal(req(row, col.get("sigma")));
+            double monto  = Double.parseDouble(req(row, col.get("montoMin")).trim());
+            byTicker.put(ticker, new Activo(ticker, tipo, sector, retorno, sigma, monto));
+        }
+
+        Path outPath = Path.of(out);
+        if (outPath.getParent() != null) Files.createDirectories(outPath.getParent());
+        List<Activo> activosOrdenados = new ArrayList<>();
+        try (LectorCsv corr = new LectorCsv(Files.newBufferedReader(Path.of(inCorr), StandardCharsets.UTF_8))) {
+            // Parse: primera fila = encabezados (vacía + tickers), primera col de cada fila = ticker
+            String header = corr.registro();
+            if (header == null) throw new IllegalArgumentException("correlaciones CSV vacío");
+            char sep = separador(header);
+            String[] cols = campos(header, sep);
+            List<String> tickers = new ArrayList<>();
+            for (int i = 1; i < cols.length; i++) tickers.add(cols[i].trim());
+
+            // Alineamos activos al orden de la matriz (por tickers de encabezados)
+            for (String t : tickers) {
+                Activo a = byTicker.get(t);
                 if (a == null)
                     throw new IllegalArgumentException("Ticker en correlaciones no encontrado en activos: " + t);
                 activosOrdenados.add(a);
             }
+            ValidadorMercado.validarActivos(activosOrdenados);
 
-            // Ajustamos diagonal a 1.0 por seguridad
-            for (int i = 0; i < corr.matriz.length; i++) corr.matriz[i][i] = 1.0;
+            try (Salida salida = out.endsWith(".bin") ? new SalidaSnapshot(outPath, activosOrdenados)
+                                                      : new SalidaJson(outPath, activosOrdenados)) {
+                return convertirMatriz(corr, sep, tickers, salida, hilos);
+            }
+        }
+    }
 
-            // Armamos JSON
-            Map<String,Object> mercado = new LinkedHashMap<>();
-            mercado.put("activos", activosOrdenados);
-            mercado.put("correlaciones", toList2D(corr.matriz));
+    // ---------- Matriz en streaming ----------
 
-            // Guardamos
-            Path outPath = Path.of(out);
-            Files.createDirectories(outPath.getParent());
-            try (Writer w = Files.newBufferedWriter(outPath)) {
-                new GsonBuilder().setPrettyPrinting().create().toJson(mercado, w);
+    /** Filas i = desde .. desde + filas.length - 1, parseadas; json (o null) es cada fila ya formateada */
+    private static final class Bloque {
+        final int desde;
+        final double[][] filas;
+        final String[] json;
+
+        Bloque(int desde, double[][] filas, String[] json) {
+            this.desde = desde;
+            this.filas = filas;
+            this.json = json;
+        }
+    }
+
+    // Lee los registros en este hilo, parsea bloques en el pool y los escribe en orden; como mucho
+    // 2 × hilos bloques en vuelo (el lector espera al escritor)
+    private static long convertirMatriz(LectorCsv lector, char sep, List<String> tickers, Salida salida, int hilos)
+            throws IOException, InterruptedException {
+        int n = tickers.size();
+        Verificador ver = new Verificador(n);
+        ExecutorService pool = Executors.newFixedThreadPool(hilos);
+        ArrayDeque<Future<Bloque>> enVuelo = new ArrayDeque<>();
+        int leidas = 0;
+        try {
+            List<String> registros = new ArrayList<>(BLOQUE);
+            while (true) {
+                String r = lector.registro();
+                if (r != null && r.isBlank()) continue;
+                if (r != null) registros.add(r);
+                if (registros.size() == BLOQUE || (r == null && !registros.isEmpty())) {
+                    if (leidas + registros.size() > n)
+                        throw new IllegalArgumentException("Hay más filas de correlaciones que tickers en el encabezado (" + n + ")");
+                    final List<String> bloque = registros;
+                    final int desde = leidas;
+                    enVuelo.add(pool.submit(() -> parsear(bloque, desde, sep, tickers, salida.json())));
+                    leidas += bloque.size();
+                    registros = new ArrayList<>(BLOQUE);
+                    while (enVuelo.size() >= 2 * hilos) escribir(enVuelo.poll(), ver, salida);
+                }
+                if (r == null) break;
             }
+            while (!enVuelo.isEmpty()) escribir(enVuelo.poll(), ver, salida);
+        } finally {
+            pool.shutdownNow();
+        }
+        if (leidas != n) throw new IllegalArgumentException("Faltan filas de correlaciones: " + leidas + " de " + n);
+        return leidas;
+    }
 
-            // Preview
-            System.out.println("OK -> " + outPath.toAbsolutePath());
-            System.out.println("Activos: " + activosOrdenados.size());
-            System.out.println("Matriz:  " + corr.matriz.length + " x " + corr.matriz.length);
-            for (int i = 0; i < Math.min(5, activosOrdenados.size()); i++) {
-                System.out.println(" - " + activosOrdenados.get(i).get("ticker"));
+    private static void escribir(Future<Bloque> f, Verificador ver, Salida salida) throws IOException, InterruptedException {
+        Bloque b;
+        try {
+            b = f.get();
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException re) throw re;
+            throw new IllegalStateException(e.getCause());
+        }
+        for (int h = 0; h < b.filas.length; h++) {
+            ver.fila(b.desde + h, b.filas[h]);
+            salida.fila(b.filas[h], b.json == null ? null : b.json[h]);
+        }
+    }
+
+    private static Bloque parsear(List<String> registros, int desde, char sep, List<String> tickers, boolean json) {
+        int n = tickers.size();
+        double[][] filas = new double[registros.size()][];
+        String[] texto = json ? new String[registros.size()] : null;
+        StringBuilder sb = json ? new StringBuilder() : null;
+        long[] q = new long[n];
+        for (int h = 0; h < filas.length; h++) {
+            int i = desde + h;
+            String reg = registros.get(h);
+            String rowTicker;
+            if (reg.indexOf('"') >= 0) {
+                // con comillas se separan los campos; sin ellas se leen en el lugar
+                String[] parts = campos(reg, sep);
+                if (parts.length < n+1) throw new IllegalArgumentException("Fila de correlaciones con menos columnas de las esperadas en la fila " + (i+1));
+                rowTicker = parts[0].trim();
+                for (int j = 0; j < n; j++) q[j] = celda(parts[j+1], 0, parts[j+1].length(), i, tickers.get(j));
+            } else {
+                int fin = reg.indexOf(sep);
+                if (fin < 0) fin = reg.length();
+                rowTicker = reg.substring(0, fin).trim();
+                for (int j = 0; j < n; j++) {
+                    if (fin >= reg.length()) throw new IllegalArgumentException("Fila de correlaciones con menos columnas de las esperadas en la fila " + (i+1));
+                    int ini = fin + 1;
+                    fin = reg.indexOf(sep, ini);
+                    if (fin < 0) fin = reg.length();
+                    q[j] = celda(reg, ini, fin, i, tickers.get(j));
+                }
+            }
+            if (!rowTicker.equals(tickers.get(i)))
+                throw new IllegalArgumentException("El orden de fila no coincide con encabezados: " + rowTicker + " vs " + tickers.get(i));
+            q[i] = 1_000_000L;                      // diagonal a 1.0 por seguridad
+            double[] fila = new double[n];
+            for (int j = 0; j < n; j++) fila[j] = q[j] / 1_000_000d;
+            filas[h] = fila;
+            if (json) {
+                sb.setLength(0);
+                sb.append('[');
+                for (int j = 0; j < n; j++) {
+                    if (j > 0) sb.append(',');
+                    decimal(sb, q[j]);
+                }
+                texto[h] = sb.append(']').toString();
             }
+        }
+        return new Bloque(desde, filas, texto);
+    }
 
-        } catch (Exception e) {
-            e.printStackTrace();
-            System.err.println("ERROR: " + e.getMessage());
-            System.exit(1);
+    // micros de la celda de la fila i y la columna del ticker dado, con ambas en el error
+    private static long celda(String s, int desde, int hasta, int i, String columna) {
+        try {
+            return micros(s, desde, hasta);
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Correlación inválida en la fila " + (i+1) + ", columna " + columna + ": " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * round(x·10⁶) del número en s[desde, hasta) (con espacios, coma o punto decimal),
+     * igual que Math.round(Double.parseDouble(s)·10⁶), pero leyendo los dígitos sin armar
+     * el double ni substrings. Sin exponente, con |x| < 10 y lejos del empate (el resto
+     * después del 6º decimal a más de 10⁻⁷ de 0.5) el redondeo decimal coincide con el del
+     * double; si no, se usa parseDouble. Un valor vacío, no numérico, NaN o infinito
+     * es IllegalArgumentException.
+     */
+    static long micros(String s, int desde, int hasta) {
+        while (desde < hasta && s.charAt(desde) <= ' ') desde++;
+        while (hasta > desde && s.charAt(hasta - 1) <= ' ') hasta--;
+        int i = desde;
+        boolean neg = false;
+        if (i < hasta && (s.charAt(i) == '-' || s.charAt(i) == '+')) neg = s.charAt(i++) == '-';
+        long entero = 0;
+        int digitos = 0;
+        for (char c; i < hasta && (c = s.charAt(i)) >= '0' && c <= '9'; i++, digitos++) entero = entero * 10 + (c - '0');
+        long frac = 0, resto = 0;                    // 6 decimales y los 12 siguientes
+        int decimales = 0;
+        if (i < hasta && (s.charAt(i) == '.' || s.charAt(i) == ',')) {
+            for (i++; i < hasta; i++, decimales++) {
+                char c = s.charAt(i);
+                if (c < '0' || c > '9') break;
+                if (decimales < 6) frac = frac * 10 + (c - '0');
+                else if (decimales < 18) resto = resto * 10 + (c - '0');
+            }
+        }
+        if (i != hasta || digitos + decimales == 0 || digitos > 1) return microsLento(s, desde, hasta);
+        for (int d = decimales; d < 6; d++) frac *= 10;
+        for (int d = Math.max(decimales, 6); d < 18; d++) resto *= 10;
+        long medio = 500_000_000_000L;
+        if (Math.abs(resto - medio) <= 100_000L) return microsLento(s, desde, hasta);
+        long m = entero * 1_000_000L + frac + (resto > medio ? 1 : 0);
+        return neg ? -m : m;
+    }
+
+    private static long microsLento(String s, int desde, int hasta) {
+        String t = s.substring(desde, hasta).trim();
+        double v;
+        try {
+            v = Double.parseDouble(t.replace(",","."));
+        } catch (NumberFormatException e) {
+            v = Double.NaN;
+        }
+        if (!Double.isFinite(v)) throw new IllegalArgumentException("valor no numérico '" + t + "'");
+        return Math.round(v*1_000_000d);
+    }
+
+    // q·10⁻⁶ como decimal exacto (0.25, -0.000001, 1.0): se lee como el mismo double que q / 10⁶
+    private static void decimal(StringBuilder sb, long q) {
+        if (q < 0) { sb.append('-'); q = -q; }
+        sb.append(q / 1_000_000L).append('.');
+        long f = q % 1_000_000L;
+        if (f == 0) { sb.append('0'); return; }
+        long p = 100_000L;                           // peso del próximo decimal
+        while (f % 10 == 0) { f /= 10; p /= 10; }    // sin ceros finales
+        for (; p > 0; p /= 10) sb.append((char) ('0' + f / p % 10));
+    }
+
+    /**
+     * Rango y simetría de las filas a medida que llegan, con memoria O(n). Los valores
+     * ya están redondeados a 6 decimales, así que q_ij = ρ_ij·10⁶ es entero y la simetría
+     * debe ser exacta (CargadorDatosJson admite 1e-9). Con u_j enteros al azar, la fila i
+     * debajo de la diagonal se compara contra la columna i encima de ella mediante
+     * sum_{j<i} q_ij·u_j = sum_{j<i} q_ji·u_j (mod 2⁶⁴), acumulando el lado derecho al
+     * pasar por las filas anteriores. Una asimetría pasa solo si la suma se anula por azar.
+     */
+    private static final class Verificador {
+        private final long[] u, columna;
+
+        Verificador(int n) {
+            SplittableRandom r = new SplittableRandom(1);
+            u = new long[n];
+            for (int j = 0; j < n; j++) u[j] = r.nextLong() | 1L;
+            columna = new long[n];
+        }
+
+        void fila(int i, double[] f) {
+            long fila = 0L;
+            for (int j = 0; j < i; j++) fila += Math.round(f[j] * 1_000_000d) * u[j];
+            if (fila != columna[i]) throw new IllegalArgumentException("ρ no simétrica: la fila " + i + " no coincide con la columna " + i);
+            for (int j = i + 1; j < f.length; j++) {
+                if (f[j] < -1.0 || f[j] > 1.0) throw new IllegalArgumentException("ρ fuera de [-1,1] ("+i+","+j+"): "+f[j]);
+                columna[j] += Math.round(f[j] * 1_000_000d) * u[i];
+            }
+        }
+    }
+
+    /** Destino de la conversión: recibe los activos al crearse y después las n filas en orden */
+    private interface Salida extends Closeable {
+        /** true si quiere cada fila ya formateada como arreglo JSON */
+        boolean json();
+
+        void fila(double[] fila, String json) throws IOException;
+    }
+
+    // Mismo formato que data/mercado.json (compacto, como GeneradorMercado)
+    private static final class SalidaJson implements Salida {
+        private final JsonWriter w;
+
+        SalidaJson(Path destino, List<Activo> activos) throws IOException {
+            w = new JsonWriter(Files.newBufferedWriter(destino, StandardCharsets.UTF_8));
+            w.beginObject();
+            w.name("activos").beginArray();
+            for (Activo a : activos) {
+                w.beginObject();
+                w.name("ticker").value(a.ticker);
+                w.name("tipo").value(a.tipo);
+                w.name("sector").value(a.sector);
+                w.name("retorno").value(a.retorno);
+                w.name("sigma").value(a.sigma);
+                w.name("montoMin").value(a.montoMin);
+                w.endObject();
+            }
+            w.endArray();
+            w.name("correlaciones").beginArray();
+        }
+
+        @Override public boolean json() { return true; }
+
+        @Override
+        public void fila(double[] fila, String json) throws IOException {
+            w.jsonValue(json);
+        }
+
+        @Override
+        public void close() throws IOException {
+            try (w) {
+                w.endArray();
+                w.endObject();
+            }
+        }
+    }
+
+    private static final class SalidaSnapshot implements Salida {
+        private final SnapshotBinario.Escritor w;
+
+        SalidaSnapshot(Path destino, List<Activo> activos) throws IOException {
+            w = new SnapshotBinario.Escritor(destino, activos, true);
+        }
+
+        @Override public boolean json() { return false; }
+
+        @Override
+        public void fila(double[] fila, String json) throws IOException {
+            w.fila(fila);
+        }
+
+        @Override
+        public void close() throws IOException {
+            w.close();
         }
     }
 
@@ -145,71 +441,124 @@ private static Map<String,String> mapearColumnas(Set<String> cols) {
     return m;
 }
 
-    private static class Correlacion {
-        List<String> tickers;
-        double[][] matriz;
-    }
-
-    private static Correlacion leerMatrizCorrelaciones(String ruta) throws IOException {
-        List<String> lines = Files.readAllLines(Path.of(ruta));
-        if (lines.isEmpty()) throw new IllegalArgumentException("correlaciones CSV vacío");
-
-        // Parse simple: primera fila = encabezados (vacía + tickers), primera col de cada fila = ticker
-        String[] header = splitCsv(lines.get(0));
-        List<String> tickers = new ArrayList<>();
-        for (int i = 1; i < header.length; i++) tickers.add(header[i].trim());
+    // ---------- CSV ----------
+
+    /**
+     * Registros de un CSV con comillas (RFC 4180), leídos por bloques de caracteres. Un
+     * registro termina en un salto de línea fuera de comillas, así que puede ocupar varias
+     * líneas; se devuelve sin el \r final y sin BOM.
+     */
+    static final class LectorCsv implements Closeable {
+        private final Reader in;
+        private final char[] buf = new char[1 << 16];
+        private final StringBuilder sb = new StringBuilder();
+        private int pos, lim;
+        private boolean primero = true;
+
+        LectorCsv(Reader in) { this.in = in; }
+
+        /** El próximo registro, o null al final */
+        String registro() throws IOException {
+            sb.setLength(0);
+            boolean comillas = false;
+            while (true) {
+                if (pos == lim) {
+                    lim = Math.max(0, in.read(buf, 0, buf.length));
+                    pos = 0;
+                    if (lim == 0) return sb.length() > 0 ? fin() : null;
+                }
+                int ini = pos;
+                while (pos < lim) {
+                    char c = buf[pos];
+                    if (c == '"') comillas = !comillas;
+                    else if (c == '\n' && !comillas) {
+                        sb.append(buf, ini, pos - ini);
+                        pos++;
+                        return fin();
+                    }
+                    pos++;
+                }
+                sb.append(buf, ini, pos - ini);
+            }
+        }
 
-        int n = tickers.size();
-        double[][] m = new double[n][n];
-
-        for (int i = 1; i < lines.size(); i++) {
-            String[] parts = splitCsv(lines.get(i));
-            if (parts.length < n+1) throw new IllegalArgumentException("Fila de correlaciones con menos columnas de las esperadas en línea " + (i+1));
-            String rowTicker = parts[0].trim();
-            if (!rowTicker.equals(tickers.get(i-1)))
-                throw new IllegalArgumentException("El orden de fila no coincide con encabezados: " + rowTicker + " vs " + tickers.get(i-1));
-            for (int j = 0; j < n; j++) {
-                String val = parts[j+1].trim().replace(",",".");
-                m[i-1][j] = Double.parseDouble(val);
+        private String fin() {
+            int largo = sb.length();
+            if (largo > 0 && sb.charAt(largo - 1) == '\r') sb.setLength(largo - 1);
+            if (primero) {
+                primero = false;
+                if (sb.length() > 0 && sb.charAt(0) == '\uFEFF') sb.deleteCharAt(0);
             }
+            return sb.toString();
         }
 
-        Correlacion c = new Correlacion();
-        c.tickers = tickers;
-        c.matriz = m;
-        return c;
+        @Override
+        public void close() throws IOException { in.close(); }
     }
 
-    private static String[] splitCsv(String line) {
-        // CSV simple (sin comillas escapadas). Si tus archivos tienen comillas con comas, usá un parser más robusto.
-        return line.split(";", -1).length > 1 ? line.split(";", -1) : line.split(",", -1);
+    // ';' si el encabezado tiene alguno fuera de comillas, si no ','
+    private static char separador(String encabezado) {
+        boolean comillas = false;
+        for (int i = 0; i < encabezado.length(); i++) {
+            char c = encabezado.charAt(i);
+            if (c == '"') comillas = !comillas;
+            else if (c == ';' && !comillas) return ';';
+        }
+        return ',';
     }
 
-    private static List<List<Double>> toList2D(double[][] a) {
-        List<List<Double>> out = new ArrayList<>();
-        for (double[] row : a) {
-            List<Double> r = new ArrayList<>(row.length);
-            for (double v : row) r.add(Math.round(v*1_000_000d)/1_000_000d);
-            out.add(r);
+    /** Campos de un registro: "..." admite el separador, saltos de línea y "" como comilla */
+    static String[] campos(String s, char sep) {
+        List<String> out = new ArrayList<>();
+        StringBuilder sb = new StringBuilder();
+        int i = 0, n = s.length();
+        while (true) {
+            if (i < n && s.charAt(i) == '"') {
+                sb.setLength(0);
+                i++;
+                while (i < n) {
+                    char c = s.charAt(i++);
+                    if (c != '"') sb.append(c);
+                    else if (i < n && s.charAt(i) == '"') { sb.append('"'); i++; }
+                    else break;
+                }
+                int fin = s.indexOf(sep, i);
+                if (fin < 0) fin = n;
+                sb.append(s, i, fin);                   // lo que quede después de la comilla de cierre
+                out.add(sb.toString());
+                i = fin;
+            } else {
+                int fin = s.indexOf(sep, i);
+                if (fin < 0) fin = n;
+                out.add(s.substring(i, fin));
+                i = fin;
+            }
+            if (i >= n) break;
+            i++;                                        // el separador
         }
-        return out;
+        return out.toArray(new String[0]);
     }
-        private static List<Map<String,String>> leerCsvComoMaps(String ruta) throws IOException {
-        List<String> lines = Files.readAllLines(Path.of(ruta));
-        if (lines.isEmpty()) throw new IllegalArgumentException("CSV vacío: " + ruta);
-
-        String[] headers = splitCsv(lines.get(0));
-        List<Map<String,String>> rows = new ArrayList<>();
 
-        for (int i = 1; i < lines.size(); i++) {
-            String[] values = splitCsv(lines.get(i));
-            Map<String,String> row = new LinkedHashMap<>();
-            for (int j = 0; j < headers.length && j < values.length; j++) {
-                row.put(headers[j].trim(), values[j].trim());
+    private static List<Map<String,String>> leerCsvComoMaps(String ruta) throws IOException {
+        try (LectorCsv in = new LectorCsv(Files.newBufferedReader(Path.of(ruta), StandardCharsets.UTF_8))) {
+            String encabezado = in.registro();
+            if (encabezado == null) throw new IllegalArgumentException("CSV vacío: " + ruta);
+            char sep = separador(encabezado);
+            String[] headers = campos(encabezado, sep);
+            List<Map<String,String>> rows = new ArrayList<>();
+
+            String linea;
+            while ((linea = in.registro()) != null) {
+                if (linea.isBlank()) continue;
+                String[] values = campos(linea, sep);
+                Map<String,String> row = new LinkedHashMap<>();
+                for (int j = 0; j < headers.length && j < values.length; j++) {
+                    row.put(headers[j].trim(), values[j].trim());
+                }
+                rows.add(row);
             }
-            rows.add(row);
+            return rows;
         }
-        return rows;
     }
 
 }
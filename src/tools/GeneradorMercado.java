@@ -0,0 +1,250 @@
+package tools;
+
+import com.google.gson.stream.JsonWriter;
+import io.SnapshotBinario;
+import model.*;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.util.*;
+
+// Generador de mercados sintéticos compatibles con data/mercado.json, de cualquier tamaño.
+// Uso: GeneradorMercado --n=5000 [--salida=data/mercado_5000.json|.bin] [--semilla=1] [--factores=3]
+//        [--tipos=Accion:2,Bono Soberano:1,...] [--sectores=Energia:1,Salud:1,...]
+//        [--sigmaMin=0.02] [--sigmaMax=0.8] [--retornoBase=0.03] [--primaRiesgo=0.2] [--ruidoRetorno=0.02]
+//        [--lotes=10000,25000,50000] [--decimales=6]
+//
+// Correlaciones: modelo de factores. Cada activo tiene cargas b_i sobre K factores globales y
+// sobre el factor de su sector, con |b_i|² = h_i en [0.2, 0.9]; ρ_ij = b_i·b_j y ρ_ii = 1.
+// Es ρ = B·Bᵀ + diag(1 - h): semidefinida positiva, con autovalor mínimo >= 0.1.
+// Redondear a d decimales mueve cada autovalor a lo sumo n·0.5·10^-d (Gershgorin), así que
+// mientras eso sea < 0.1 la matriz escrita sigue siendo semidefinida positiva; se avisa si no.
+//
+// Sigma log-uniforme en [sigmaMin, sigmaMax]; retorno = retornoBase + primaRiesgo·sigma + N(0, ruido),
+// acotado a [-1, 1]. Tipo y sector por sorteo con los pesos dados; montoMin uniforme entre los lotes.
+// Misma semilla y parámetros => mismo archivo. Se escribe fila por fila (memoria O(n·K), no O(n²)).
+// Con salida .bin se escribe un snapshot binario (io.SnapshotBinario, triangular) en lugar del JSON.
+
+public class GeneradorMercado {
+
+    private static final double H_MIN = 0.2, H_MAX = 0.9;
+
+    /** Parámetros de generación (los valores por defecto imitan data/mercado.json) */
+    public static final class Config {
+        public int n = 1000;
+        public long semilla = 1;
+        public int factores = 3;
+        public LinkedHashMap<String, Double> tipos = pesos("Accion:10,Bono Soberano:10,CEDEAR:17,ETF:11,Obligacion Negociable:12");
+        public LinkedHashMap<String, Double> sectores = pesos("Agro:11,Consumo:9,Energia:11,Finanzas:8,Salud:12,Tecnologia:9");
+        public double sigmaMin = 0.02, sigmaMax = 0.8;
+        public double retornoBase = 0.03, primaRiesgo = 0.2, ruidoRetorno = 0.02;
+        public double[] lotes = {10_000, 15_000, 20_000, 25_000, 30_000, 35_000, 40_000, 45_000, 50_000};
+        public int decimales = 6;
+
+        void validar() {
+            if (n < 1) throw new IllegalArgumentException("n debe ser >= 1");
+            if (factores < 0) throw new IllegalArgumentException("factores debe ser >= 0");
+            if (tipos.isEmpty() || sectores.isEmpty()) throw new IllegalArgumentException("faltan tipos o sectores");
+            if (!(sigmaMin > 0) || sigmaMax < sigmaMin || sigmaMax > 1.5)
+                throw new IllegalArgumentException("se requiere 0 < sigmaMin <= sigmaMax <= 1.5");
+            if (lotes.length == 0) throw new IllegalArgumentException("faltan lotes");
+            for (double l : lotes) if (!(l > 0)) throw new IllegalArgumentException("lote inválido: " + l);
+            if (decimales < 1 || decimales > 15) throw new IllegalArgumentException("decimales fuera de [1, 15]");
+        }
+    }
+
+    /** Activos y cargas factoriales; las correlaciones se calculan a demanda */
+    private static final class Modelo {
+        final List<Activo> activos;
+        final double[][] global;        // n x K
+        final double[] propio;          // carga sobre el factor del sector
+        final int[] sector;
+
+        Modelo(List<Activo> activos, double[][] global, double[] propio, int[] sector) {
+            this.activos = activos;
+            this.global = global;
+            this.propio = propio;
+            this.sector = sector;
+        }
+
+        double rho(int i, int j) {
+            if (i == j) return 1.0;
+            double s = sector[i] == sector[j] ? propio[i] * propio[j] : 0.0;
+            double[] gi = global[i], gj = global[j];
+            for (int k = 0; k < gi.length; k++) s += gi[k] * gj[k];
+            return s;
+        }
+    }
+
+    public static void main(String[] args) {
+        try {
+            Config c = new Config();
+            String salida = null;
+            for (String a : args) {
+                int eq = a.indexOf('=');
+                if (!a.startsWith("--") || eq < 0) throw new IllegalArgumentException("Argumento inválido: " + a);
+                String k = a.substring(2, eq), v = a.substring(eq + 1);
+                switch (k) {
+                    case "n":            c.n = Integer.parseInt(v); break;
+                    case "salida":       salida = v; break;
+                    case "semilla":      c.semilla = Long.parseLong(v); break;
+                    case "factores":     c.factores = Integer.parseInt(v); break;
+                    case "tipos":        c.tipos = pesos(v); break;
+                    case "sectores":     c.sectores = pesos(v); break;
+                    case "sigmaMin":     c.sigmaMin = Double.parseDouble(v); break;
+                    case "sigmaMax":     c.sigmaMax = Double.parseDouble(v); break;
+                    case "retornoBase":  c.retornoBase = Double.parseDouble(v); break;
+                    case "primaRiesgo":  c.primaRiesgo = Double.parseDouble(v); break;
+                    case "ruidoRetorno": c.ruidoRetorno = Double.parseDouble(v); break;
+                    case "lotes":        c.lotes = Arrays.stream(v.split(",")).mapToDouble(s -> Double.parseDouble(s.trim())).toArray(); break;
+                    case "decimales":    c.decimales = Integer.parseInt(v); break;
+                    default: throw new IllegalArgumentException("Parámetro desconocido: " + k);
+                }
+            }
+            Path out = Path.of(salida != null ? salida : "data/mercado_" + c.n + ".json");
+            if (out.getParent() != null) Files.createDirectories(out.getParent());
+
+            long t0 = System.nanoTime();
+            if (out.toString().endsWith(".bin")) {
+                escribirSnapshot(c, out);
+            } else {
+                try (Writer w = Files.newBufferedWriter(out, StandardCharsets.UTF_8)) {
+                    escribir(c, w);
+                }
+            }
+            System.out.printf("OK -> %s (%d activos, %.1f MB, %d ms)%n", out.toAbsolutePath(), c.n,
+                    Files.size(out) / 1e6, (System.nanoTime() - t0) / 1_000_000);
+        } catch (Exception e) {
+            e.printStackTrace();
+            System.err.println("ERROR: " + e.getMessage());
+            System.exit(1);
+        }
+    }
+
+    /** Escribe el mercado como JSON (formato de data/mercado.json) sin armar la matriz en memoria */
+    public static void escribir(Config c, Writer destino) throws IOException {
+        c.validar();
+        double cota = c.n * 0.5 * Math.pow(10, -c.decimales);
+        if (cota >= 1 - H_MAX)
+            System.err.printf("Aviso: con %d decimales el redondeo puede romper la semidefinición (hasta %.3g >= %.1f)%n",
+                    c.decimales, cota, 1 - H_MAX);
+
+        Modelo mod = modelo(c);
+        double escala = Math.pow(10, c.decimales);
+        JsonWriter w = new JsonWriter(destino);
+        w.beginObject();
+        w.name("activos").beginArray();
+        for (Activo a : mod.activos) {
+            w.beginObject();
+            w.name("ticker").value(a.ticker);
+            w.name("tipo").value(a.tipo);
+            w.name("sector").value(a.sector);
+            w.name("retorno").value(a.retorno);
+            w.name("sigma").value(a.sigma);
+            w.name("montoMin").value(a.montoMin);
+            w.endObject();
+        }
+        w.endArray();
+        w.name("correlaciones").beginArray();
+        for (int i = 0; i < c.n; i++) {
+            w.beginArray();
+            for (int j = 0; j < c.n; j++) w.value(Math.round(mod.rho(i, j) * escala) / escala);
+            w.endArray();
+        }
+        w.endArray();
+        w.endObject();
+        w.flush();
+    }
+
+    /** El mismo mercado que {@link #escribir} como snapshot binario triangular, fila por fila */
+    public static void escribirSnapshot(Config c, Path destino) throws IOException {
+        c.validar();
+        Modelo mod = modelo(c);
+        double escala = Math.pow(10, c.decimales);
+        double[] fila = new double[c.n];
+        try (SnapshotBinario.Escritor w = new SnapshotBinario.Escritor(destino, mod.activos, true)) {
+            for (int i = 0; i < c.n; i++) {
+                for (int j = i + 1; j < c.n; j++) fila[j] = Math.round(mod.rho(i, j) * escala) / escala;
+                w.fila(fila);
+            }
+        }
+    }
+
+    /** El mismo mercado que {@link #escribir}, en memoria (la matriz ocupa 8·n² bytes) */
+    public static Mercado generar(Config c) {
+        c.validar();
+        Modelo mod = modelo(c);
+        double escala = Math.pow(10, c.decimales);
+        double[][] rho = new double[c.n][c.n];
+        for (int i = 0; i < c.n; i++)
+            for (int j = 0; j < c.n; j++) rho[i][j] = Math.round(mod.rho(i, j) * escala) / escala;
+        return new Mercado(mod.activos, rho);
+    }
+
+    private static Modelo modelo(Config c) {
+        Random rnd = new Random(c.semilla);
+        String[] nombresTipo = c.tipos.keySet().toArray(new String[0]);
+        String[] nombresSector = c.sectores.keySet().toArray(new String[0]);
+        double[] acTipo = acumulados(c.tipos), acSector = acumulados(c.sectores);
+        int ancho = Integer.toString(c.n - 1).length();
+
+        List<Activo> activos = new ArrayList<>(c.n);
+        double[][] global = new double[c.n][c.factores];
+        double[] propio = new double[c.n];
+        int[] sector = new int[c.n];
+        double logMin = Math.log(c.sigmaMin), logMax = Math.log(c.sigmaMax);
+        for (int i = 0; i < c.n; i++) {
+            int t = sortear(acTipo, rnd.nextDouble());
+            int s = sortear(acSector, rnd.nextDouble());
+            double sigma = Math.exp(logMin + (logMax - logMin) * rnd.nextDouble());
+            double ret = c.retornoBase + c.primaRiesgo * sigma + c.ruidoRetorno * rnd.nextGaussian();
+            ret = Math.max(-1.0, Math.min(1.0, ret));
+            double monto = c.lotes[rnd.nextInt(c.lotes.length)];
+            String ticker = String.format("G%0" + ancho + "d", i);
+            activos.add(new Activo(ticker, nombresTipo[t], nombresSector[s], ret, sigma, monto));
+
+            // cargas: el primer factor global es "el mercado" (sesgo positivo), luego se escalan a |b|² = h
+            double[] g = global[i];
+            double norma = 0.0;
+            for (int k = 0; k < c.factores; k++) {
+                g[k] = rnd.nextGaussian() + (k == 0 ? 1.5 : 0.0);
+                norma += g[k] * g[k];
+            }
+            double p = Math.abs(rnd.nextGaussian()) + 0.5;
+            norma += p * p;
+            double h = H_MIN + (H_MAX - H_MIN) * rnd.nextDouble();
+            double f = Math.sqrt(h / norma);
+            for (int k = 0; k < c.factores; k++) g[k] *= f;
+            propio[i] = p * f;
+            sector[i] = s;
+        }
+        return new Modelo(activos, global, propio, sector);
+    }
+
+    private static LinkedHashMap<String, Double> pesos(String spec) {
+        LinkedHashMap<String, Double> m = new LinkedHashMap<>();
+        for (String par : spec.split(",")) {
+            int dp = par.lastIndexOf(':');
+            String nombre = (dp < 0 ? par : par.substring(0, dp)).trim();
+            double w = dp < 0 ? 1.0 : Double.parseDouble(par.substring(dp + 1).trim());
+            if (nombre.isEmpty() || !(w > 0)) throw new IllegalArgumentException("Peso inválido: " + par);
+            m.merge(nombre, w, Double::sum);
+        }
+        return m;
+    }
+
+    private static double[] acumulados(Map<String, Double> pesos) {
+        double[] ac = new double[pesos.size()];
+        double total = 0.0;
+        int k = 0;
+        for (double w : pesos.values()) ac[k++] = total += w;
+        for (k = 0; k < ac.length; k++) ac[k] /= total;
+        return ac;
+    }
+
+    private static int sortear(double[] acumulados, double u) {
+        for (int k = 0; k < acumulados.length - 1; k++) if (u < acumulados[k]) return k;
+        return acumulados.length - 1;
+    }
+}
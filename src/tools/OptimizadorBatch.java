@@ -0,0 +1,214 @@
+package tools;
+
+import com.google.gson.*;
+import io.dto.*;
+import model.*;
+import optimizacion.BBPortafolio;
+import optimizacion.CacheResultados;
+import validacion.*;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Optimizador por lotes: un Perfil por línea (JSONL) contra un único Mercado validado.
+// Uso: OptimizadorBatch <perfiles.jsonl> [salida.jsonl|-] [mercado.json|.bin] [hilos] [tiempoMaximoMs] [capacidadCache]
+//  - las líneas se leen de a una; como mucho 2 × hilos clientes están en vuelo
+//    (el lector espera si el pool va atrasado), así que la memoria no crece con el archivo
+//  - se escribe una línea de resultado por cliente, en orden de finalización
+//  - el error de un cliente (JSON inválido, perfil inválido, sin semilla factible...)
+//    queda en su línea con ok=false y el lote sigue
+//  - clientes con las mismas restricciones efectivas reusan el resultado (CacheResultados,
+//    10000 entradas por defecto, 0 = sin cache)
+
+public class OptimizadorBatch {
+
+    private static final String RUTA_MERCADO = "data/mercado.json";
+
+    /** Totales de una corrida */
+    public static final class Resumen {
+        public final long clientes, ok, errores, ms;
+
+        Resumen(long clientes, long ok, long errores, long ms) {
+            this.clientes = clientes;
+            this.ok = ok;
+            this.errores = errores;
+            this.ms = ms;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("clientes=%d ok=%d errores=%d ms=%d (%.1f clientes/s)",
+                    clientes, ok, errores, ms, ms > 0 ? clientes * 1000.0 / ms : 0.0);
+        }
+    }
+
+    public static void main(String[] args) {
+        if (args.length < 1) {
+            System.err.println("Uso: OptimizadorBatch <perfiles.jsonl> [salida.jsonl|-] [mercado.json|.bin] [hilos] [tiempoMaximoMs] [capacidadCache]");
+            System.exit(2);
+        }
+        String salida = args.length > 1 ? args[1] : "-";
+        String rutaMercado = args.length > 2 ? args[2] : RUTA_MERCADO;
+        int hilos = args.length > 3 ? Integer.parseInt(args[3]) : Runtime.getRuntime().availableProcessors();
+        BBPortafolio.Opciones op = new BBPortafolio.Opciones();
+        if (args.length > 4) op.tiempoMaximoMs = Long.parseLong(args[4]);
+        int capacidadCache = args.length > 5 ? Integer.parseInt(args[5]) : 10_000;
+        CacheResultados cache = capacidadCache > 0 ? new CacheResultados(capacidadCache) : null;
+
+        try {
+            Mercado m = SnapshotMercado.cargarValidado(rutaMercado);
+
+            Resumen r;
+            try (BufferedReader in = Files.newBufferedReader(Path.of(args[0]), StandardCharsets.UTF_8);
+                 Writer out = salida.equals("-")
+                         ? new BufferedWriter(new OutputStreamWriter(System.out, StandardCharsets.UTF_8))
+                         : Files.newBufferedWriter(Path.of(salida), StandardCharsets.UTF_8)) {
+                r = procesar(m, in, out, hilos, op, cache);
+            }
+            System.err.println(r);
+            if (cache != null) System.err.println("Cache: " + cache.estadisticas());
+        } catch (Exception e) {
+            System.err.println("ERROR: " + e.getMessage());
+            e.printStackTrace();
+            System.exit(1);
+        }
+    }
+
+    /**
+     * Optimiza cada línea de {@code in} (un {@link PerfilJson}) y escribe un
+     * {@link ResultadoJson} por línea en {@code out}. Cada cliente corre con las
+     * opciones dadas en un worker del pool; con cache (puede ser null) los
+     * clientes de iguales restricciones efectivas se resuelven una sola vez.
+     * No cierra in ni out.
+     */
+    public static Resumen procesar(Mercado m, BufferedReader in, Writer out, int hilos, BBPortafolio.Opciones op,
+                                   CacheResultados cache) throws IOException, InterruptedException {
+        if (hilos < 1) throw new IllegalArgumentException("hilos debe ser >= 1");
+        long t0 = System.nanoTime();
+        Gson gson = new GsonBuilder().disableHtmlEscaping().create();
+        Semaphore enVuelo = new Semaphore(2 * hilos);
+        AtomicLong ok = new AtomicLong(), errores = new AtomicLong();
+        Throwable[] falla = {null};       // primer error de escritura o Error de un worker: corta la lectura
+
+        ExecutorService pool = Executors.newFixedThreadPool(hilos);
+        long linea = 0;
+        try {
+            String texto;
+            while ((texto = in.readLine()) != null) {
+                linea++;
+                if (texto.isBlank()) continue;
+                enVuelo.acquire();
+                final long nro = linea;
+                final String json = texto;
+                try {
+                    pool.execute(() -> {
+                        try {
+                            ResultadoJson res = optimizar(m, gson, json, nro, op, cache);
+                            (res.ok ? ok : errores).incrementAndGet();
+                            String s = gson.toJson(res);
+                            synchronized (out) {
+                                if (falla[0] == null) {
+                                    try {
+                                        out.write(s);
+                                        out.write('\n');
+                                    } catch (IOException e) {
+                                        falla[0] = e;
+                                    }
+                                }
+                            }
+                        } catch (Error e) {
+                            // optimizar ya devuelve los RuntimeException en el resultado
+                            synchronized (out) {
+                                if (falla[0] == null) falla[0] = e;
+                            }
+                        } finally {
+                            enVuelo.release();
+                        }
+                    });
+                } catch (RejectedExecutionException e) {
+                    enVuelo.release();
+                    throw e;
+                }
+                synchronized (out) {
+                    if (falla[0] != null) break;
+                }
+            }
+        } finally {
+            pool.shutdown();
+            pool.awaitTermination(Long.MAX_VALUE, TimeUnit.NANOSECONDS);
+        }
+        synchronized (out) {
+            if (falla[0] instanceof IOException) throw (IOException) falla[0];
+            if (falla[0] instanceof Error) throw (Error) falla[0];
+            out.flush();
+        }
+        return new Resumen(ok.get() + errores.get(), ok.get(), errores.get(), (System.nanoTime() - t0) / 1_000_000);
+    }
+
+    /** Un cliente: nunca lanza, los errores vuelven en el resultado (linea <= 0: sin número de línea) */
+    static ResultadoJson optimizar(Mercado m, Gson gson, String json, long linea, BBPortafolio.Opciones op,
+                                           CacheResultados cache) {
+        long t0 = System.nanoTime();
+        ResultadoJson r = new ResultadoJson();
+        if (linea > 0) {
+            r.linea = linea;
+            r.id = String.valueOf(linea);
+        }
+        try {
+            PerfilJson pj = gson.fromJson(json, PerfilJson.class);
+            if (pj == null) throw new IllegalArgumentException("línea vacía");
+            if (pj.id != null) r.id = pj.id;
+            if (pj.tipoPerfil == null) throw new IllegalArgumentException("falta 'tipoPerfil'");
+
+            Perfil p = new Perfil(pj.presupuesto, pj.maxPorActivo,
+                    pj.maxPorTipo == null ? Map.of() : pj.maxPorTipo,
+                    pj.maxPorSector == null ? Map.of() : pj.maxPorSector,
+                    pj.tipoPerfil, pj.retornoDeseado, pj.plazoAnios);
+            if (pj.riesgoMax != null) p = p.conRiesgoMax(pj.riesgoMax);
+            ValidadorPerfil.validar(p);
+
+            // mismo camino que App: sin semilla factible (la del greedy inicial del B&B) el cliente no tiene solución
+            // (la validación queda fuera de la cache: así un cliente sin cartera factible también se reusa)
+            // el plazo de op cuenta desde t0: lo que se esperó en la cache se descuenta
+            BBPortafolio.Resultado res = cache != null
+                    ? cache.obtener(m, p, op, inst -> resolver(inst, restante(op, t0)))
+                    : resolver(new Instancia(m, p), restante(op, t0));
+            try {
+                ValidadorAsignacion.validar(m, p, res.mejor);
+            } catch (IllegalArgumentException e) {
+                if (res.completo) throw e;
+                throw new IllegalArgumentException("sin cartera factible dentro del plazo (" + e.getMessage() + ")", e);
+            }
+
+            r.ok = true;
+            r.retorno = res.retorno;
+            r.riesgo = res.riesgo;
+            r.montos = res.mejor.getMontos();
+            r.completo = res.completo;
+            r.cotaSuperior = res.cotaSuperior;
+            r.nodos = res.nodosVisitados;
+        } catch (RuntimeException e) {
+            r.ok = false;
+            r.error = e instanceof JsonParseException ? "JSON inválido: " + e.getMessage() : e.getMessage();
+            if (r.error == null) r.error = e.getClass().getSimpleName();
+        }
+        r.ms = (System.nanoTime() - t0) / 1_000_000;
+        return r;
+    }
+
+    // op con tiempoMaximoMs descontado lo transcurrido desde t0 (al menos 1 ms)
+    private static BBPortafolio.Opciones restante(BBPortafolio.Opciones op, long t0) {
+        if (op.tiempoMaximoMs <= 0) return op;
+        BBPortafolio.Opciones o = new BBPortafolio.Opciones(op);
+        o.tiempoMaximoMs = Math.max(1, op.tiempoMaximoMs - (System.nanoTime() - t0) / 1_000_000);
+        return o;
+    }
+
+    private static BBPortafolio.Resultado resolver(Instancia inst, BBPortafolio.Opciones op) {
+        return BBPortafolio.maximizarRetorno(inst, op);
+    }
+}
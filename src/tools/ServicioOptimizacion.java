@@ -0,0 +1,193 @@
+package tools;
+
+import com.google.gson.*;
+import com.sun.net.httpserver.*;
+import io.dto.ResultadoJson;
+import model.Mercado;
+import optimizacion.BBPortafolio;
+import optimizacion.CacheResultados;
+
+import java.io.*;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Servicio HTTP local: carga y valida el Mercado una vez y optimiza perfiles por pedido.
+// Uso: ServicioOptimizacion [puerto] [mercado.json|.bin] [capacidadCache]
+//  - POST /optimizar?tiempoMs=N   cuerpo: un PerfilJson   respuesta: un ResultadoJson
+//      200 con cartera, 422 si el perfil es inválido o no tiene cartera factible,
+//      503 si no hubo lugar para resolverlo dentro del plazo, 413 si el cuerpo pasa de 64 KB
+//  - GET /salud                   mercado cargado y contadores
+//  - cada pedido corre en su propio hilo virtual; como mucho un solve por núcleo a la
+//    vez (los demás esperan turno, descontándolo de su plazo)
+//  - el plazo (tiempoMs, por defecto 10000, máximo 60000) cubre la espera y el B&B;
+//    si vence durante la búsqueda se devuelve el incumbente con completo=false
+//  - escucha solo en localhost
+
+public class ServicioOptimizacion {
+
+    private static final String RUTA_MERCADO = "data/mercado.json";
+    private static final long PLAZO_DEFECTO_MS = 10_000;
+    private static final long PLAZO_MAXIMO_MS = 60_000;
+    private static final int MAX_CUERPO = 64 * 1024;        // un perfil ocupa menos de 1 KB
+
+    private final Mercado mercado;
+    private final CacheResultados cache;          // puede ser null
+    private final Semaphore cupos;
+    private final int maxConcurrentes;
+    private final Gson gson = new GsonBuilder().disableHtmlEscaping().create();
+    private final AtomicLong atendidos = new AtomicLong(), rechazados = new AtomicLong(), fallidos = new AtomicLong();
+
+    public ServicioOptimizacion(Mercado mercado, CacheResultados cache, int maxConcurrentes) {
+        if (maxConcurrentes < 1) throw new IllegalArgumentException("maxConcurrentes debe ser >= 1");
+        this.mercado = Objects.requireNonNull(mercado);
+        this.cache = cache;
+        this.maxConcurrentes = maxConcurrentes;
+        this.cupos = new Semaphore(maxConcurrentes, true);
+    }
+
+    public static void main(String[] args) throws IOException {
+        int puerto = args.length > 0 ? Integer.parseInt(args[0]) : 8080;
+        String rutaMercado = args.length > 1 ? args[1] : RUTA_MERCADO;
+        int capacidadCache = args.length > 2 ? Integer.parseInt(args[2]) : 10_000;
+
+        Mercado m = SnapshotMercado.cargarValidado(rutaMercado);
+        ServicioOptimizacion s = new ServicioOptimizacion(m,
+                capacidadCache > 0 ? new CacheResultados(capacidadCache) : null,
+                Runtime.getRuntime().availableProcessors());
+        HttpServer server = s.iniciar(new InetSocketAddress("localhost", puerto));
+        System.err.printf("Escuchando en http://localhost:%d (%d activos, %d solves concurrentes)%n",
+                server.getAddress().getPort(), m.activos.size(), s.maxConcurrentes);
+    }
+
+    /** Arranca el servidor (un hilo virtual por pedido) y lo devuelve para poder detenerlo */
+    public HttpServer iniciar(InetSocketAddress direccion) throws IOException {
+        HttpServer server = HttpServer.create(direccion, 0);
+        server.setExecutor(Executors.newVirtualThreadPerTaskExecutor());
+        server.createContext("/optimizar", this::optimizar);
+        server.createContext("/salud", this::salud);
+        server.start();
+        return server;
+    }
+
+    private void optimizar(HttpExchange ex) throws IOException {
+        try (ex) {
+            if (!ex.getRequestMethod().equals("POST")) {
+                responder(ex, 405, error("usar POST"));
+                return;
+            }
+            long plazoMs;
+            try {
+                plazoMs = plazo(ex.getRequestURI());
+            } catch (IllegalArgumentException e) {
+                responder(ex, 400, error(e.getMessage()));
+                return;
+            }
+            long inicio = System.nanoTime();
+            String cuerpo = cuerpo(ex);
+            if (cuerpo == null) {
+                responder(ex, 413, error("cuerpo de más de " + MAX_CUERPO + " bytes"));
+                return;
+            }
+
+            // admisión: a lo sumo un solve por núcleo, esperando turno dentro del plazo
+            long restanteNs = plazoMs * 1_000_000L - (System.nanoTime() - inicio);
+            boolean admitido;
+            try {
+                admitido = restanteNs > 0 && cupos.tryAcquire(restanteNs, TimeUnit.NANOSECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                admitido = false;
+            }
+            if (!admitido) {
+                rechazados.incrementAndGet();
+                responder(ex, 503, error("sin capacidad dentro del plazo de " + plazoMs + " ms"));
+                return;
+            }
+
+            ResultadoJson r;
+            try {
+                long esperaMs = (System.nanoTime() - inicio) / 1_000_000;
+                BBPortafolio.Opciones op = new BBPortafolio.Opciones();
+                op.tiempoMaximoMs = Math.max(1, plazoMs - esperaMs);
+                r = OptimizadorBatch.optimizar(mercado, gson, cuerpo, 0, op, cache);
+                r.esperaMs = esperaMs;
+            } finally {
+                cupos.release();
+            }
+            (r.ok ? atendidos : fallidos).incrementAndGet();
+            responder(ex, r.ok ? 200 : 422, gson.toJson(r));
+        }
+    }
+
+    private void salud(HttpExchange ex) throws IOException {
+        try (ex) {
+            if (!ex.getRequestMethod().equals("GET")) {
+                responder(ex, 405, error("usar GET"));
+                return;
+            }
+            JsonObject o = new JsonObject();
+            o.addProperty("activos", mercado.activos.size());
+            o.addProperty("huella", mercado.huella());
+            o.addProperty("maxConcurrentes", maxConcurrentes);
+            o.addProperty("enCurso", maxConcurrentes - cupos.availablePermits());
+            o.addProperty("esperando", cupos.getQueueLength());
+            o.addProperty("atendidos", atendidos.get());
+            o.addProperty("fallidos", fallidos.get());
+            o.addProperty("rechazados", rechazados.get());
+            if (cache != null) o.add("cache", gson.toJsonTree(cache.estadisticas()));
+            responder(ex, 200, gson.toJson(o));
+        }
+    }
+
+    /** El cuerpo como texto, o null si pasa de MAX_CUERPO bytes (sin leer más que eso) */
+    private static String cuerpo(HttpExchange ex) throws IOException {
+        String largo = ex.getRequestHeaders().getFirst("Content-Length");
+        if (largo != null) {
+            try {
+                if (Long.parseLong(largo.trim()) > MAX_CUERPO) return null;
+            } catch (NumberFormatException e) {
+                // lo resuelve la lectura acotada
+            }
+        }
+        byte[] b = ex.getRequestBody().readNBytes(MAX_CUERPO + 1);
+        return b.length > MAX_CUERPO ? null : new String(b, StandardCharsets.UTF_8);
+    }
+
+    /** tiempoMs de la query, acotado a PLAZO_MAXIMO_MS */
+    private static long plazo(URI uri) {
+        String q = uri.getRawQuery();
+        if (q == null) return PLAZO_DEFECTO_MS;
+        for (String par : q.split("&")) {
+            if (!par.startsWith("tiempoMs=")) continue;
+            long v;
+            try {
+                v = Long.parseLong(par.substring("tiempoMs=".length()));
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException("tiempoMs inválido: " + par);
+            }
+            if (v < 1) throw new IllegalArgumentException("tiempoMs debe ser >= 1");
+            return Math.min(v, PLAZO_MAXIMO_MS);
+        }
+        return PLAZO_DEFECTO_MS;
+    }
+
+    private String error(String mensaje) {
+        JsonObject o = new JsonObject();
+        o.addProperty("ok", false);
+        o.addProperty("error", mensaje);
+        return gson.toJson(o);
+    }
+
+    private static void responder(HttpExchange ex, int codigo, String json) throws IOException {
+        byte[] b = json.getBytes(StandardCharsets.UTF_8);
+        ex.getResponseHeaders().set("Content-Type", "application/json; charset=utf-8");
+        ex.sendResponseHeaders(codigo, b.length);
+        try (OutputStream os = ex.getResponseBody()) {
+            os.write(b);
+        }
+    }
+}
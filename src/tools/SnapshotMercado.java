@@ -0,0 +1,64 @@
+package tools;
+
+import io.CargadorDatosJson;
+import io.SnapshotBinario;
+import model.Mercado;
+import validacion.ValidadorMercado;
+
+import java.io.IOException;
+import java.nio.file.*;
+
+// Convierte un mercado JSON a snapshot binario (io.SnapshotBinario), validándolo antes.
+// Uso: SnapshotMercado <mercado.json> [salida.bin] [--completa]
+//  - por defecto se guarda solo el triángulo superior de ρ (la mitad); --completa guarda n x n
+//  - OptimizadorBatch y ServicioOptimizacion aceptan el .bin en lugar del JSON y lo cargan
+//    sin parsear ni revalidar (ver cargarValidado)
+
+public class SnapshotMercado {
+
+    public static void main(String[] args) {
+        if (args.length < 1) {
+            System.err.println("Uso: SnapshotMercado <mercado.json> [salida.bin] [--completa]");
+            System.exit(2);
+        }
+        try {
+            boolean completa = false;
+            String salida = null;
+            for (int a = 1; a < args.length; a++) {
+                if (args[a].equals("--completa")) completa = true;
+                else salida = args[a];
+            }
+            Path in = Path.of(args[0]);
+            Path out = Path.of(salida != null ? salida : args[0].replaceFirst("\\.json$", "") + ".bin");
+            if (out.getParent() != null) Files.createDirectories(out.getParent());
+
+            long t0 = System.nanoTime();
+            Mercado m = CargadorDatosJson.cargarMercado(args[0]);
+            ValidadorMercado.validar(m);
+            long t1 = System.nanoTime();
+            SnapshotBinario.escribir(m, out, !completa);
+            long t2 = System.nanoTime();
+            SnapshotBinario.leer(out);
+            long t3 = System.nanoTime();
+            System.out.printf("OK -> %s (%d activos, JSON %.1f MB -> %.1f MB; JSON+validar %d ms, escribir %d ms, leer %d ms)%n",
+                    out.toAbsolutePath(), m.activos.size(), Files.size(in) / 1e6, Files.size(out) / 1e6,
+                    (t1 - t0) / 1_000_000, (t2 - t1) / 1_000_000, (t3 - t2) / 1_000_000);
+        } catch (Exception e) {
+            e.printStackTrace();
+            System.err.println("ERROR: " + e.getMessage());
+            System.exit(1);
+        }
+    }
+
+    /**
+     * Mercado listo para usar desde la ruta dada: un snapshot se lee tal cual (se
+     * validó al escribirlo y el CRC cubre el contenido); un JSON se carga y valida.
+     */
+    public static Mercado cargarValidado(String ruta) throws IOException {
+        Path p = Path.of(ruta);
+        if (SnapshotBinario.es(p)) return SnapshotBinario.leer(p);
+        Mercado m = CargadorDatosJson.cargarMercado(ruta);
+        ValidadorMercado.validar(m);
+        return m;
+    }
+}
@@ -4,92 +4,163 @@ import model.*;
 import java.util.*;
 
 public final class ValidadorAsignacion {
+    // Códigos de rechazo (bitmask) de evaluar(...): OK = 0
+    public static final int OK                 = 0;
+    public static final int EXCEDE_PRESUPUESTO = 1;
+    public static final int MONTO_MIN          = 1 << 1;
+    public static final int TOPE_ACTIVO        = 1 << 2;
+    public static final int TOPE_TIPO          = 1 << 3;
+    public static final int TOPE_SECTOR        = 1 << 4;
+    public static final int RIESGO             = 1 << 5;
+    public static final int CANTIDAD_ACTIVOS   = 1 << 6;
+    public static final int RETORNO_MINIMO     = 1 << 7;
+
+    // Cantidad de activos distintos permitida en una cartera
+    public static final int MIN_ACTIVOS = 3;
+    public static final int MAX_ACTIVOS = 6;
+
     private ValidadorAsignacion(){}
 
     public static void validar(Mercado m, Perfil p, Asignacion a){
         Objects.requireNonNull(m); Objects.requireNonNull(p); Objects.requireNonNull(a);
+        Instancia in = new Instancia(m, p);
+        validar(in, in.montos(a));
+    }
+
+    /** Igual que {@link #validar(Mercado, Perfil, Asignacion)} pero sobre montos indexados por activo */
+    public static void validar(Instancia in, double[] montos){
+        Objects.requireNonNull(in); Objects.requireNonNull(montos);
+        final int n = in.n;
 
         // --- sumas básicas
         double total = 0.0;
-        for (double v : a.getMontos().values()) total += v;
+        for (double v : montos) total += v;
 
-        if (total - p.presupuesto > 1e-9) {
-            throw new IllegalArgumentException(String.format("Excede presupuesto: %.2f > %.2f", total, p.presupuesto));
+        if (total - in.presupuesto > 1e-9) {
+            throw new IllegalArgumentException(String.format("Excede presupuesto: %.2f > %.2f", total, in.presupuesto));
         }
 
         // --- por activo: montoMin y tope por activo
-        double topePorActivoAbs = p.maxPorActivo * p.presupuesto;
-        for (Map.Entry<String,Double> e : a.getMontos().entrySet()) {
-            String tkr = e.getKey();
-            double monto = e.getValue();
+        for (int i = 0; i < n; i++) {
+            double monto = montos[i];
             if (monto <= 0) continue;
 
-            int idx = m.indexOf(tkr);
-            if (idx < 0) throw new IllegalArgumentException("Ticker inexistente: " + tkr);
-            Activo act = m.activos.get(idx);
-
-            if (monto + 1e-9 < act.montoMin) {
-                throw new IllegalArgumentException(String.format("Monto < montoMin en %s: %.2f < %.2f", tkr, monto, act.montoMin));
+            if (monto + 1e-9 < in.montoMin[i]) {
+                throw new IllegalArgumentException(String.format("Monto < montoMin en %s: %.2f < %.2f", in.ticker[i], monto, in.montoMin[i]));
             }
-            if (monto - topePorActivoAbs > 1e-9) {
-                throw new IllegalArgumentException(String.format("Excede tope por activo en %s: %.2f > %.2f", tkr, monto, topePorActivoAbs));
+            if (monto - in.topePorActivoAbs > 1e-9) {
+                throw new IllegalArgumentException(String.format("Excede tope por activo en %s: %.2f > %.2f", in.ticker[i], monto, in.topePorActivoAbs));
             }
         }
 
         // --- límites por tipo/sector
-        Map<String,Double> usoTipo = new HashMap<>();
-        Map<String,Double> usoSector = new HashMap<>();
-        for (Map.Entry<String,Double> e : a.getMontos().entrySet()) {
-            String tkr = e.getKey();
-            double monto = e.getValue();
+        double[] usoTipo = new double[in.cantidadTipos()];
+        double[] usoSector = new double[in.cantidadSectores()];
+        for (int i = 0; i < n; i++) {
+            double monto = montos[i];
             if (monto <= 0) continue;
 
-            int idx = m.indexOf(tkr);
-            Activo act = m.activos.get(idx);
-
-            double nuevoTipo   = usoTipo.getOrDefault(act.tipo, 0.0) + monto;
-            double nuevoSector = usoSector.getOrDefault(act.sector, 0.0) + monto;
-
-            double limTipo   = p.maxPorTipo.getOrDefault(act.tipo,   1.0) * p.presupuesto;
-            double limSector = p.maxPorSector.getOrDefault(act.sector,1.0) * p.presupuesto;
+            int t = in.tipo[i], s = in.sector[i];
+            usoTipo[t] += monto;
+            usoSector[s] += monto;
 
-            if (nuevoTipo - limTipo > 1e-9) {
+            if (usoTipo[t] - in.limTipo[t] > 1e-9) {
                 throw new IllegalArgumentException(String.format("Excede tope por tipo (%s): %.2f > %.2f",
-                        act.tipo, nuevoTipo, limTipo));
+                        in.nombreTipo[t], usoTipo[t], in.limTipo[t]));
             }
-            if (nuevoSector - limSector > 1e-9) {
+            if (usoSector[s] - in.limSector[s] > 1e-9) {
                 throw new IllegalArgumentException(String.format("Excede tope por sector (%s): %.2f > %.2f",
-                        act.sector, nuevoSector, limSector));
+                        in.nombreSector[s], usoSector[s], in.limSector[s]));
             }
-
-            usoTipo.put(act.tipo, nuevoTipo);
-            usoSector.put(act.sector, nuevoSector);
         }
 
         // --- riesgo
-        double sigma = CalculadoraRiesgo.riesgoCartera(m, a, p.presupuesto);
-        if (sigma - p.riesgoMax > 1e-9) {
-            throw new IllegalArgumentException(String.format("Riesgo excedido: sigma %.3f > max %.3f", sigma, p.riesgoMax));
+        double sigma = in.riesgo(montos);
+        if (sigma - in.riesgoMax > 1e-9) {
+            throw new IllegalArgumentException(String.format("Riesgo excedido: sigma %.3f > max %.3f", sigma, in.riesgoMax));
         }
 
         // === NUEVAS VALIDACIONES (TPO) ===
 
         // 1) cantidad de activos entre 3 y 6
         int cantidadActivos = 0;
-        for (double monto : a.getMontos().values()) {
+        for (double monto : montos) {
             if (monto > 0.0) cantidadActivos++;
         }
-        if (cantidadActivos < 3 || cantidadActivos > 6) {
+        if (cantidadActivos < MIN_ACTIVOS || cantidadActivos > MAX_ACTIVOS) {
             throw new IllegalArgumentException("Cantidad de activos debe estar entre 3 y 6 (actual: " + cantidadActivos + ")");
         }
 
         // 2) retorno mínimo exigido (perfil y cliente)
-        double retornoCartera = CalculadoraRetorno.retornoCartera(m, a, p.presupuesto);
-        double retornoRequerido = Math.max(p.getRetornoMin(), p.getRetornoMinDeseado());
-            if (retornoCartera + 1e-12 < retornoRequerido) {
+        double retornoCartera = in.retorno(montos);
+        if (retornoCartera + 1e-12 < in.retornoRequerido) {
             throw new IllegalArgumentException(
-                String.format("Retorno insuficiente: %.3f < mínimo requerido %.3f", retornoCartera, retornoRequerido)
+                String.format("Retorno insuficiente: %.3f < mínimo requerido %.3f", retornoCartera, in.retornoRequerido)
             );
         }
     }
+
+    /**
+     * Misma validación que validar(...) pero sin excepciones: devuelve OK o la
+     * combinación de códigos de las restricciones violadas.
+     */
+    public static int evaluar(Instancia in, double[] montos){
+        double[] usoTipo = new double[in.cantidadTipos()];
+        double[] usoSector = new double[in.cantidadSectores()];
+        int codigo = OK;
+        double total = 0.0;
+        int cantidadActivos = 0;
+        for (int i = 0; i < in.n; i++) {
+            double monto = montos[i];
+            total += monto;
+            if (monto <= 0) continue;
+            cantidadActivos++;
+            codigo |= evaluarActivo(in, i, monto);
+            usoTipo[in.tipo[i]] += monto;
+            usoSector[in.sector[i]] += monto;
+        }
+        for (int t = 0; t < usoTipo.length; t++)
+            if (usoTipo[t] - in.limTipo[t] > 1e-9) codigo |= TOPE_TIPO;
+        for (int s = 0; s < usoSector.length; s++)
+            if (usoSector[s] - in.limSector[s] > 1e-9) codigo |= TOPE_SECTOR;
+
+        return codigo | evaluarTotales(in, total, cantidadActivos, in.riesgo(montos), in.retorno(montos));
+    }
+
+    /**
+     * Evaluación sin asignar memoria a partir de un estado ya agregado (el que
+     * mantiene una búsqueda): los activos elegidos, el uso por tipo/sector,
+     * la varianza y el retorno. Cuesta O(elegidos).
+     */
+    public static int evaluar(Instancia in, double[] montos, int[] elegidos, int cantElegidos,
+                              double[] usoTipo, double[] usoSector,
+                              double varianza, double retorno){
+        int codigo = OK;
+        double total = 0.0;
+        for (int h = 0; h < cantElegidos; h++) {
+            int i = elegidos[h];
+            double monto = montos[i];
+            total += monto;
+            codigo |= evaluarActivo(in, i, monto);
+            if (usoTipo[in.tipo[i]] - in.limTipo[in.tipo[i]] > 1e-9) codigo |= TOPE_TIPO;
+            if (usoSector[in.sector[i]] - in.limSector[in.sector[i]] > 1e-9) codigo |= TOPE_SECTOR;
+        }
+        return codigo | evaluarTotales(in, total, cantElegidos, Math.sqrt(Math.max(0.0, varianza)), retorno);
+    }
+
+    private static int evaluarActivo(Instancia in, int i, double monto){
+        int codigo = OK;
+        if (monto + 1e-9 < in.montoMin[i]) codigo |= MONTO_MIN;
+        if (monto - in.topePorActivoAbs > 1e-9) codigo |= TOPE_ACTIVO;
+        return codigo;
+    }
+
+    private static int evaluarTotales(Instancia in, double total, int cantidadActivos, double sigma, double retorno){
+        int codigo = OK;
+        if (total - in.presupuesto > 1e-9) codigo |= EXCEDE_PRESUPUESTO;
+        if (sigma - in.riesgoMax > 1e-9) codigo |= RIESGO;
+        if (cantidadActivos < MIN_ACTIVOS || cantidadActivos > MAX_ACTIVOS) codigo |= CANTIDAD_ACTIVOS;
+        if (retorno + 1e-12 < in.retornoRequerido) codigo |= RETORNO_MINIMO;
+        return codigo;
+    }
 }
@@ -11,7 +11,34 @@ public final class ValidadorMercado {
         if (m == null) throw new IllegalArgumentException("Mercado nulo");
         int n = m.activos.size();
         if (n == 0) throw new IllegalArgumentException("No hay activos");
-        if (m.rho == null) throw new IllegalArgumentException("Matriz de correlaciones nula");
+        if (m.rho == null) validarFactores(m, n);
+        else validarRho(m, n);
+        validarActivos(m.activos);
+    }
+
+    /** Chequeos de los activos solos (ticker, rangos), para quien arma un mercado por partes */
+    public static void validarActivos(java.util.List<Activo> activos){
+        if (activos.isEmpty()) throw new IllegalArgumentException("No hay activos");
+        var vistos = new java.util.HashSet<String>();
+        for (int i=0;i<activos.size();i++){
+            var a = activos.get(i);
+            if (a.ticker == null || a.ticker.isBlank())
+                throw new IllegalArgumentException("Ticker vacío en índice " + i);
+            if (!vistos.add(a.ticker))
+                throw new IllegalArgumentException("Ticker duplicado: " + a.ticker);
+
+            if (a.retorno < -1.0 || a.retorno > 1.0)
+                throw new IllegalArgumentException("Retorno fuera de rango en "+a.ticker+": "+a.retorno);
+
+            if (a.sigma <= 0.0 || a.sigma > 1.5)
+                throw new IllegalArgumentException("Sigma fuera de rango en "+a.ticker+": "+a.sigma);
+
+            if (a.montoMin <= 0.0)
+                throw new IllegalArgumentException("montoMin debe ser > 0 en "+a.ticker+": "+a.montoMin);
+        }
+    }
+
+    private static void validarRho(Mercado m, int n){
         if (m.rho.length != n) throw new IllegalArgumentException("rho no es n x n (filas != n)");
 
         for (int i=0;i<n;i++){
@@ -32,24 +59,18 @@ public final class ValidadorMercado {
                     throw new IllegalArgumentException("rho fuera de [-1,1] en ("+i+","+j+"): "+a);
             }
         }
+    }
 
-        // 2) Chequeos de activos
-        var vistos = new java.util.HashSet<String>();
+    // ρ̂ = B·B' + diag(d) es simétrica y semidefinida por construcción: alcanza con
+    // el tamaño, d >= 0 y la diagonal en 1
+    private static void validarFactores(Mercado m, int n){
+        if (m.factores == null) throw new IllegalArgumentException("Matriz de correlaciones nula");
+        if (m.factores.n != n) throw new IllegalArgumentException("Modelo factorial de "+m.factores.n+" activos, no "+n);
         for (int i=0;i<n;i++){
-            var a = m.activos.get(i);
-            if (a.ticker == null || a.ticker.isBlank())
-                throw new IllegalArgumentException("Ticker vacío en índice " + i);
-            if (!vistos.add(a.ticker))
-                throw new IllegalArgumentException("Ticker duplicado: " + a.ticker);
-
-            if (a.retorno < -1.0 || a.retorno > 1.0)
-                throw new IllegalArgumentException("Retorno fuera de rango en "+a.ticker+": "+a.retorno);
-
-            if (a.sigma <= 0.0 || a.sigma > 1.5)
-                throw new IllegalArgumentException("Sigma fuera de rango en "+a.ticker+": "+a.sigma);
-
-            if (a.montoMin <= 0.0)
-                throw new IllegalArgumentException("montoMin debe ser > 0 en "+a.ticker+": "+a.montoMin);
+            if (!(m.factores.especifica(i) >= -EPS))
+                throw new IllegalArgumentException("Varianza específica negativa en "+i+": "+m.factores.especifica(i));
+            if (Math.abs(m.factores.correlacion(i, i) - 1.0) > 1e-6)
+                throw new IllegalArgumentException("rho["+i+"]["+i+"] != 1 en el modelo factorial");
         }
     }
 }
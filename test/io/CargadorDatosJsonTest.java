@@ -0,0 +1,90 @@
+package io;
+
+import com.google.gson.Gson;
+import io.dto.MercadoJson;
+import model.*;
+import org.junit.jupiter.api.Test;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/** El cargador en streaming rechaza lo mismo que antes y arma el mismo Mercado que el árbol de Gson */
+class CargadorDatosJsonTest {
+
+    private static final String ACTIVOS = "\"activos\":["
+            + "{\"ticker\":\"A\",\"tipo\":\"Accion\",\"sector\":\"Energia\",\"retorno\":0.1,\"sigma\":0.2,\"montoMin\":1000},"
+            + "{\"ticker\":\"B\",\"tipo\":\"ETF\",\"sector\":\"Salud\",\"retorno\":0.05,\"sigma\":0.1,\"montoMin\":500},"
+            + "{\"ticker\":\"C\",\"tipo\":\"Accion\",\"sector\":\"Tecnologia\",\"retorno\":0.2,\"sigma\":0.4,\"montoMin\":2000}]";
+
+    private static String mercado(String correlaciones) {
+        return "{" + ACTIVOS + ",\"correlaciones\":" + correlaciones + "}";
+    }
+
+    private static Mercado cargar(String json) throws IOException {
+        return CargadorDatosJson.cargarMercado(new StringReader(json));
+    }
+
+    // el cargador anterior: todo el archivo a un MercadoJson y de ahí al Mercado
+    private static Mercado porGson(String json) {
+        MercadoJson mj = new Gson().fromJson(json, MercadoJson.class);
+        List<Activo> lista = new ArrayList<>();
+        for (var a : mj.activos) lista.add(new Activo(a.ticker, a.tipo, a.sector, a.retorno, a.sigma, a.montoMin));
+        int n = lista.size();
+        double[][] rho = new double[n][n];
+        for (int i = 0; i < n; i++) for (int j = 0; j < n; j++) rho[i][j] = mj.correlaciones.get(i).get(j);
+        return new Mercado(lista, rho);
+    }
+
+    private static void assertRechaza(String json, String mensaje) {
+        RuntimeException e = assertThrows(RuntimeException.class, () -> cargar(json), json);
+        assertTrue(e.getMessage().contains(mensaje), e.getMessage());
+    }
+
+    @Test
+    void jsonMalFormado() {
+        assertRechaza("{\"activos\":[", "JSON inválido");
+        assertRechaza(mercado("[[1,0.2,0.1],[0.2,1,0.3],[0.1,0.3,1]"), "JSON inválido");
+        assertRechaza(mercado("[[1,0.2,0.1],[0.2,1,\"x\"],[0.1,0.3,1]]"), "JSON inválido");
+        assertRechaza("[]", "JSON inválido");
+    }
+
+    @Test
+    void matricesInvalidas() {
+        assertRechaza(mercado("[[1,0.2,0.1],[0.2,1,0.3],[0.1,0.35,1]]"), "no simétrica");
+        assertRechaza(mercado("[[1,1.2,0.1],[1.2,1,0.3],[0.1,0.3,1]]"), "fuera de [-1,1]");
+        assertRechaza(mercado("[[1,0.2,-1.5],[0.2,1,0.3],[-1.5,0.3,1]]"), "fuera de [-1,1]");
+        assertRechaza(mercado("[[1,0.2,0.1],[0.2,0.9,0.3],[0.1,0.3,1]]"), "ρ[i][i]!=1");
+        assertRechaza(mercado("[[1,0.2,0.1],[0.2,1,0.3]]"), "n x n");
+        assertRechaza(mercado("[[1,0.2,0.1],[0.2,1,0.3],[0.1,0.3,1],[0,0,0]]"), "n x n");
+        assertRechaza(mercado("[[1,0.2,0.1],[0.2,1],[0.1,0.3,1]]"), "n x n");
+        assertRechaza(mercado("[[1,0.2,0.1,0],[0.2,1,0.3],[0.1,0.3,1]]"), "n x n");
+        assertRechaza(mercado("[]"), "'correlaciones' vacía");
+        assertRechaza("{\"activos\":[],\"correlaciones\":[[1]]}", "'activos' vacío");
+    }
+
+    @Test
+    void mismoMercadoQueConGson() throws IOException {
+        String json = Files.readString(Path.of("data/mercado.json"), StandardCharsets.UTF_8);
+        Mercado nuevo = cargar(json), viejo = porGson(json);
+        assertEquals(viejo.huella(), nuevo.huella());
+        assertEquals(viejo.activos.size(), nuevo.activos.size());
+        for (int i = 0; i < viejo.rho.length; i++) assertArrayEquals(viejo.rho[i], nuevo.rho[i]);
+        assertEquals(viejo.huella(), CargadorDatosJson.cargarMercado("data/mercado.json").huella());
+    }
+
+    @Test
+    void correlacionesAntesQueActivos() throws IOException {
+        String matriz = "[[1,0.2,0.1],[0.2,1,0.3],[0.1,0.3,1]]";
+        String alReves = "{\"correlaciones\":" + matriz + "," + ACTIVOS + "}";
+        assertEquals(porGson(mercado(matriz)).huella(), cargar(alReves).huella());
+    }
+
+    @Test
+    void archivoInexistente() {
+        assertThrows(RuntimeException.class, () -> CargadorDatosJson.cargarMercado("data/no-existe.json"));
+    }
+}
@@ -0,0 +1,125 @@
+package io;
+
+import model.*;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.file.*;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/** Ida y vuelta del snapshot binario y detección de archivos dañados */
+class SnapshotBinarioTest {
+
+    private static final Mercado MERCADO = CargadorDatosJson.cargarMercado("data/mercado.json");
+
+    private static Path escribir(Mercado m, boolean triangular) throws IOException {
+        Path dir = Files.createTempDirectory("snapshot");
+        Path p = dir.resolve("mercado.bin");
+        SnapshotBinario.escribir(m, p, triangular);
+        return p;
+    }
+
+    private static void borrar(Path p) throws IOException {
+        try (Stream<Path> s = Files.walk(p.getParent())) {
+            for (Path q : s.sorted(Comparator.reverseOrder()).toList()) Files.delete(q);
+        }
+    }
+
+    @Test
+    void idaYVueltaConservaLaHuella() throws IOException {
+        for (boolean triangular : new boolean[]{false, true}) {
+            Path p = escribir(MERCADO, triangular);
+            try {
+                assertTrue(SnapshotBinario.es(p));
+                Mercado leido = SnapshotBinario.leer(p);
+                assertEquals(MERCADO.huella(), leido.huella(), "triangular=" + triangular);
+                assertEquals(MERCADO.activos.size(), leido.activos.size());
+                for (int i = 0; i < MERCADO.activos.size(); i++) {
+                    Activo a = MERCADO.activos.get(i), b = leido.activos.get(i);
+                    assertEquals(a.ticker, b.ticker);
+                    assertEquals(a.sector, b.sector);
+                    assertEquals(a.montoMin, b.montoMin, 0.0);
+                }
+            } finally {
+                borrar(p);
+            }
+        }
+    }
+
+    @Test
+    void idaYVueltaFactorial() throws IOException {
+        Mercado f = MERCADO.factorial(3);
+        Path p = escribir(f, false);
+        try {
+            assertEquals(f.huella(), SnapshotBinario.leer(p).huella());
+        } finally {
+            borrar(p);
+        }
+    }
+
+    @Test
+    void ventanasChicasLeenLoMismo() throws IOException {
+        Path p = escribir(MERCADO, true);
+        try {
+            // ventanas que cortan los doubles del bloque y el cálculo del CRC
+            for (long ventana : new long[]{8, 24, 4096})
+                assertEquals(MERCADO.huella(), SnapshotBinario.leer(p, ventana).huella(), "ventana=" + ventana);
+        } finally {
+            borrar(p);
+        }
+    }
+
+    @Test
+    void unByteCambiadoFallaElCrc() throws IOException {
+        Path p = escribir(MERCADO, true);
+        try {
+            byte[] b = Files.readAllBytes(p);
+            b[b.length - 3] ^= 0x10;
+            Files.write(p, b);
+            IllegalArgumentException e = assertThrows(IllegalArgumentException.class, () -> SnapshotBinario.leer(p));
+            assertTrue(e.getMessage().contains("CRC"), e.getMessage());
+        } finally {
+            borrar(p);
+        }
+    }
+
+    @Test
+    void unByteCambiadoEnLosActivosTambienSeDetecta() throws IOException {
+        Path p = escribir(MERCADO, true);
+        try {
+            byte[] b = Files.readAllBytes(p);
+            for (int pos : new int[]{64 + 20, 64 + 40 * MERCADO.activos.size() + 2}) {   // un retorno, un largo del pool
+                byte[] dañado = b.clone();
+                dañado[pos] ^= 0x40;
+                Files.write(p, dañado);
+                assertThrows(IllegalArgumentException.class, () -> SnapshotBinario.leer(p), "byte " + pos);
+            }
+        } finally {
+            borrar(p);
+        }
+    }
+
+    @Test
+    void truncadoSeRechaza() throws IOException {
+        Path p = escribir(MERCADO, true);
+        try {
+            byte[] b = Files.readAllBytes(p);
+            Files.write(p, Arrays.copyOf(b, b.length - 8));
+            IllegalArgumentException e = assertThrows(IllegalArgumentException.class, () -> SnapshotBinario.leer(p));
+            assertTrue(e.getMessage().contains("truncado"), e.getMessage());
+            Files.write(p, Arrays.copyOf(b, 10));
+            assertThrows(IllegalArgumentException.class, () -> SnapshotBinario.leer(p));
+        } finally {
+            borrar(p);
+        }
+    }
+
+    @Test
+    void unJsonNoEsSnapshot() throws IOException {
+        assertFalse(SnapshotBinario.es(Path.of("data/mercado.json")));
+    }
+}
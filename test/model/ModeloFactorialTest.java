@@ -0,0 +1,76 @@
+package model;
+
+import io.CargadorDatosJson;
+import org.junit.jupiter.api.Test;
+import tools.GeneradorMercado;
+
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/** Con todos los factores el modelo reproduce la matriz; con menos, el error baja al sumar factores */
+class ModeloFactorialTest {
+
+    private static final Mercado MERCADO = CargadorDatosJson.cargarMercado("data/mercado.json");
+
+    // ρ semidefinida (autovalor mínimo >= 0.1), así que el rango completo es exacto
+    private static Mercado generado(int n) {
+        GeneradorMercado.Config c = new GeneradorMercado.Config();
+        c.n = n;
+        c.semilla = 5;
+        return GeneradorMercado.generar(c);
+    }
+
+    private static Perfil perfil() {
+        return new Perfil(100_000, 0.4, Map.of(), Map.of(), "Moderado", 0.0, 1);
+    }
+
+    @Test
+    void rangoCompletoDaElRiesgoExacto() {
+        Mercado m = generado(60);
+        int n = m.activos.size();
+        Mercado f = m.factorial(n);
+        assertNull(f.rho);
+        assertTrue(f.factores.error(m.rho).maxAbs < 1e-9);
+
+        Instancia exacta = new Instancia(m, perfil()), aproximada = new Instancia(f, perfil());
+        Random rnd = new Random(3);
+        double[] montos = new double[n];
+        for (int prueba = 0; prueba < 50; prueba++) {
+            for (int i = 0; i < n; i++) montos[i] = rnd.nextInt(4) == 0 ? 10_000 * rnd.nextDouble() : 0.0;
+            assertEquals(exacta.riesgo(montos), aproximada.riesgo(montos), 1e-9, "prueba " + prueba);
+        }
+    }
+
+    @Test
+    void elErrorBajaConMasFactores() {
+        for (Mercado m : new Mercado[]{generado(80), MERCADO}) {
+            int n = m.activos.size();
+            List<ModeloFactorial.Error> errores = ModeloFactorial.errores(m.rho, 0, 1, 2, 4, 8, 16, 32, n);
+            for (int e = 1; e < errores.size(); e++) {
+                ModeloFactorial.Error antes = errores.get(e - 1), ahora = errores.get(e);
+                String caso = n + " activos, k=" + ahora.k;
+                assertTrue(ahora.rms <= antes.rms + 1e-12, caso);
+                assertTrue(ahora.relativoFrobenius <= antes.relativoFrobenius + 1e-12, caso);
+                assertTrue(ahora.explicada >= antes.explicada - 1e-12, caso);
+            }
+            assertTrue(errores.get(errores.size() - 1).rms < errores.get(1).rms);
+        }
+    }
+
+    @Test
+    void laDiagonalSigueEnUno() {
+        ModeloFactorial f = ModeloFactorial.desde(MERCADO, 4);
+        for (int i = 0; i < f.n; i++) {
+            assertEquals(1.0, f.correlacion(i, i), 1e-12);
+            assertTrue(f.especifica(i) >= 0.0);
+        }
+    }
+
+    @Test
+    void kFueraDeRango() {
+        assertThrows(IllegalArgumentException.class, () -> ModeloFactorial.desde(MERCADO, -1));
+        assertThrows(IllegalArgumentException.class, () -> ModeloFactorial.desde(MERCADO, MERCADO.activos.size() + 1));
+        assertThrows(IllegalArgumentException.class, () -> ModeloFactorial.desde(MERCADO.factorial(2), 2));
+    }
+}
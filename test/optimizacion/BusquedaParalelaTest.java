@@ -0,0 +1,63 @@
+package optimizacion;
+
+import io.CargadorDatosJson;
+import model.*;
+import org.junit.jupiter.api.Test;
+
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/** Búsqueda paralela determinista: mismo óptimo y mismo desempate que la secuencial */
+class BusquedaParalelaTest {
+
+    private static final Mercado MERCADO = CargadorDatosJson.cargarMercado("data/mercado.json");
+
+    private static List<Perfil> perfiles() {
+        return List.of(
+                new Perfil(100_000, 0.4, Map.of(), Map.of(), "Moderado", 0.0, 1),
+                new Perfil(100_000, 0.4, Map.of(), Map.of("Tecnologia", 0.3), "Moderadamente agresivo", 0.0, 1),
+                new Perfil(250_000, 0.4, Map.of(), Map.of(), "Moderado", 0.0, 1));
+    }
+
+    @Test
+    void mismaCarteraQueLaSecuencial() {
+        for (Perfil p : perfiles()) {
+            BBPortafolio.Resultado secuencial = BBPortafolio.maximizarRetorno(MERCADO, p);
+            for (int hilos : new int[]{2, 4}) {
+                BBPortafolio.Resultado paralelo = BBPortafolio.maximizarRetorno(MERCADO, p, new BBPortafolio.Opciones(hilos));
+                String caso = p.getTipoPerfil() + " " + p.getPresupuesto() + " con " + hilos + " hilos";
+                assertTrue(paralelo.completo, caso);
+                assertEquals(secuencial.retorno, paralelo.retorno, 0.0, caso);
+                assertEquals(secuencial.mejor.getMontos(), paralelo.mejor.getMontos(), caso);
+            }
+        }
+    }
+
+    @Test
+    void repetidaDevuelveLoMismo() {
+        Perfil p = perfiles().get(2);
+        BBPortafolio.Resultado primera = BBPortafolio.maximizarRetorno(MERCADO, p, new BBPortafolio.Opciones(4));
+        for (int r = 0; r < 3; r++) {
+            BBPortafolio.Resultado otra = BBPortafolio.maximizarRetorno(MERCADO, p, new BBPortafolio.Opciones(4));
+            assertEquals(primera.mejor.getMontos(), otra.mejor.getMontos());
+        }
+    }
+
+    @Test
+    void cuentaNodosPorWorker() {
+        BBPortafolio.Resultado r = BBPortafolio.maximizarRetorno(MERCADO, perfiles().get(0), new BBPortafolio.Opciones(2));
+        long suma = 0;
+        for (long c : r.nodosPorWorker) suma += c;
+        assertEquals(r.nodosVisitados, suma);
+    }
+
+    @Test
+    void rechazaParalelismoInvalido() {
+        Instancia in = new Instancia(MERCADO, perfiles().get(0));
+        assertThrows(IllegalArgumentException.class, () -> BBPortafolio.maximizarRetorno(in, new BBPortafolio.Opciones(0)));
+        BBPortafolio.Opciones op = new BBPortafolio.Opciones(2);
+        op.estrategia = BBPortafolio.Estrategia.HAZ;
+        assertThrows(IllegalArgumentException.class, () -> BBPortafolio.maximizarRetorno(in, op));
+    }
+}
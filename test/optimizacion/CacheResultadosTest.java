@@ -0,0 +1,212 @@
+package optimizacion;
+
+import io.CargadorDatosJson;
+import model.*;
+import org.junit.jupiter.api.Test;
+
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/** Claves canónicas, espera a cálculos en curso e invalidación por mercado */
+class CacheResultadosTest {
+
+    private static final Mercado MERCADO = CargadorDatosJson.cargarMercado("data/mercado.json");
+
+    private static final Perfil MODERADO = new Perfil(100_000, 0.4, Map.of(), Map.of(), "Moderado", 0.0, 1);
+
+    private static final BBPortafolio.Resultado RESULTADO = BBPortafolio.maximizarRetorno(MERCADO, MODERADO);
+
+    @Test
+    void mismasRestriccionesEfectivasCompartenEntrada() {
+        CacheResultados cache = new CacheResultados(8);
+        BBPortafolio.Resultado r = cache.resolver(MERCADO, MODERADO, new BBPortafolio.Opciones());
+        // otro plazo, un tope >= 1 y un sector que el mercado no tiene no cambian la clave
+        Perfil igual = new Perfil(100_000, 0.4, Map.of("Accion", 1.0), Map.of("Inexistente", 0.1), "Moderado", 0.0, 5);
+        assertSame(r, cache.resolver(MERCADO, igual, new BBPortafolio.Opciones()));
+        Perfil otro = new Perfil(100_000, 0.4, Map.of(), Map.of("Tecnologia", 0.3), "Moderado", 0.0, 1);
+        BBPortafolio.Opciones op = new BBPortafolio.Opciones();
+        assertNotEquals(CacheResultados.clave(MERCADO, MODERADO, op), CacheResultados.clave(MERCADO, otro, op));
+
+        CacheResultados.Estadisticas e = cache.estadisticas();
+        assertEquals(1L, e.aciertos);
+        assertEquals(1L, e.fallos);
+        assertEquals(1, e.tamanio);
+        assertEquals(RESULTADO.retorno, r.retorno, 1e-12);
+    }
+
+    @Test
+    void lasOpcionesQueCambianElResultadoSeparanEntradas() {
+        BBPortafolio.Opciones base = new BBPortafolio.Opciones();
+        String clave = CacheResultados.clave(MERCADO, MODERADO, base);
+        List<BBPortafolio.Opciones> distintas = new ArrayList<>();
+        BBPortafolio.Opciones o = new BBPortafolio.Opciones();
+        o.presolve = false;
+        distintas.add(o);
+        o = new BBPortafolio.Opciones();
+        o.estrategia = BBPortafolio.Estrategia.HAZ;
+        distintas.add(o);
+        o = new BBPortafolio.Opciones(o);
+        o.anchoHaz = 8;
+        distintas.add(o);
+        o = new BBPortafolio.Opciones();
+        o.estrategia = BBPortafolio.Estrategia.MEJOR_PRIMERO;
+        distintas.add(o);
+        o = new BBPortafolio.Opciones();
+        o.tablaTransposicion = 1000;
+        distintas.add(o);
+        o = new BBPortafolio.Opciones(4);
+        o.determinista = false;
+        distintas.add(o);
+        Set<String> claves = new HashSet<>(Set.of(clave));
+        for (BBPortafolio.Opciones d : distintas) assertTrue(claves.add(CacheResultados.clave(MERCADO, MODERADO, d)));
+
+        // no cambian un resultado completo: plazo, nodos, paralelo determinista, cotaContinua
+        o = new BBPortafolio.Opciones(4);
+        o.tiempoMaximoMs = 1000;
+        o.nodosMaximos = 1_000_000;
+        o.cotaContinua = true;
+        o.anchoHaz = 8;
+        assertEquals(clave, CacheResultados.clave(MERCADO, MODERADO, o));
+    }
+
+    @Test
+    void unAciertoConOtrasOpcionesNoSeSirve() {
+        CacheResultados cache = new CacheResultados(8);
+        BBPortafolio.Resultado exacto = cache.resolver(MERCADO, MODERADO, new BBPortafolio.Opciones());
+        BBPortafolio.Opciones haz = new BBPortafolio.Opciones();
+        haz.estrategia = BBPortafolio.Estrategia.HAZ;
+        haz.anchoHaz = 1;
+        BBPortafolio.Resultado r = cache.resolver(MERCADO, MODERADO, haz);
+        assertNotSame(exacto, r);
+        assertEquals(0L, cache.estadisticas().aciertos);
+    }
+
+    @Test
+    void otroMercadoInvalida() {
+        CacheResultados cache = new CacheResultados(8);
+        cache.obtener(MERCADO, MODERADO, in -> RESULTADO);
+
+        int n = 20;
+        double[][] rho = new double[n][];
+        for (int i = 0; i < n; i++) rho[i] = Arrays.copyOf(MERCADO.rho[i], n);
+        Mercado chico = new Mercado(MERCADO.activos.subList(0, n), rho);
+        AtomicInteger calculos = new AtomicInteger();
+        cache.obtener(chico, MODERADO, in -> { calculos.incrementAndGet(); return RESULTADO; });
+        cache.obtener(MERCADO, MODERADO, in -> { calculos.incrementAndGet(); return RESULTADO; });
+
+        assertEquals(2, calculos.get());
+        assertEquals(2L, cache.estadisticas().invalidaciones);
+    }
+
+    @Test
+    void noGuardaResultadosIncompletos() {
+        CacheResultados cache = new CacheResultados(8);
+        BBPortafolio.Opciones op = new BBPortafolio.Opciones();
+        op.nodosMaximos = 5;
+        assertFalse(cache.resolver(MERCADO, MODERADO, op).completo);
+        assertEquals(0, cache.estadisticas().tamanio);
+        assertTrue(cache.resolver(MERCADO, MODERADO, new BBPortafolio.Opciones()).completo);
+        assertEquals(1, cache.estadisticas().tamanio);
+    }
+
+    @Test
+    void quienLlegaDuranteElCalculoEsperaElResultado() throws Exception {
+        CacheResultados cache = new CacheResultados(8);
+        CountDownLatch dentro = new CountDownLatch(1), soltar = new CountDownLatch(1);
+        ExecutorService ex = Executors.newFixedThreadPool(2);
+        try {
+            Future<BBPortafolio.Resultado> lider = ex.submit(() -> cache.obtener(MERCADO, MODERADO, in -> {
+                dentro.countDown();
+                esperar(soltar);
+                return RESULTADO;
+            }));
+            assertTrue(dentro.await(10, TimeUnit.SECONDS));
+            Future<BBPortafolio.Resultado> otro = ex.submit(() -> cache.obtener(MERCADO, MODERADO, in -> {
+                throw new AssertionError("no debía calcular: había un cálculo en curso");
+            }));
+            Thread.sleep(50);
+            soltar.countDown();
+            assertSame(RESULTADO, lider.get(10, TimeUnit.SECONDS));
+            assertSame(RESULTADO, otro.get(10, TimeUnit.SECONDS));
+            assertEquals(1L, cache.estadisticas().fallos);
+            assertEquals(1L, cache.estadisticas().aciertos);
+        } finally {
+            soltar.countDown();
+            ex.shutdownNow();
+        }
+    }
+
+    @Test
+    void conPlazoVencidoCalculaElSuyo() throws Exception {
+        CacheResultados cache = new CacheResultados(8);
+        CountDownLatch dentro = new CountDownLatch(1), soltar = new CountDownLatch(1);
+        ExecutorService ex = Executors.newSingleThreadExecutor();
+        try {
+            Future<BBPortafolio.Resultado> lider = ex.submit(() -> cache.obtener(MERCADO, MODERADO, in -> {
+                dentro.countDown();
+                esperar(soltar);
+                return RESULTADO;
+            }));
+            assertTrue(dentro.await(10, TimeUnit.SECONDS));
+            AtomicInteger calculos = new AtomicInteger();
+            BBPortafolio.Opciones op = new BBPortafolio.Opciones();
+            op.tiempoMaximoMs = 50;
+            BBPortafolio.Resultado propio = cache.obtener(MERCADO, MODERADO, op,
+                    in -> { calculos.incrementAndGet(); return RESULTADO; });
+            assertSame(RESULTADO, propio);
+            assertEquals(1, calculos.get());
+            soltar.countDown();
+            lider.get(10, TimeUnit.SECONDS);
+            assertEquals(2L, cache.estadisticas().fallos);
+        } finally {
+            soltar.countDown();
+            ex.shutdownNow();
+        }
+    }
+
+    @Test
+    void unResultadoIncompletoNoSeComparte() throws Exception {
+        BBPortafolio.Opciones op = new BBPortafolio.Opciones();
+        op.nodosMaximos = 5;
+        BBPortafolio.Resultado cortado = BBPortafolio.maximizarRetorno(MERCADO, MODERADO, op);
+        CacheResultados cache = new CacheResultados(8);
+        CountDownLatch dentro = new CountDownLatch(1), soltar = new CountDownLatch(1);
+        ExecutorService ex = Executors.newFixedThreadPool(2);
+        try {
+            Future<BBPortafolio.Resultado> lider = ex.submit(() -> cache.obtener(MERCADO, MODERADO, in -> {
+                dentro.countDown();
+                esperar(soltar);
+                return cortado;
+            }));
+            assertTrue(dentro.await(10, TimeUnit.SECONDS));
+            AtomicInteger calculos = new AtomicInteger();
+            Future<BBPortafolio.Resultado> otro = ex.submit(() -> cache.obtener(MERCADO, MODERADO,
+                    in -> { calculos.incrementAndGet(); return RESULTADO; }));
+            Thread.sleep(50);
+            soltar.countDown();
+            assertSame(cortado, lider.get(10, TimeUnit.SECONDS));
+            assertSame(RESULTADO, otro.get(10, TimeUnit.SECONDS));
+            assertEquals(1, calculos.get());
+        } finally {
+            soltar.countDown();
+            ex.shutdownNow();
+        }
+    }
+
+    @Test
+    void rechazaCapacidadInvalida() {
+        assertThrows(IllegalArgumentException.class, () -> new CacheResultados(0));
+    }
+
+    private static void esperar(CountDownLatch l) {
+        try {
+            if (!l.await(10, TimeUnit.SECONDS)) throw new IllegalStateException("no se soltó el cálculo");
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException(e);
+        }
+    }
+}
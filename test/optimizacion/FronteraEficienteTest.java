@@ -0,0 +1,58 @@
+package optimizacion;
+
+import io.CargadorDatosJson;
+import model.*;
+import org.junit.jupiter.api.Test;
+
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/** Cada punto de la frontera es el óptimo de su nivel, como si se resolviera por separado */
+class FronteraEficienteTest {
+
+    private static final Mercado MERCADO = CargadorDatosJson.cargarMercado("data/mercado.json");
+    private static final double[] RIESGOS = {0.15, 0.20, 0.25, 0.30, 0.40};
+
+    private static Perfil base() {
+        return new Perfil(100_000, 0.4, Map.of(), Map.of(), "Moderadamente conservador", 0.0, 1);
+    }
+
+    @Test
+    void retornoNoDecrecienteEnElRiesgo() {
+        for (int hilos : new int[]{1, 3}) {
+            List<FronteraEficiente.Punto> f = FronteraEficiente.calcular(MERCADO, base(), RIESGOS, hilos, new BBPortafolio.Opciones());
+            assertEquals(RIESGOS.length, f.size());
+            for (int l = 0; l < f.size(); l++) {
+                assertEquals(RIESGOS[l], f.get(l).riesgoMax, 0.0);
+                assertTrue(f.get(l).resultado.completo);
+                if (l > 0) assertTrue(f.get(l).resultado.retorno >= f.get(l - 1).resultado.retorno - 1e-12, "hilos " + hilos + " nivel " + l);
+            }
+        }
+    }
+
+    @Test
+    void cadaPuntoEsElOptimoIndependiente() {
+        List<FronteraEficiente.Punto> f = FronteraEficiente.calcular(MERCADO, base(), RIESGOS, 2, new BBPortafolio.Opciones());
+        for (int l = 0; l < RIESGOS.length; l++) {
+            BBPortafolio.Resultado solo = BBPortafolio.maximizarRetorno(MERCADO, base().conRiesgoMax(RIESGOS[l]));
+            BBPortafolio.Resultado punto = f.get(l).resultado;
+            assertEquals(solo.retorno, punto.retorno, 1e-12, "riesgo " + RIESGOS[l]);
+            assertTrue(punto.riesgo <= RIESGOS[l] + 1e-9, "riesgo " + RIESGOS[l]);
+        }
+    }
+
+    @Test
+    void porTipoPerfilEsComoCorrerCadaTipo() {
+        Perfil base = new Perfil(100_000, 0.4, Map.of(), Map.of("Tecnologia", 0.3), "Moderado", 0.0, 1);
+        List<FronteraEficiente.Punto> f = FronteraEficiente.porTipoPerfil(MERCADO, base, 2, new BBPortafolio.Opciones());
+        assertEquals(Perfil.TIPOS.size(), f.size());
+        for (int t = 0; t < f.size(); t++) {
+            String tipo = Perfil.TIPOS.get(t);
+            Perfil propio = new Perfil(100_000, 0.4, Map.of(), Map.of("Tecnologia", 0.3), tipo, 0.0, 1);
+            BBPortafolio.Resultado solo = BBPortafolio.maximizarRetorno(MERCADO, propio);
+            assertEquals(propio.getRiesgoMax(), f.get(t).riesgoMax, 0.0, tipo);
+            assertEquals(solo.retorno, f.get(t).resultado.retorno, 1e-12, tipo);
+        }
+    }
+}
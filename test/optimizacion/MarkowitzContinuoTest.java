@@ -0,0 +1,121 @@
+package optimizacion;
+
+import io.CargadorDatosJson;
+import model.*;
+import org.junit.jupiter.api.Test;
+
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/** La relajación continua respeta las restricciones y acota al óptimo discreto */
+class MarkowitzContinuoTest {
+
+    private static final Mercado MERCADO = CargadorDatosJson.cargarMercado("data/mercado.json");
+
+    private static List<Perfil> perfiles() {
+        return List.of(
+                new Perfil(100_000, 0.4, Map.of(), Map.of(), "Conservador", 0.0, 1),
+                new Perfil(100_000, 0.4, Map.of(), Map.of(), "Moderado", 0.0, 1),
+                new Perfil(100_000, 0.3, Map.of("Accion", 0.5), Map.of("Tecnologia", 0.3), "Moderadamente agresivo", 0.0, 1),
+                new Perfil(250_000, 0.4, Map.of(), Map.of(), "Moderado", 0.0, 1));
+    }
+
+    private static void assertFactible(Instancia in, MarkowitzContinuo.Resultado r, String caso) {
+        double total = 0.0;
+        double[] porTipo = new double[in.cantidadTipos()], porSector = new double[in.cantidadSectores()];
+        for (int i = 0; i < in.n; i++) {
+            double w = r.pesos[i];
+            assertTrue(w >= 0.0, caso);
+            assertTrue(w * in.presupuesto <= in.topePorActivoAbs + 1e-6, caso);
+            total += w;
+            porTipo[in.tipo[i]] += w * in.presupuesto;
+            porSector[in.sector[i]] += w * in.presupuesto;
+        }
+        assertTrue(total <= 1.0 + 1e-9, caso);
+        for (int t = 0; t < porTipo.length; t++) assertTrue(porTipo[t] <= in.limTipo[t] + 1e-6, caso);
+        for (int s = 0; s < porSector.length; s++) assertTrue(porSector[s] <= in.limSector[s] + 1e-6, caso);
+        assertTrue(r.factible, caso);
+        assertTrue(r.riesgo <= in.riesgoMax + 1e-6, caso);
+        assertEquals(r.retorno, in.retorno(in.montos(r.asignacion)), 1e-9, caso);
+    }
+
+    @Test
+    void respetaRestriccionesYAcotaAlBranchAndBound() {
+        for (Perfil p : perfiles()) {
+            Instancia in = new Instancia(MERCADO, p);
+            String caso = p.getTipoPerfil() + " " + p.getPresupuesto();
+            MarkowitzContinuo.Resultado r = MarkowitzContinuo.resolver(in);
+            assertFactible(in, r, caso);
+            BBPortafolio.Resultado bb = BBPortafolio.maximizarRetorno(in);
+            assertTrue(bb.completo, caso);
+            assertTrue(r.cotaSuperior >= bb.retorno - 1e-9, caso);
+            assertTrue(r.cotaSuperior >= r.retorno - 1e-12, caso);
+        }
+    }
+
+    @Test
+    void arrancarDesdeUnaCarteraDaLoMismo() {
+        for (Perfil p : perfiles()) {
+            Instancia in = new Instancia(MERCADO, p);
+            String caso = p.getTipoPerfil() + " " + p.getPresupuesto();
+            MarkowitzContinuo.Resultado frio = MarkowitzContinuo.resolver(in);
+            MarkowitzContinuo.Resultado tibio = MarkowitzContinuo.resolver(in, BBPortafolio.maximizarRetorno(in).mejor);
+            assertFactible(in, tibio, caso);
+            assertEquals(frio.retorno, tibio.retorno, 1e-3, caso);
+            assertTrue(tibio.cotaSuperior >= frio.retorno - 1e-9, caso);
+        }
+    }
+
+    @Test
+    void conPlazoLaCotaSigueSiendoValida() {
+        Perfil p = perfiles().get(1);
+        Instancia in = new Instancia(MERCADO, p);
+        double optimo = BBPortafolio.maximizarRetorno(in).retorno;
+        double exacta = MarkowitzContinuo.cotaSuperior(in);
+        double apurada = MarkowitzContinuo.cotaSuperior(in, 1);
+        assertTrue(apurada >= exacta - 1e-9);
+        assertTrue(apurada >= optimo - 1e-9);
+    }
+
+    @Test
+    void mercadoFactorial() {
+        Mercado f = MERCADO.factorial(5);
+        assertEquals(0.0, f.corrimiento(), 0.0);
+        for (Perfil p : perfiles().subList(0, 2)) {
+            Instancia in = new Instancia(f, p);
+            MarkowitzContinuo.Resultado r = MarkowitzContinuo.resolver(in);
+            assertFactible(in, r, p.getTipoPerfil());
+            assertTrue(r.cotaSuperior >= BBPortafolio.maximizarRetorno(in).retorno - 1e-9, p.getTipoPerfil());
+        }
+    }
+
+    @Test
+    void elCorrimientoDejaLaCovarianzaSemidefinida() {
+        // ρ del mercado de ejemplo no es semidefinida: hace falta μ > 0
+        double mu = MERCADO.corrimiento();
+        assertTrue(mu > 0.0);
+        assertEquals(mu, MERCADO.corrimiento(), 0.0);
+        int n = MERCADO.activos.size();
+        double[] cov = MERCADO.covarianza().clone();
+        for (int i = 0; i < n; i++) cov[i * n + i] += mu;
+        assertEquals(0.0, KernelRiesgo.escalar().corrimiento(cov, n), 0.0);
+        // con un poco menos de corrimiento deja de serlo
+        for (int i = 0; i < n; i++) cov[i * n + i] -= 0.9 * mu;
+        assertTrue(KernelRiesgo.escalar().corrimiento(cov, n) > 0.0);
+    }
+
+    @Test
+    void cotaContinuaConPlazoEnElBranchAndBound() {
+        BBPortafolio.Opciones op = new BBPortafolio.Opciones();
+        op.cotaContinua = true;
+        op.tiempoMaximoMs = 5_000;
+        op.nodosMaximos = 200;
+        Instancia in = new Instancia(MERCADO, perfiles().get(1));
+        BBPortafolio.Resultado r = BBPortafolio.maximizarRetorno(in, op);
+        double optimo = BBPortafolio.maximizarRetorno(in).retorno;
+        assertFalse(r.completo);
+        assertTrue(r.cotaSuperior >= optimo - 1e-9);
+        assertTrue(r.cotaSuperior <= MarkowitzContinuo.cotaSuperior(in, 5_000) + 1e-12);
+    }
+}
@@ -0,0 +1,75 @@
+package optimizacion;
+
+import io.CargadorDatosJson;
+import model.*;
+import org.junit.jupiter.api.Test;
+
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/** El presolve solo saca activos que no cambian el óptimo */
+class PresolveTest {
+
+    private static final Mercado MERCADO = CargadorDatosJson.cargarMercado("data/mercado.json");
+
+    private static final Perfil MODERADO = new Perfil(100_000, 0.4, Map.of(), Map.of(), "Moderado", 0.0, 1);
+
+    // siete activos fuertes que no se dominan entre sí (más retorno, más σ), uno
+    // débil del mismo tipo y sector dominado por todos y otro que no admite ni un lote
+    private static Mercado mercadoChico() {
+        List<Activo> activos = new ArrayList<>();
+        for (int k = 0; k < 7; k++)
+            activos.add(new Activo("F" + k, "Accion", "Tecnologia", 0.10 + 0.001 * k, 0.050 + 0.001 * k, 10_000));
+        activos.add(new Activo("DEBIL", "Accion", "Tecnologia", 0.05, 0.07, 20_000));
+        activos.add(new Activo("CARO", "Bono", "Energia", 0.20, 0.01, 80_000));
+        int n = activos.size();
+        double[][] rho = new double[n][n];
+        for (int i = 0; i < n; i++)
+            for (int j = 0; j < n; j++) rho[i][j] = i == j ? 1.0 : 0.2;
+        return new Mercado(activos, rho);
+    }
+
+    @Test
+    void eliminaDominadosYActivosSinLote() {
+        Presolve.Reduccion r = Presolve.reducir(mercadoChico(), MODERADO);
+        assertEquals(Set.of("DEBIL", "CARO"), r.eliminados.keySet());
+        assertTrue(r.eliminados.get("DEBIL").startsWith("dominado por"), r.eliminados.get("DEBIL"));
+        assertTrue(r.eliminados.get("CARO").contains("tope por activo"), r.eliminados.get("CARO"));
+        assertEquals(7, r.instancia.n);
+        for (int a = 0; a < r.instancia.n; a++)
+            assertEquals("F" + a, r.instancia.ticker[a]);
+    }
+
+    @Test
+    void conCincoDominadoresNoAlcanza() {
+        // con MAX_ACTIVOS - 1 dominadores una cartera con el débil puede estar llena
+        List<Activo> activos = new ArrayList<>(mercadoChico().activos.subList(0, 5));
+        activos.add(new Activo("DEBIL", "Accion", "Tecnologia", 0.05, 0.07, 20_000));
+        double[][] rho = new double[6][6];
+        for (int i = 0; i < 6; i++)
+            for (int j = 0; j < 6; j++) rho[i][j] = i == j ? 1.0 : 0.2;
+        Instancia in = new Instancia(new Mercado(activos, rho), MODERADO);
+        Presolve.Reduccion r = Presolve.reducir(in);
+        assertTrue(r.eliminados.isEmpty());
+        assertSame(in, r.instancia);
+    }
+
+    @Test
+    void mismoOptimoConYSinPresolve() {
+        List<Perfil> perfiles = List.of(MODERADO,
+                new Perfil(100_000, 0.4, Map.of(), Map.of("Tecnologia", 0.3), "Moderadamente agresivo", 0.0, 1),
+                new Perfil(250_000, 0.4, Map.of(), Map.of(), "Moderado", 0.0, 1));
+        for (Perfil p : perfiles) {
+            BBPortafolio.Opciones sin = new BBPortafolio.Opciones();
+            sin.presolve = false;
+            BBPortafolio.Resultado a = BBPortafolio.maximizarRetorno(MERCADO, p, sin);
+            BBPortafolio.Resultado b = BBPortafolio.maximizarRetorno(MERCADO, p, new BBPortafolio.Opciones());
+            String caso = p.getTipoPerfil() + " " + p.getPresupuesto();
+            assertTrue(a.completo && b.completo, caso);
+            assertEquals(a.retorno, b.retorno, 1e-12, caso);
+            // la cartera queda en términos del mercado
+            for (String t : b.mejor.getMontos().keySet()) assertTrue(MERCADO.idxPorTicker.containsKey(t), t);
+        }
+    }
+}
@@ -0,0 +1,73 @@
+package optimizacion;
+
+import io.CargadorDatosJson;
+import model.*;
+import org.junit.jupiter.api.Test;
+
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/** Las estrategias exactas llegan al mismo óptimo; la de haz, a uno acotado por su cota */
+class RecorridosTest {
+
+    private static final Mercado MERCADO = CargadorDatosJson.cargarMercado("data/mercado.json");
+
+    private static List<Perfil> perfiles() {
+        return List.of(
+                new Perfil(100_000, 0.4, Map.of(), Map.of(), "Moderado", 0.0, 1),
+                new Perfil(100_000, 0.4, Map.of(), Map.of("Tecnologia", 0.3), "Moderadamente agresivo", 0.0, 1),
+                new Perfil(250_000, 0.4, Map.of(), Map.of(), "Moderadamente agresivo", 0.0, 1),
+                new Perfil(100_000, 0.4, Map.of(), Map.of(), "Agresivo", 0.0, 1));
+    }
+
+    private static BBPortafolio.Resultado resolver(Perfil p, BBPortafolio.Estrategia e, int memoria, int ancho) {
+        BBPortafolio.Opciones op = new BBPortafolio.Opciones();
+        op.estrategia = e;
+        op.memoriaMaxNodos = memoria;
+        op.anchoHaz = ancho;
+        return BBPortafolio.maximizarRetorno(MERCADO, p, op);
+    }
+
+    @Test
+    void mismoOptimoEnTodasLasEstrategiasExactas() {
+        for (Perfil p : perfiles()) {
+            BBPortafolio.Resultado dfs = BBPortafolio.maximizarRetorno(MERCADO, p);
+            assertTrue(dfs.completo);
+            // memoria 20: se llena enseguida y sigue en DFS desde los nodos abiertos
+            for (int memoria : new int[]{1_000_000, 20}) {
+                BBPortafolio.Resultado mp = resolver(p, BBPortafolio.Estrategia.MEJOR_PRIMERO, memoria, 64);
+                String caso = p.getTipoPerfil() + " " + p.getPresupuesto() + " memoria " + memoria;
+                assertTrue(mp.completo, caso);
+                assertEquals(dfs.retorno, mp.retorno, 1e-12, caso);
+            }
+        }
+    }
+
+    @Test
+    void hazNoSuperaElOptimoYAcotaLaBrecha() {
+        for (Perfil p : perfiles()) {
+            double optimo = BBPortafolio.maximizarRetorno(MERCADO, p).retorno;
+            for (int ancho : new int[]{1, 4, 64}) {
+                BBPortafolio.Resultado haz = resolver(p, BBPortafolio.Estrategia.HAZ, 1_000_000, ancho);
+                String caso = p.getTipoPerfil() + " " + p.getPresupuesto() + " ancho " + ancho;
+                assertTrue(haz.retorno <= optimo + 1e-12, caso);
+                assertTrue(haz.cotaSuperior >= optimo - 1e-12, caso);
+                if (haz.completo) assertEquals(optimo, haz.retorno, 1e-12, caso);
+            }
+        }
+    }
+
+    @Test
+    void cadaCarteraEsFactible() {
+        for (Perfil p : perfiles()) {
+            // el Agresivo no alcanza su retorno mínimo con este mercado: la cartera no es factible
+            if (p.getTipoPerfil().equals("Agresivo")) continue;
+            for (BBPortafolio.Estrategia e : BBPortafolio.Estrategia.values()) {
+                BBPortafolio.Resultado r = resolver(p, e, 1_000_000, 8);
+                validacion.ValidadorAsignacion.validar(MERCADO, p, r.mejor);
+                assertEquals(r.retorno, CalculadoraRetorno.retornoCartera(MERCADO, r.mejor, p.getPresupuesto()), 1e-12);
+            }
+        }
+    }
+}
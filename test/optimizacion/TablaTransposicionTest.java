@@ -0,0 +1,51 @@
+package optimizacion;
+
+import io.CargadorDatosJson;
+import model.*;
+import org.junit.jupiter.api.Test;
+
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/** La tabla de transposición solo corta ramas dominadas: el óptimo no cambia */
+class TablaTransposicionTest {
+
+    private static final Mercado MERCADO = CargadorDatosJson.cargarMercado("data/mercado.json");
+
+    private static List<Perfil> perfiles() {
+        return List.of(
+                new Perfil(100_000, 0.4, Map.of(), Map.of(), "Moderado", 0.0, 1),
+                new Perfil(100_000, 0.4, Map.of(), Map.of("Tecnologia", 0.3), "Moderadamente agresivo", 0.0, 1),
+                new Perfil(250_000, 0.4, Map.of(), Map.of(), "Moderado", 0.0, 1));
+    }
+
+    private static BBPortafolio.Resultado resolver(Perfil p, int capacidad) {
+        BBPortafolio.Opciones op = new BBPortafolio.Opciones();
+        op.tablaTransposicion = capacidad;
+        return BBPortafolio.maximizarRetorno(MERCADO, p, op);
+    }
+
+    @Test
+    void mismoOptimoConYSinTabla() {
+        for (Perfil p : perfiles()) {
+            BBPortafolio.Resultado sin = resolver(p, 0);
+            assertNull(sin.tabla);
+            // 16 estados: obliga a desalojar
+            for (int capacidad : new int[]{16, 100_000}) {
+                BBPortafolio.Resultado con = resolver(p, capacidad);
+                String caso = p.getTipoPerfil() + " " + p.getPresupuesto() + " capacidad " + capacidad;
+                assertTrue(con.completo, caso);
+                assertEquals(sin.retorno, con.retorno, 1e-12, caso);
+                assertNotNull(con.tabla, caso);
+                assertTrue(con.tabla.tamanio <= capacidad, caso);
+                assertTrue(con.nodosVisitados <= sin.nodosVisitados, caso);
+            }
+        }
+    }
+
+    @Test
+    void rechazaCapacidadNegativa() {
+        assertThrows(IllegalArgumentException.class, () -> resolver(perfiles().get(0), -1));
+    }
+}
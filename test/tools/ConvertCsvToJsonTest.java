@@ -0,0 +1,103 @@
+package tools;
+
+import io.CargadorDatosJson;
+import io.SnapshotBinario;
+import model.*;
+import org.junit.jupiter.api.Test;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.util.*;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/** CSV del mercado de ejemplo -> JSON / snapshot, con la misma huella que el original */
+class ConvertCsvToJsonTest {
+
+    private static final Mercado MERCADO = CargadorDatosJson.cargarMercado("data/mercado.json");
+
+    // activos con todos los campos entre comillas; correlaciones con ';' y coma decimal
+    private static Path csv(Mercado m, String celdaRota) throws IOException {
+        Path dir = Files.createTempDirectory("csv");
+        try (PrintWriter w = new PrintWriter(Files.newBufferedWriter(dir.resolve("activos.csv"), StandardCharsets.UTF_8))) {
+            w.println("\"Ticker\",\"Tipo\",\"Sector\",\"Retorno\",\"Sigma\",\"MontoMin\"");
+            for (Activo a : m.activos)
+                w.printf("\"%s\",\"%s\",\"%s\",\"%s\",\"%s\",\"%s\"%n", a.ticker, a.tipo, a.sector, a.retorno, a.sigma, a.montoMin);
+        }
+        int n = m.activos.size();
+        try (PrintWriter w = new PrintWriter(Files.newBufferedWriter(dir.resolve("correlaciones.csv"), StandardCharsets.UTF_8))) {
+            StringBuilder sb = new StringBuilder();
+            for (Activo a : m.activos) sb.append(';').append(a.ticker);
+            w.println(sb);
+            for (int i = 0; i < n; i++) {
+                sb.setLength(0);
+                sb.append(m.activos.get(i).ticker);
+                for (int j = 0; j < n; j++) {
+                    String v = Double.toString(m.rho[i][j]).replace('.', ',');
+                    sb.append(';').append(celdaRota != null && i == 2 && j == 5 ? celdaRota : v);
+                }
+                w.println(sb);
+            }
+        }
+        return dir;
+    }
+
+    private static void borrar(Path dir) throws IOException {
+        try (Stream<Path> s = Files.walk(dir)) {
+            for (Path q : s.sorted(Comparator.reverseOrder()).toList()) Files.delete(q);
+        }
+    }
+
+    private static long convertir(Path dir, String salida, int hilos) throws Exception {
+        return ConvertCsvToJson.convertir(dir.resolve("activos.csv").toString(), dir.resolve("correlaciones.csv").toString(),
+                dir.resolve(salida).toString(), hilos);
+    }
+
+    @Test
+    void jsonYSnapshotConservanLaHuella() throws Exception {
+        Path dir = csv(MERCADO, null);
+        try {
+            assertEquals(MERCADO.activos.size(), convertir(dir, "mercado.json", 2));
+            assertEquals(MERCADO.huella(), CargadorDatosJson.cargarMercado(dir.resolve("mercado.json").toString()).huella());
+            convertir(dir, "mercado.bin", 2);
+            assertEquals(MERCADO.huella(), SnapshotBinario.leer(dir.resolve("mercado.bin")).huella());
+        } finally {
+            borrar(dir);
+        }
+    }
+
+    @Test
+    void laSalidaNoDependeDeLosHilos() throws Exception {
+        Path dir = csv(MERCADO, null);
+        try {
+            convertir(dir, "uno.json", 1);
+            convertir(dir, "tres.json", 3);
+            assertArrayEquals(Files.readAllBytes(dir.resolve("uno.json")), Files.readAllBytes(dir.resolve("tres.json")));
+        } finally {
+            borrar(dir);
+        }
+    }
+
+    @Test
+    void celdaNoNumericaIndicaFilaYColumna() throws Exception {
+        for (String rota : new String[]{"NaN", "abc", ""}) {
+            Path dir = csv(MERCADO, rota);
+            try {
+                IllegalArgumentException e = assertThrows(IllegalArgumentException.class, () -> convertir(dir, "mercado.json", 2));
+                String esperado = "fila 3, columna " + MERCADO.activos.get(5).ticker;
+                assertTrue(e.getMessage().contains(esperado), e.getMessage());
+            } finally {
+                borrar(dir);
+            }
+        }
+    }
+
+    @Test
+    void microsRedondeaComoParseDouble() {
+        for (String s : new String[]{"0,25", "-0.000001", " 1.0 ", "0.1234565", "0.12345651", "-0.9999995", "1.0E-4"})
+            assertEquals(Math.round(Double.parseDouble(s.trim().replace(',', '.')) * 1_000_000d),
+                    ConvertCsvToJson.micros(s, 0, s.length()), s);
+    }
+}
@@ -0,0 +1,73 @@
+package tools;
+
+import io.CargadorDatosJson;
+import io.SnapshotBinario;
+import model.*;
+import org.junit.jupiter.api.Test;
+import validacion.ValidadorMercado;
+
+import java.io.*;
+import java.nio.file.*;
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/** Misma semilla, mismo mercado; y el mercado generado pasa la validación */
+class GeneradorMercadoTest {
+
+    private static GeneradorMercado.Config config(int n, long semilla) {
+        GeneradorMercado.Config c = new GeneradorMercado.Config();
+        c.n = n;
+        c.semilla = semilla;
+        return c;
+    }
+
+    @Test
+    void mismaSemillaMismoMercado() {
+        Mercado a = GeneradorMercado.generar(config(200, 7));
+        Mercado b = GeneradorMercado.generar(config(200, 7));
+        assertEquals(a.huella(), b.huella());
+        assertNotEquals(a.huella(), GeneradorMercado.generar(config(200, 8)).huella());
+        assertNotEquals(a.huella(), GeneradorMercado.generar(config(201, 7)).huella());
+    }
+
+    @Test
+    void pasaLaValidacionYEsSemidefinida() {
+        for (long semilla : new long[]{1, 42}) {
+            GeneradorMercado.Config c = config(300, semilla);
+            Mercado m = GeneradorMercado.generar(c);
+            ValidadorMercado.validar(m);
+            assertEquals(300, m.activos.size());
+            // autovalor mínimo >= 0.1 por construcción: no hace falta corrimiento
+            assertEquals(0.0, m.corrimiento(), 0.0, "semilla " + semilla);
+            for (Activo a : m.activos) {
+                assertTrue(c.tipos.containsKey(a.tipo), a.ticker);
+                assertTrue(c.sectores.containsKey(a.sector), a.ticker);
+                assertTrue(a.sigma >= c.sigmaMin && a.sigma <= c.sigmaMax, a.ticker);
+            }
+        }
+    }
+
+    @Test
+    void jsonYSnapshotSonElMismoMercado() throws IOException {
+        GeneradorMercado.Config c = config(150, 3);
+        String huella = GeneradorMercado.generar(c).huella();
+
+        StringWriter json = new StringWriter();
+        GeneradorMercado.escribir(c, json);
+        assertEquals(huella, CargadorDatosJson.cargarMercado(new StringReader(json.toString())).huella());
+
+        Path bin = Files.createTempFile("generado", ".bin");
+        try {
+            GeneradorMercado.escribirSnapshot(c, bin);
+            assertEquals(huella, SnapshotBinario.leer(bin).huella());
+        } finally {
+            Files.deleteIfExists(bin);
+        }
+    }
+
+    @Test
+    void configInvalida() {
+        assertThrows(IllegalArgumentException.class, () -> GeneradorMercado.generar(config(0, 1)));
+    }
+}
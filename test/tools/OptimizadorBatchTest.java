@@ -0,0 +1,104 @@
+package tools;
+
+import com.google.gson.Gson;
+import io.CargadorDatosJson;
+import io.dto.ResultadoJson;
+import model.*;
+import optimizacion.BBPortafolio;
+import optimizacion.CacheResultados;
+import org.junit.jupiter.api.Test;
+
+import java.io.*;
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/** Un cliente con error queda en su línea y no corta el lote; los totales cuadran */
+class OptimizadorBatchTest {
+
+    private static final Mercado MERCADO = CargadorDatosJson.cargarMercado("data/mercado.json");
+
+    private static final String MODERADO =
+            "{\"id\":\"a\",\"presupuesto\":100000,\"maxPorActivo\":0.4,\"tipoPerfil\":\"Moderado\",\"plazoAnios\":1}";
+    private static final String TECNOLOGIA =
+            "{\"presupuesto\":100000,\"maxPorActivo\":0.4,\"maxPorSector\":{\"Tecnologia\":0.3},"
+                    + "\"tipoPerfil\":\"Moderadamente agresivo\",\"plazoAnios\":1}";
+
+    // línea -> error esperado (null: ok); las líneas en blanco no cuentan
+    private static final String[] LINEAS = {
+            MODERADO,
+            "{\"presupuesto\":100000,",
+            "",
+            TECNOLOGIA,
+            "{\"presupuesto\":100000,\"maxPorActivo\":0.4,\"plazoAnios\":1}",
+            "{\"presupuesto\":100000,\"maxPorActivo\":0.4,\"tipoPerfil\":\"Temerario\",\"plazoAnios\":1}",
+            "{\"presupuesto\":-5,\"maxPorActivo\":0.4,\"tipoPerfil\":\"Moderado\",\"plazoAnios\":1}",
+            MODERADO.replace("\"a\"", "\"b\""),
+    };
+    private static final boolean[] OK = {true, false, false, true, false, false, false, true};
+
+    private static Map<Long, ResultadoJson> correr(int hilos, CacheResultados cache, OptimizadorBatch.Resumen[] resumen)
+            throws Exception {
+        StringWriter out = new StringWriter();
+        BufferedReader in = new BufferedReader(new StringReader(String.join("\n", LINEAS) + "\n"));
+        resumen[0] = OptimizadorBatch.procesar(MERCADO, in, out, hilos, new BBPortafolio.Opciones(), cache);
+        Map<Long, ResultadoJson> porLinea = new HashMap<>();
+        Gson gson = new Gson();
+        for (String s : out.toString().split("\n")) {
+            ResultadoJson r = gson.fromJson(s, ResultadoJson.class);
+            assertNull(porLinea.put(r.linea, r), "línea repetida " + r.linea);
+        }
+        return porLinea;
+    }
+
+    @Test
+    void cadaErrorQuedaEnSuLinea() throws Exception {
+        for (int hilos : new int[]{1, 3}) {
+            for (CacheResultados cache : new CacheResultados[]{null, new CacheResultados(100)}) {
+                OptimizadorBatch.Resumen[] resumen = new OptimizadorBatch.Resumen[1];
+                Map<Long, ResultadoJson> porLinea = correr(hilos, cache, resumen);
+                String caso = "hilos " + hilos + (cache == null ? " sin cache" : " con cache");
+                assertEquals(7, resumen[0].clientes, caso);
+                assertEquals(3, resumen[0].ok, caso);
+                assertEquals(4, resumen[0].errores, caso);
+                assertEquals(7, porLinea.size(), caso);
+                assertFalse(porLinea.containsKey(3L), caso);
+                for (int i = 0; i < LINEAS.length; i++) {
+                    if (LINEAS[i].isBlank()) continue;
+                    ResultadoJson r = porLinea.get(i + 1L);
+                    assertNotNull(r, caso + " línea " + (i + 1));
+                    assertEquals(OK[i], r.ok, caso + " línea " + (i + 1));
+                    if (r.ok) {
+                        assertNull(r.error);
+                        assertNotNull(r.montos);
+                        assertTrue(r.completo);
+                    } else {
+                        assertNotNull(r.error, caso + " línea " + (i + 1));
+                    }
+                }
+                assertTrue(porLinea.get(2L).error.startsWith("JSON inválido"), caso);
+                assertEquals("falta 'tipoPerfil'", porLinea.get(5L).error, caso);
+                assertEquals("a", porLinea.get(1L).id);
+                assertEquals("b", porLinea.get(8L).id);
+                assertEquals("4", porLinea.get(4L).id);
+                assertEquals(porLinea.get(1L).retorno, porLinea.get(8L).retorno, 0.0, caso);
+            }
+        }
+    }
+
+    @Test
+    void elResultadoEsElDelBranchAndBound() throws Exception {
+        OptimizadorBatch.Resumen[] resumen = new OptimizadorBatch.Resumen[1];
+        Map<Long, ResultadoJson> porLinea = correr(2, null, resumen);
+        BBPortafolio.Resultado bb = BBPortafolio.maximizarRetorno(MERCADO,
+                new Perfil(100_000, 0.4, Map.of(), Map.of(), "Moderado", 0.0, 1));
+        assertEquals(bb.retorno, porLinea.get(1L).retorno, 1e-12);
+        assertEquals(bb.riesgo, porLinea.get(1L).riesgo, 1e-12);
+    }
+
+    @Test
+    void hilosInvalidos() {
+        assertThrows(IllegalArgumentException.class, () -> OptimizadorBatch.procesar(MERCADO,
+                new BufferedReader(new StringReader(MODERADO)), new StringWriter(), 0, new BBPortafolio.Opciones(), null));
+    }
+}
@@ -0,0 +1,113 @@
+package tools;
+
+import com.google.gson.*;
+import com.sun.net.httpserver.HttpServer;
+import io.CargadorDatosJson;
+import io.dto.ResultadoJson;
+import model.*;
+import optimizacion.BBPortafolio;
+import optimizacion.CacheResultados;
+import org.junit.jupiter.api.Test;
+
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.net.http.*;
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/** El servicio levantado en un puerto libre responde pedidos válidos y rechaza los que no */
+class ServicioOptimizacionTest {
+
+    private static final Mercado MERCADO = CargadorDatosJson.cargarMercado("data/mercado.json");
+    private static final String MODERADO =
+            "{\"id\":\"c1\",\"presupuesto\":100000,\"maxPorActivo\":0.4,\"tipoPerfil\":\"Moderado\",\"plazoAnios\":1}";
+
+    private final HttpClient cliente = HttpClient.newHttpClient();
+
+    private interface Prueba {
+        void correr(URI base) throws Exception;
+    }
+
+    // puerto 0: el sistema elige uno libre
+    private static void conServicio(Prueba prueba) throws Exception {
+        ServicioOptimizacion s = new ServicioOptimizacion(MERCADO, new CacheResultados(10), 2);
+        HttpServer server = s.iniciar(new InetSocketAddress("localhost", 0));
+        try {
+            prueba.correr(URI.create("http://localhost:" + server.getAddress().getPort()));
+        } finally {
+            server.stop(0);
+        }
+    }
+
+    private HttpResponse<String> post(URI base, String ruta, String cuerpo) throws Exception {
+        HttpRequest r = HttpRequest.newBuilder(base.resolve(ruta))
+                .POST(HttpRequest.BodyPublishers.ofString(cuerpo)).build();
+        return cliente.send(r, HttpResponse.BodyHandlers.ofString());
+    }
+
+    @Test
+    void unPerfilValidoDevuelveSuCartera() throws Exception {
+        conServicio(base -> {
+            HttpResponse<String> r = post(base, "/optimizar", MODERADO);
+            assertEquals(200, r.statusCode());
+            ResultadoJson res = new Gson().fromJson(r.body(), ResultadoJson.class);
+            assertTrue(res.ok);
+            assertEquals("c1", res.id);
+            assertNull(res.linea);
+            assertNotNull(res.esperaMs);
+            BBPortafolio.Resultado bb = BBPortafolio.maximizarRetorno(MERCADO,
+                    new Perfil(100_000, 0.4, Map.of(), Map.of(), "Moderado", 0.0, 1));
+            assertEquals(bb.retorno, res.retorno, 1e-12);
+            assertEquals(bb.mejor.getMontos(), res.montos);
+        });
+    }
+
+    @Test
+    void cuerpoDeMasDe64KB() throws Exception {
+        conServicio(base -> {
+            String relleno = " ".repeat(64 * 1024);
+            HttpResponse<String> r = post(base, "/optimizar", MODERADO + relleno);
+            assertEquals(413, r.statusCode());
+            assertFalse(JsonParser.parseString(r.body()).getAsJsonObject().get("ok").getAsBoolean());
+            // justo en el límite todavía se acepta
+            String justo = MODERADO + " ".repeat(64 * 1024 - MODERADO.length());
+            assertEquals(200, post(base, "/optimizar", justo).statusCode());
+        });
+    }
+
+    @Test
+    void pedidosInvalidos() throws Exception {
+        conServicio(base -> {
+            assertEquals(422, post(base, "/optimizar", "{\"presupuesto\":").statusCode());
+            assertEquals(422, post(base, "/optimizar", MODERADO.replace("Moderado", "Temerario")).statusCode());
+            assertEquals(400, post(base, "/optimizar?tiempoMs=0", MODERADO).statusCode());
+            assertEquals(400, post(base, "/optimizar?tiempoMs=x", MODERADO).statusCode());
+            HttpResponse<String> get = cliente.send(HttpRequest.newBuilder(base.resolve("/optimizar")).GET().build(),
+                    HttpResponse.BodyHandlers.ofString());
+            assertEquals(405, get.statusCode());
+        });
+    }
+
+    @Test
+    void saludCuentaLosPedidos() throws Exception {
+        conServicio(base -> {
+            assertEquals(200, post(base, "/optimizar", MODERADO).statusCode());
+            assertEquals(422, post(base, "/optimizar", "[]").statusCode());
+            HttpResponse<String> r = cliente.send(HttpRequest.newBuilder(base.resolve("/salud")).GET().build(),
+                    HttpResponse.BodyHandlers.ofString());
+            assertEquals(200, r.statusCode());
+            JsonObject o = JsonParser.parseString(r.body()).getAsJsonObject();
+            assertEquals(MERCADO.activos.size(), o.get("activos").getAsInt());
+            assertEquals(MERCADO.huella(), o.get("huella").getAsString());
+            assertEquals(1, o.get("atendidos").getAsLong());
+            assertEquals(1, o.get("fallidos").getAsLong());
+            assertEquals(0, o.get("enCurso").getAsInt());
+        });
+    }
+
+    @Test
+    void sinCuposNoArranca() {
+        assertThrows(IllegalArgumentException.class, () -> new ServicioOptimizacion(MERCADO, null, 0));
+    }
+}